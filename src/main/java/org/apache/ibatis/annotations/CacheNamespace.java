@@ -22,8 +22,12 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.DefaultWeigher;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
 
 /**
  * The annotation that specify to use cache on namespace(e.g. mapper interface).
@@ -92,6 +96,85 @@ public @interface CacheNamespace {
    */
   boolean blocking() default false;
 
+  /**
+   * Returns whether concurrent misses on the same key share one query or not.
+   *
+   * @return {@code true} if share one query; {@code false} if otherwise
+   */
+  boolean singleFlight() default false;
+
+  /**
+   * Returns the serializer used to copy the cached objects of a read/write cache.
+   *
+   * @return the serializer type
+   */
+  Class<? extends CacheSerializer> serializer() default JavaSerializer.class;
+
+  /**
+   * Returns whether compress the serialized objects of a read/write cache or not.
+   *
+   * @return {@code true} if compress the serialized objects; {@code false} if otherwise
+   */
+  boolean compress() default false;
+
+  /**
+   * Returns the maximum total weight of the cached objects.
+   *
+   * @return the maximum weight in bytes; {@code 0} means no weight limit
+   */
+  long maxWeightBytes() default 0;
+
+  /**
+   * Returns the weigher used to estimate the weight of the cached objects.
+   *
+   * @return the weigher type
+   */
+  Class<? extends Weigher> weigher() default DefaultWeigher.class;
+
+  /**
+   * Returns the time to live of every cached object after it was written.
+   *
+   * @return the time in milliseconds; {@code 0} means no write expiration
+   */
+  long expireAfterWrite() default 0;
+
+  /**
+   * Returns the time to live of every cached object after it was last read or written.
+   *
+   * @return the time in milliseconds; {@code 0} means no access expiration
+   */
+  long expireAfterAccess() default 0;
+
+  /**
+   * Returns the maximum random time added to the write expiration of every cached object.
+   *
+   * @return the time in milliseconds
+   */
+  long expiryJitter() default 0;
+
+  /**
+   * Returns the time after which a cached object is still returned but reloaded in the background.
+   *
+   * @return the time in milliseconds; {@code 0} means no refresh ahead
+   */
+  long refreshAfterWrite() default 0;
+
+  /**
+   * Returns the time to live of a cached empty result.
+   *
+   * @return the time in milliseconds; {@code 0} means empty results are kept as long as the others, unless a negative
+   *         size is set
+   */
+  long negativeTtl() default 0;
+
+  /**
+   * Returns the maximum number of cached empty results, which are kept apart from the other results.
+   *
+   * @return the number of entries; {@code 0} means 1024 when a negative time to live is set, and no separate negative
+   *         caching otherwise
+   */
+  int negativeSize() default 0;
+
   /**
    * Returns property values for a implementation object.
    *
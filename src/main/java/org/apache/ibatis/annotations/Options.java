@@ -138,6 +138,17 @@ public @interface Options {
    */
   String resultSets() default "";
 
+  /**
+   * Returns the names of the tables this statement reads from, for a select, or writes to, otherwise.
+   * <p>
+   * If you specify multiple table, please separate using comma(','). When not specified, the tables are found in the
+   * SQL.
+   * </p>
+   *
+   * @return table names that separate with comma(',')
+   */
+  String tables() default "";
+
   /**
    * @return A database id that correspond this options
    * @since 3.5.5
@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotation that runs a select when the {@link org.apache.ibatis.session.SqlSessionFactory} is built, to fill the
+ * second level cache of its namespace before the first requests arrive.
+ *
+ * <p>
+ * <b>How to use:</b>
+ *
+ * <pre>
+ * &#064;CacheNamespace
+ * public interface UserMapper {
+ *   &#064;Warmup({ "1", "2" })
+ *   &#064;Select("SELECT * FROM users WHERE id = #{id}")
+ *   User selectById(int id);
+ *
+ *   &#064;Warmup({ "#{'name' : 'john', 'active' : true}" })
+ *   &#064;Select("SELECT * FROM users WHERE name = #{name} AND active = #{active}")
+ *   List&lt;User&gt; selectByName(&#064;Param("name") String name, &#064;Param("active") boolean active);
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Warmup {
+
+  /**
+   * Returns the OGNL expressions of the parameters to run the statement with, once per expression. The values must
+   * have the types the mapper method is called with, for the cache keys to match, and several parameters are given
+   * as a map by name.
+   *
+   * @return the parameter expressions, or none to run the statement once without parameter
+   */
+  String[] value() default {};
+
+}
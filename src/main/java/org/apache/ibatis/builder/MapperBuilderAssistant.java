@@ -26,11 +26,15 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatsCounter;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.mapping.CacheWarmup;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMap;
@@ -43,8 +47,11 @@ import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.mapping.TableNameParser;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -127,10 +134,22 @@ public class MapperBuilderAssistant extends BaseBuilder {
                              Integer size,
                              boolean readWrite,
                              boolean blocking,
+                             boolean singleFlight,
+                             Class<? extends CacheSerializer> serializerClass,
+                             boolean compress,
+                             Long maxWeightBytes,
+                             Class<? extends Weigher> weigherClass,
+                             Long expireAfterWrite,
+                             Long expireAfterAccess,
+                             Long expiryJitter,
+                             Long refreshAfterWrite,
+                             Long negativeTtl,
+                             Integer negativeSize,
                              Properties props) {
         /**
          * currentNamespace 作为唯一标识，可以通过这个从 {@link Configuration#caches} 中拿到 Cache 实例
          * */
+        CacheStatsCounter statsCounter = new CacheStatsCounter();
         Cache cache = new CacheBuilder(currentNamespace)
                 .implementation(valueOrDefault(typeClass, PerpetualCache.class))
                 .addDecorator(valueOrDefault(evictionClass, LruCache.class))
@@ -138,16 +157,74 @@ public class MapperBuilderAssistant extends BaseBuilder {
                 .size(size)
                 .readWrite(readWrite)
                 .blocking(blocking)
+                .singleFlight(singleFlight)
+                .serializer(serializerClass)
+                .compress(compress)
+                .maxWeightBytes(maxWeightBytes)
+                .weigher(weigherClass)
+                .expireAfterWrite(expireAfterWrite)
+                .expireAfterAccess(expireAfterAccess)
+                .expiryJitter(expiryJitter)
+                .refreshAfterWrite(refreshAfterWrite)
+                .negativeTtl(negativeTtl)
+                .negativeSize(negativeSize)
+                .snapshot(configuration.getCacheSnapshotFile() != null)
+                .fused(configuration.isFusedCacheEnabled())
+                .statsCounter(statsCounter)
                 .properties(props)
                 .build();
         /**
          * 记录到属性 {@link Configuration#caches} 中
          * */
-        configuration.addCache(cache);
+        configuration.addCache(cache, statsCounter);
         currentCache = cache;
         return cache;
     }
 
+    /**
+     * Backward compatibility signature 'useNewCache'.
+     *
+     * @param typeClass
+     *          the type class
+     * @param evictionClass
+     *          the eviction class
+     * @param flushInterval
+     *          the flush interval
+     * @param size
+     *          the size
+     * @param readWrite
+     *          the read write
+     * @param blocking
+     *          the blocking
+     * @param props
+     *          the props
+     * @return the cache
+     */
+    public Cache useNewCache(Class<? extends Cache> typeClass,
+                             Class<? extends Cache> evictionClass,
+                             Long flushInterval,
+                             Integer size,
+                             boolean readWrite,
+                             boolean blocking,
+                             Properties props) {
+        return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, false, null, false, null,
+                null, null, null, null, null, null, null, props);
+    }
+
+    /**
+     * 声明在构建 SqlSessionFactory 时执行的缓存预热查询
+     *
+     * @param statementId         查询的 id，可以省略当前的 namespace
+     * @param parameterExpression 参数的 OGNL 表达式，为空时不传参数
+     */
+    public void addCacheWarmup(String statementId, String parameterExpression) {
+        Object parameter = null;
+        if (parameterExpression != null && !parameterExpression.isEmpty()) {
+            parameter = OgnlCache.getValue(parameterExpression, new HashMap<>());
+        }
+        configuration.addCacheWarmup(new CacheWarmup(applyCurrentNamespace(statementId, true), parameter));
+    }
+
     public ParameterMap addParameterMap(String id, Class<?> parameterClass, List<ParameterMapping> parameterMappings) {
         id = applyCurrentNamespace(id, false);
         ParameterMap parameterMap = new ParameterMap.Builder(configuration, id, parameterClass, parameterMappings).build();
@@ -270,7 +347,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
             String keyColumn,
             String databaseId,
             LanguageDriver lang,
-            String resultSets) {
+            String resultSets,
+            String tables) {
 
         if (unresolvedCacheRef) {
             throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -296,6 +374,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
                 .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
                 .useCache(valueOrDefault(useCache, isSelect))
                 .cache(currentCache);
+        applyTables(statementBuilder, sqlSource, sqlCommandType, tables);
 
         ParameterMap statementParameterMap = getStatementParameterMap(parameterMap, parameterType, id);
         if (statementParameterMap != null) {
@@ -307,6 +386,63 @@ public class MapperBuilderAssistant extends BaseBuilder {
         return statement;
     }
 
+    /**
+     * Backward compatibility signature 'addMappedStatement'.
+     *
+     * @param id
+     *          the id
+     * @param sqlSource
+     *          the sql source
+     * @param statementType
+     *          the statement type
+     * @param sqlCommandType
+     *          the sql command type
+     * @param fetchSize
+     *          the fetch size
+     * @param timeout
+     *          the timeout
+     * @param parameterMap
+     *          the parameter map
+     * @param parameterType
+     *          the parameter type
+     * @param resultMap
+     *          the result map
+     * @param resultType
+     *          the result type
+     * @param resultSetType
+     *          the result set type
+     * @param flushCache
+     *          the flush cache
+     * @param useCache
+     *          the use cache
+     * @param resultOrdered
+     *          the result ordered
+     * @param keyGenerator
+     *          the key generator
+     * @param keyProperty
+     *          the key property
+     * @param keyColumn
+     *          the key column
+     * @param databaseId
+     *          the database id
+     * @param lang
+     *          the lang
+     * @param resultSets
+     *          the result sets
+     * @return the mapped statement
+     */
+    public MappedStatement addMappedStatement(String id, SqlSource sqlSource, StatementType statementType,
+                                              SqlCommandType sqlCommandType, Integer fetchSize, Integer timeout, String parameterMap, Class<?> parameterType,
+                                              String resultMap, Class<?> resultType, ResultSetType resultSetType, boolean flushCache, boolean useCache,
+                                              boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty, String keyColumn, String databaseId,
+                                              LanguageDriver lang, String resultSets) {
+        return addMappedStatement(
+                id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+                parameterMap, parameterType, resultMap, resultType, resultSetType,
+                flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+                keyColumn, databaseId, lang, resultSets, null);
+    }
+
     /**
      * Backward compatibility signature 'addMappedStatement'.
      *
@@ -359,7 +495,22 @@ public class MapperBuilderAssistant extends BaseBuilder {
                 id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
                 parameterMap, parameterType, resultMap, resultType, resultSetType,
                 flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
-                keyColumn, databaseId, lang, null);
+                keyColumn, databaseId, lang, null, null);
+    }
+
+    private void applyTables(MappedStatement.Builder statementBuilder, SqlSource sqlSource, SqlCommandType sqlCommandType,
+                             String tables) {
+        boolean isWrite = sqlCommandType == SqlCommandType.INSERT || sqlCommandType == SqlCommandType.UPDATE
+                || sqlCommandType == SqlCommandType.DELETE;
+        Set<String> declaredTables = TableNameParser.parseDeclaredTables(tables);
+        if (declaredTables != null) {
+            statementBuilder.readTables(isWrite ? null : declaredTables).writeTables(isWrite ? declaredTables : null);
+        } else if (sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource) {
+            // the tables of dynamic statements are found when they are executed
+            String sql = sqlSource.getBoundSql(null).getSql();
+            statementBuilder.readTables(TableNameParser.parseReadTables(sql))
+                    .writeTables(isWrite ? TableNameParser.parseWriteTables(sql) : null);
+        }
     }
 
     private <T> T valueOrDefault(T value, T defaultValue) {
@@ -59,6 +59,7 @@ import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.TypeDiscriminator;
 import org.apache.ibatis.annotations.Update;
 import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.annotations.Warmup;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -216,8 +217,18 @@ public class MapperAnnotationBuilder {
         if (cacheDomain != null) {
             Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
             Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
+            Long maxWeightBytes = cacheDomain.maxWeightBytes() == 0 ? null : cacheDomain.maxWeightBytes();
+            Long expireAfterWrite = cacheDomain.expireAfterWrite() == 0 ? null : cacheDomain.expireAfterWrite();
+            Long expireAfterAccess = cacheDomain.expireAfterAccess() == 0 ? null : cacheDomain.expireAfterAccess();
+            Long expiryJitter = cacheDomain.expiryJitter() == 0 ? null : cacheDomain.expiryJitter();
+            Long refreshAfterWrite = cacheDomain.refreshAfterWrite() == 0 ? null : cacheDomain.refreshAfterWrite();
+            Long negativeTtl = cacheDomain.negativeTtl() == 0 ? null : cacheDomain.negativeTtl();
+            Integer negativeSize = cacheDomain.negativeSize() == 0 ? null : cacheDomain.negativeSize();
             Properties props = convertToProperties(cacheDomain.properties());
-            assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+            assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(),
+                    cacheDomain.blocking(), cacheDomain.singleFlight(), cacheDomain.serializer(), cacheDomain.compress(),
+                    maxWeightBytes, cacheDomain.weigher(), expireAfterWrite, expireAfterAccess, expiryJitter,
+                    refreshAfterWrite, negativeTtl, negativeSize, props);
         }
     }
 
@@ -414,7 +425,18 @@ public class MapperAnnotationBuilder {
                     statementAnnotation.getDatabaseId(),
                     languageDriver,
                     // ResultSets
-                    options != null ? nullOrEmpty(options.resultSets()) : null);
+                    options != null ? nullOrEmpty(options.resultSets()) : null,
+                    options != null ? nullOrEmpty(options.tables()) : null);
+
+            Warmup warmup = method.getAnnotation(Warmup.class);
+            if (warmup != null) {
+                if (warmup.value().length == 0) {
+                    assistant.addCacheWarmup(mappedStatementId, null);
+                }
+                for (String parameter : warmup.value()) {
+                    assistant.addCacheWarmup(mappedStatementId, parameter);
+                }
+            }
         });
     }
 
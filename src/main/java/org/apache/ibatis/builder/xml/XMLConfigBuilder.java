@@ -24,6 +24,7 @@ import javax.sql.DataSource;
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
@@ -42,6 +43,7 @@ import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.CacheKeyMode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
@@ -141,6 +143,10 @@ public class XMLConfigBuilder extends BaseBuilder {
              * 解析 <reflectorFactory/> 到 {@link Configuration#reflectorFactory}
              * */
             reflectorFactoryElement(root.evalNode("reflectorFactory"));
+            /**
+             * 解析 <cacheInvalidationBus/> 到 {@link Configuration#cacheInvalidationBus}
+             * */
+            cacheInvalidationBusElement(root.evalNode("cacheInvalidationBus"));
             // 将 settings 里面的属性设置到 configuration 对象中
             settingsElement(settings);
             /**
@@ -289,6 +295,16 @@ public class XMLConfigBuilder extends BaseBuilder {
         }
     }
 
+    private void cacheInvalidationBusElement(XNode context) throws Exception {
+        if (context != null) {
+            String type = context.getStringAttribute("type");
+            Properties properties = context.getChildrenAsProperties();
+            CacheInvalidationBus bus = (CacheInvalidationBus) resolveClass(type).getDeclaredConstructor().newInstance();
+            bus.setProperties(properties);
+            configuration.setCacheInvalidationBus(bus);
+        }
+    }
+
     private void propertiesElement(XNode context) throws Exception {
         if (context != null) {
             // 作为默认属性
@@ -335,6 +351,9 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
         configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
         configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+        configuration.setLocalCacheMaxSize(integerValueOf(props.getProperty("localCacheMaxSize"), 0));
+        configuration.setLocalCacheMaxWeightBytes(longValueOf(props.getProperty("localCacheMaxWeightBytes"), 0L));
+        configuration.setCacheKeyMode(CacheKeyMode.valueOf(props.getProperty("cacheKeyMode", "FULL")));
         configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
         configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
         configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
@@ -349,6 +368,13 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setArgNameBasedConstructorAutoMapping(booleanValueOf(props.getProperty("argNameBasedConstructorAutoMapping"), false));
         configuration.setDefaultSqlProviderType(resolveClass(props.getProperty("defaultSqlProviderType")));
         configuration.setNullableOnForEach(booleanValueOf(props.getProperty("nullableOnForEach"), false));
+        configuration.setTableBasedCacheInvalidation(booleanValueOf(props.getProperty("tableBasedCacheInvalidation"), false));
+        configuration.setCacheWarmupThreads(integerValueOf(props.getProperty("cacheWarmupThreads"), 4));
+        configuration.setCacheSnapshotFile(props.getProperty("cacheSnapshotFile"));
+        configuration.setTableBasedLocalCacheInvalidation(booleanValueOf(props.getProperty("tableBasedLocalCacheInvalidation"), false));
+        configuration.setCacheStatsJmxEnabled(booleanValueOf(props.getProperty("cacheStatsJmxEnabled"), false));
+        configuration.setVersionedCacheEnabled(booleanValueOf(props.getProperty("versionedCacheEnabled"), false));
+        configuration.setFusedCacheEnabled(booleanValueOf(props.getProperty("fusedCacheEnabled"), false));
     }
 
     private void environmentsElement(XNode context) throws Exception {
@@ -34,6 +34,8 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.*;
@@ -253,11 +255,28 @@ public class XMLMapperBuilder extends BaseBuilder {
             Integer size = context.getIntAttribute("size");
             boolean readWrite = !context.getBooleanAttribute("readOnly", false);
             boolean blocking = context.getBooleanAttribute("blocking", false);
+            boolean singleFlight = context.getBooleanAttribute("singleFlight", false);
+            Class<? extends CacheSerializer> serializerClass = resolveClass(context.getStringAttribute("serializer"));
+            boolean compress = context.getBooleanAttribute("compress", false);
+            Long maxWeightBytes = context.getLongAttribute("maxWeightBytes");
+            Class<? extends Weigher> weigherClass = resolveClass(context.getStringAttribute("weigher"));
+            Long expireAfterWrite = context.getLongAttribute("expireAfterWrite");
+            Long expireAfterAccess = context.getLongAttribute("expireAfterAccess");
+            Long expiryJitter = context.getLongAttribute("expiryJitter");
+            Long refreshAfterWrite = context.getLongAttribute("refreshAfterWrite");
+            Long negativeTtl = context.getLongAttribute("negativeTtl");
+            Integer negativeSize = context.getIntAttribute("negativeSize");
             Properties props = context.getChildrenAsProperties();
             /**
              * 使用cache，就是根据配置信息构造出 Cache 实例，记录到 {@link org.apache.ibatis.session.Configuration.caches} 中
              * */
-            builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+            builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, singleFlight,
+                    serializerClass, compress, maxWeightBytes, weigherClass, expireAfterWrite, expireAfterAccess, expiryJitter,
+                    refreshAfterWrite, negativeTtl, negativeSize, props);
+            for (XNode warmup : context.evalNodes("warmup")) {
+                builderAssistant.addCacheWarmup(warmup.getStringAttribute("statement"),
+                        warmup.getStringAttribute("parameter"));
+            }
         }
     }
 
@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
 /**
@@ -61,6 +64,39 @@ public interface Cache {
    */
   Object getObject(Object key);
 
+  /**
+   * Puts several objects at once. Caches that pay a round trip or a lock per call should override it; the default
+   * implementation calls {@link #putObject(Object, Object)} for every entry.
+   *
+   * @param objects
+   *          the keys and the results of the selects; a value may be null to release the lock of a missed key, see
+   *          {@link #removeObject(Object)}
+   */
+  default void putObjects(Map<?, ?> objects) {
+    for (Map.Entry<?, ?> entry : objects.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Gets several objects at once. Caches that pay a round trip or a lock per call should override it; the default
+   * implementation calls {@link #getObject(Object)} for every key.
+   *
+   * @param keys
+   *          the keys
+   * @return the objects stored in the cache by key; keys that are not cached are left out
+   */
+  default Map<Object, Object> getObjects(Collection<?> keys) {
+    Map<Object, Object> objects = new HashMap<>();
+    for (Object key : keys) {
+      Object object = getObject(key);
+      if (object != null) {
+        objects.put(key, object);
+      }
+    }
+    return objects;
+  }
+
   /**
    * As of 3.3.0 this method is only called during a rollback
    * for any previous value that was missing in the cache.
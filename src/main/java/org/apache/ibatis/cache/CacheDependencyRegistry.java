@@ -0,0 +1,63 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.util.MapUtil;
+
+/**
+ * Keeps track of the tables the entries of every second level cache were read from.
+ * <p>
+ * Used when table based cache invalidation is enabled, so that a write only clears the caches that depend on the
+ * tables it writes to, whatever their namespace. Caches holding results of statements whose tables are unknown are
+ * tracked as such, and are still cleared by every write of their own namespace.
+ */
+public class CacheDependencyRegistry {
+
+  private final ConcurrentMap<String, Set<Cache>> dependentCaches = new ConcurrentHashMap<>();
+  private final Set<Cache> untrackedCaches = ConcurrentHashMap.newKeySet();
+
+  public void addDependencies(Cache cache, Collection<String> tables) {
+    for (String table : tables) {
+      MapUtil.computeIfAbsent(dependentCaches, table, k -> ConcurrentHashMap.newKeySet()).add(cache);
+    }
+  }
+
+  public void addUntrackedCache(Cache cache) {
+    untrackedCaches.add(cache);
+  }
+
+  public boolean isUntracked(Cache cache) {
+    return untrackedCaches.contains(cache);
+  }
+
+  public Set<Cache> getDependentCaches(Collection<String> tables) {
+    Set<Cache> caches = new LinkedHashSet<>();
+    for (String table : tables) {
+      Set<Cache> dependents = dependentCaches.get(table);
+      if (dependents != null) {
+        caches.addAll(dependents);
+      }
+    }
+    return caches;
+  }
+
+}
@@ -81,6 +81,17 @@ public class CacheKey implements Cloneable, Serializable {
     updateList.add(object);
   }
 
+  /**
+   * Adds the SQL of a statement. Same as {@link #update(Object)}, but lets a key remember the hashes of SQL that is
+   * added again and again.
+   *
+   * @param sql
+   *          the SQL of the statement
+   */
+  public void updateSql(String sql) {
+    update(sql);
+  }
+
   public void updateAll(Object[] objects) {
     for (Object o : objects) {
       update(o);
@@ -92,7 +103,7 @@ public class CacheKey implements Cloneable, Serializable {
     if (this == object) {
       return true;
     }
-    if (!(object instanceof CacheKey)) {
+    if (!(object instanceof CacheKey) || object instanceof CompactCacheKey) {
       return false;
     }
 
@@ -0,0 +1,121 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Immutable snapshot of the statistics of a second level cache.
+ *
+ * @see CacheStatsCounter
+ * @see org.apache.ibatis.session.Configuration#getCacheStats(String)
+ */
+public class CacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long putCount;
+  private final long evictionCount;
+  private final long loadSuccessCount;
+  private final long loadFailureCount;
+  private final long totalLoadTime;
+  private final int size;
+  private final long weight;
+
+  public CacheStats(long hitCount, long missCount, long putCount, long evictionCount, long loadSuccessCount,
+      long loadFailureCount, long totalLoadTime, int size, long weight) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.putCount = putCount;
+    this.evictionCount = evictionCount;
+    this.loadSuccessCount = loadSuccessCount;
+    this.loadFailureCount = loadFailureCount;
+    this.totalLoadTime = totalLoadTime;
+    this.size = size;
+    this.weight = weight;
+  }
+
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return The ratio of reads that found a value, or {@code 1.0} when the cache was never read.
+   */
+  public double getHitRatio() {
+    long requestCount = getRequestCount();
+    return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+  }
+
+  public long getPutCount() {
+    return putCount;
+  }
+
+  /**
+   * @return The number of entries removed by the cache itself, because of its size, weight or expiration.
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getLoadSuccessCount() {
+    return loadSuccessCount;
+  }
+
+  public long getLoadFailureCount() {
+    return loadFailureCount;
+  }
+
+  /**
+   * @return The time spent running the statements of missed entries, in nanoseconds.
+   */
+  public long getTotalLoadTime() {
+    return totalLoadTime;
+  }
+
+  /**
+   * @return The average time spent running a statement on a miss, in nanoseconds.
+   */
+  public double getAverageLoadPenalty() {
+    long loadCount = loadSuccessCount + loadFailureCount;
+    return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return The estimated weight of the cached entries in bytes, or {@code -1} when the cache is not weighed.
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{hitCount=" + hitCount + ", missCount=" + missCount + ", putCount=" + putCount
+        + ", evictionCount=" + evictionCount + ", loadSuccessCount=" + loadSuccessCount + ", loadFailureCount="
+        + loadFailureCount + ", totalLoadTime=" + totalLoadTime + ", size=" + size + ", weight=" + weight + "}";
+  }
+
+}
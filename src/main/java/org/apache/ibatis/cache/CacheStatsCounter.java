@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread safe counters shared by the decorators of one second level cache.
+ * <p>
+ * {@link org.apache.ibatis.cache.decorators.LoggingCache} counts reads and puts, the evicting decorators count the
+ * entries they evict, and {@link org.apache.ibatis.executor.CachingExecutor} times the statements run on a miss. The
+ * counters only ever grow, so they can be read at any time without locking the cache.
+ */
+public class CacheStatsCounter {
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder putCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder loadSuccessCount = new LongAdder();
+  private final LongAdder loadFailureCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private volatile LongSupplier weightSource;
+
+  public void recordHit() {
+    hitCount.increment();
+  }
+
+  public void recordMiss() {
+    missCount.increment();
+  }
+
+  public void recordPut() {
+    putCount.increment();
+  }
+
+  public void recordEviction() {
+    evictionCount.increment();
+  }
+
+  public void recordLoadSuccess(long loadTime) {
+    loadSuccessCount.increment();
+    totalLoadTime.add(loadTime);
+  }
+
+  public void recordLoadFailure(long loadTime) {
+    loadFailureCount.increment();
+    totalLoadTime.add(loadTime);
+  }
+
+  /**
+   * Sets where the weight of the cached entries is read from.
+   *
+   * @param weightSource
+   *          returns the weight in bytes, or null when the cache is not weighed
+   */
+  public void setWeightSource(LongSupplier weightSource) {
+    this.weightSource = weightSource;
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public CacheStats snapshot(int size) {
+    LongSupplier weight = weightSource;
+    return new CacheStats(hitCount.sum(), missCount.sum(), putCount.sum(), evictionCount.sum(),
+        loadSuccessCount.sum(), loadFailureCount.sum(), totalLoadTime.sum(), size,
+        weight == null ? -1 : weight.getAsLong());
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Publishes the statistics of a second level cache to the platform MBean server, under the name
+ * <code>org.apache.ibatis:type=CacheStats,configuration=&lt;hash&gt;,id=&lt;cache id&gt;</code>. Every read of an
+ * attribute takes a new snapshot of the statistics.
+ */
+public class CacheStatsMonitor implements CacheStatsMXBean {
+
+  private static final Log log = LogFactory.getLog(CacheStatsMonitor.class);
+
+  private final Configuration configuration;
+  private final String id;
+
+  public CacheStatsMonitor(Configuration configuration, String id) {
+    this.configuration = configuration;
+    this.id = id;
+  }
+
+  /**
+   * Registers the statistics of a cache with the platform MBean server.
+   *
+   * @param configuration
+   *          the configuration the cache belongs to
+   * @param id
+   *          the cache id
+   * @return the registered name, or null when it could not be registered
+   */
+  public static ObjectName register(Configuration configuration, String id) {
+    try {
+      ObjectName name = new ObjectName("org.apache.ibatis:type=CacheStats,configuration="
+          + Integer.toHexString(System.identityHashCode(configuration)) + ",id=" + ObjectName.quote(id));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(new CacheStatsMonitor(configuration, id), name);
+      return name;
+    } catch (JMException e) {
+      log.warn("Could not register the statistics of cache " + id + " with JMX. Cause: " + e);
+      return null;
+    }
+  }
+
+  public static void unregister(ObjectName name) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      log.warn("Could not unregister " + name + " from JMX. Cause: " + e);
+    }
+  }
+
+  @Override
+  public String getCacheId() {
+    return id;
+  }
+
+  @Override
+  public long getHitCount() {
+    return stats().getHitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return stats().getMissCount();
+  }
+
+  @Override
+  public double getHitRatio() {
+    return stats().getHitRatio();
+  }
+
+  @Override
+  public long getPutCount() {
+    return stats().getPutCount();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return stats().getEvictionCount();
+  }
+
+  @Override
+  public long getLoadSuccessCount() {
+    return stats().getLoadSuccessCount();
+  }
+
+  @Override
+  public long getLoadFailureCount() {
+    return stats().getLoadFailureCount();
+  }
+
+  @Override
+  public double getAverageLoadPenaltyMillis() {
+    return stats().getAverageLoadPenalty() / 1_000_000;
+  }
+
+  @Override
+  public int getSize() {
+    return stats().getSize();
+  }
+
+  @Override
+  public long getWeight() {
+    return stats().getWeight();
+  }
+
+  private CacheStats stats() {
+    return configuration.getCacheStats(id);
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of the second level caches of one configuration, for the versioned mode of
+ * {@link org.apache.ibatis.cache.decorators.TransactionalCache}.
+ * <p>
+ * The version of a cache grows every time a committed transaction or another node clears it. A transaction that read
+ * the cache at an older version may have loaded data that the clear was meant to drop, so it does not add what it
+ * loaded. The version object is also the lock held while the cache is cleared or the entries of a transaction are
+ * added, so the two cannot interleave.
+ */
+public class CacheVersions {
+
+  private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  /**
+   * Gets the version of a cache.
+   *
+   * @param cache
+   *          the cache
+   * @return the version, the same object for all the caches with this id
+   */
+  public AtomicLong of(Cache cache) {
+    return versions.computeIfAbsent(cache.getId(), id -> new AtomicLong());
+  }
+
+  /**
+   * Clears a cache and moves it to the next version.
+   *
+   * @param cache
+   *          the cache
+   */
+  public void clear(Cache cache) {
+    AtomicLong version = of(cache);
+    synchronized (version) {
+      cache.clear();
+      version.incrementAndGet();
+    }
+  }
+
+}
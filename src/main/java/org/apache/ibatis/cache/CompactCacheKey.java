@@ -0,0 +1,484 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Cache key that hashes its components into a 128-bit fingerprint as they are added.
+ * <p>
+ * Strings, numbers, dates, enums and arrays of those are only hashed, so the SQL text and the parameter values are not
+ * retained by the key. Other objects are hashed by their hash code and kept to be compared with {@code equals}. The
+ * fingerprint is a SipHash keyed with a random key per JVM, so colliding parameter values cannot be crafted. For the
+ * same reason a compact key never equals a key of another JVM: it cannot be removed from the caches of other nodes,
+ * and is not saved in cache snapshots.
+ * <p>
+ * A checked key also keeps every component. It prints them in {@link #toString()} and compares them after the
+ * fingerprints matched, logging a warning when two different keys have the same fingerprint.
+ *
+ * @see org.apache.ibatis.session.CacheKeyMode
+ */
+public class CompactCacheKey extends CacheKey {
+
+  private static final long serialVersionUID = 1L;
+  private static final Log log = LogFactory.getLog(CompactCacheKey.class);
+
+  private static final long[] SEED = newSeed();
+  private static final int MEMO_MIN_LENGTH = 32;
+  private static final int MEMO_MAX_SIZE = 1024;
+  // only the SQL is remembered, never the parameter values
+  private static final Map<String, long[]> SQL_FINGERPRINTS = new ConcurrentHashMap<>();
+
+  private static final long NULL = 1;
+  private static final long STRING = 2;
+  private static final long INTEGER = 3;
+  private static final long LONG = 4;
+  private static final long SHORT = 5;
+  private static final long BYTE = 6;
+  private static final long DOUBLE = 7;
+  private static final long FLOAT = 8;
+  private static final long BOOLEAN = 9;
+  private static final long CHARACTER = 10;
+  private static final long BIG_DECIMAL = 11;
+  private static final long BIG_INTEGER = 12;
+  private static final long DATE = 13;
+  private static final long TEXT = 14;
+  private static final long ARRAY = 15;
+  private static final long OTHER = 16;
+
+  private final boolean checked;
+  private SipHash hash;
+  private int count;
+  private List<Object> others;
+  private List<Object> components;
+  private transient long fingerprint0;
+  private transient long fingerprint1;
+  private transient volatile boolean finished;
+
+  public CompactCacheKey() {
+    this(false);
+  }
+
+  /**
+   * @param checked
+   *          whether to keep every component for debugging and collision checks
+   */
+  public CompactCacheKey(boolean checked) {
+    this.checked = checked;
+    this.hash = new SipHash(SEED[0], SEED[1]);
+    if (checked) {
+      this.components = new ArrayList<>();
+    }
+  }
+
+  @Override
+  public int getUpdateCount() {
+    return count;
+  }
+
+  @Override
+  public void update(Object object) {
+    count++;
+    finished = false;
+    if (!add(object)) {
+      hash.add(OTHER);
+      hash.add(ArrayUtil.hashCode(object));
+      if (others == null) {
+        others = new ArrayList<>();
+      }
+      others.add(object);
+    }
+    if (checked) {
+      components.add(object);
+    }
+  }
+
+  @Override
+  public void updateSql(String sql) {
+    if (sql == null || sql.length() < MEMO_MIN_LENGTH) {
+      update(sql);
+      return;
+    }
+    count++;
+    finished = false;
+    // the SQL of a statement is hashed again and again
+    long[] fingerprint = SQL_FINGERPRINTS.get(sql);
+    if (fingerprint == null) {
+      fingerprint = fingerprintOf(sql);
+      if (SQL_FINGERPRINTS.size() < MEMO_MAX_SIZE) {
+        SQL_FINGERPRINTS.put(sql, fingerprint);
+      }
+    }
+    hash.add(STRING);
+    addLongString(sql.length(), fingerprint);
+    if (checked) {
+      components.add(sql);
+    }
+  }
+
+  /**
+   * @return The high 64 bits of the fingerprint.
+   */
+  public long getFingerprintHigh() {
+    finish();
+    return fingerprint0;
+  }
+
+  /**
+   * @return The low 64 bits of the fingerprint.
+   */
+  public long getFingerprintLow() {
+    finish();
+    return fingerprint1;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof CompactCacheKey)) {
+      return false;
+    }
+    CompactCacheKey other = (CompactCacheKey) object;
+    finish();
+    other.finish();
+    if (fingerprint0 != other.fingerprint0 || fingerprint1 != other.fingerprint1 || count != other.count
+        || !equalOthers(others, other.others)) {
+      return false;
+    }
+    if (components != null && other.components != null && !equalOthers(components, other.components)) {
+      log.warn("Cache key fingerprint collision between " + this + " and " + other);
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    finish();
+    return (int) (fingerprint0 ^ (fingerprint0 >>> 32));
+  }
+
+  @Override
+  public String toString() {
+    finish();
+    StringJoiner returnValue = new StringJoiner(":");
+    returnValue.add(String.format("%016x%016x", fingerprint0, fingerprint1));
+    returnValue.add(String.valueOf(count));
+    List<Object> printed = components != null ? components : others;
+    if (printed != null) {
+      printed.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    }
+    return returnValue.toString();
+  }
+
+  @Override
+  public CompactCacheKey clone() throws CloneNotSupportedException {
+    CompactCacheKey clonedCacheKey = (CompactCacheKey) super.clone();
+    clonedCacheKey.hash = hash.copy();
+    if (others != null) {
+      clonedCacheKey.others = new ArrayList<>(others);
+    }
+    if (components != null) {
+      clonedCacheKey.components = new ArrayList<>(components);
+    }
+    return clonedCacheKey;
+  }
+
+  private void finish() {
+    if (!finished) {
+      SipHash copy = hash.copy();
+      fingerprint0 = copy.finishHigh();
+      fingerprint1 = copy.finishLow();
+      finished = true;
+    }
+  }
+
+  private static boolean equalOthers(List<Object> these, List<Object> those) {
+    if (these == null || those == null) {
+      return these == those;
+    }
+    if (these.size() != those.size()) {
+      return false;
+    }
+    for (int i = 0; i < these.size(); i++) {
+      if (!ArrayUtil.equals(these.get(i), those.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean add(Object object) {
+    if (object == null) {
+      hash.add(NULL);
+    } else if (object instanceof String) {
+      addString((String) object);
+    } else if (object instanceof Integer) {
+      hash.add(INTEGER);
+      hash.add((Integer) object);
+    } else if (object instanceof Long) {
+      hash.add(LONG);
+      hash.add((Long) object);
+    } else if (object instanceof Short) {
+      hash.add(SHORT);
+      hash.add((Short) object);
+    } else if (object instanceof Byte) {
+      hash.add(BYTE);
+      hash.add((Byte) object);
+    } else if (object instanceof Double) {
+      hash.add(DOUBLE);
+      hash.add(Double.doubleToLongBits((Double) object));
+    } else if (object instanceof Float) {
+      hash.add(FLOAT);
+      hash.add(Float.floatToIntBits((Float) object));
+    } else if (object instanceof Boolean) {
+      hash.add(BOOLEAN);
+      hash.add((Boolean) object ? 1 : 0);
+    } else if (object instanceof Character) {
+      hash.add(CHARACTER);
+      hash.add((Character) object);
+    } else if (object.getClass() == BigDecimal.class) {
+      // equal values have the same scale
+      hash.add(BIG_DECIMAL);
+      hash.add(((BigDecimal) object).scale());
+      addBytes(((BigDecimal) object).unscaledValue().toByteArray());
+    } else if (object.getClass() == BigInteger.class) {
+      hash.add(BIG_INTEGER);
+      addBytes(((BigInteger) object).toByteArray());
+    } else if (object.getClass() == Date.class || object.getClass() == java.sql.Date.class
+        || object.getClass() == java.sql.Time.class || object.getClass() == Timestamp.class) {
+      hash.add(DATE);
+      addChars(object.getClass().getName());
+      hash.add(((Date) object).getTime());
+      if (object instanceof Timestamp) {
+        hash.add(((Timestamp) object).getNanos());
+      }
+    } else if (object instanceof Enum || object instanceof UUID
+        || (object instanceof TemporalAccessor && object.getClass().getName().startsWith("java.time."))) {
+      // the text of these values is equal exactly when the values are equal
+      hash.add(TEXT);
+      if (object instanceof Enum) {
+        addChars(((Enum<?>) object).getDeclaringClass().getName());
+        addChars(((Enum<?>) object).name());
+      } else {
+        addChars(object.getClass().getName());
+        addChars(object.toString());
+      }
+    } else if (object.getClass().isArray()) {
+      return addArray(object);
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private boolean addArray(Object array) {
+    Class<?> componentType = array.getClass().getComponentType();
+    if (componentType == byte.class) {
+      hash.add(ARRAY);
+      addChars(componentType.getName());
+      addBytes((byte[]) array);
+      return true;
+    }
+    if (!componentType.isPrimitive()) {
+      // keeps the state so that a partially hashed array can be rolled back
+      SipHash saved = hash.copy();
+      Object[] elements = (Object[]) array;
+      hash.add(ARRAY);
+      addChars(componentType.getName());
+      hash.add(elements.length);
+      for (Object element : elements) {
+        if ((element != null && element.getClass().isArray()) || !add(element)) {
+          hash.restore(saved);
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private void addString(String value) {
+    hash.add(STRING);
+    if (value.length() < MEMO_MIN_LENGTH) {
+      addChars(value);
+      return;
+    }
+    addLongString(value.length(), fingerprintOf(value));
+  }
+
+  private void addLongString(int length, long[] fingerprint) {
+    hash.add(length);
+    hash.add(fingerprint[0]);
+    hash.add(fingerprint[1]);
+  }
+
+  private static long[] fingerprintOf(String value) {
+    SipHash stringHash = new SipHash(SEED[0], SEED[1]);
+    stringHash.addChars(value);
+    return new long[] { stringHash.finishHigh(), stringHash.finishLow() };
+  }
+
+  private void addChars(String value) {
+    hash.addChars(value);
+  }
+
+  private void addBytes(byte[] bytes) {
+    hash.add(bytes.length);
+    long word = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      word = (word << 8) | (bytes[i] & 0xFF);
+      if ((i & 7) == 7) {
+        hash.add(word);
+        word = 0;
+      }
+    }
+    if ((bytes.length & 7) != 0) {
+      hash.add(word);
+    }
+  }
+
+  private static long[] newSeed() {
+    SecureRandom random = new SecureRandom();
+    return new long[] { random.nextLong(), random.nextLong() };
+  }
+
+  /**
+   * SipHash-2-4 with a 128-bit output over a stream of 64-bit words.
+   */
+  private static final class SipHash implements java.io.Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long v0;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long words;
+
+    SipHash(long k0, long k1) {
+      v0 = k0 ^ 0x736f6d6570736575L;
+      v1 = k1 ^ 0x646f72616e646f6dL ^ 0xee;
+      v2 = k0 ^ 0x6c7967656e657261L;
+      v3 = k1 ^ 0x7465646279746573L;
+    }
+
+    private SipHash(SipHash source) {
+      restore(source);
+    }
+
+    SipHash copy() {
+      return new SipHash(this);
+    }
+
+    void restore(SipHash source) {
+      v0 = source.v0;
+      v1 = source.v1;
+      v2 = source.v2;
+      v3 = source.v3;
+      words = source.words;
+    }
+
+    void add(long m) {
+      v3 ^= m;
+      round();
+      round();
+      v0 ^= m;
+      words++;
+    }
+
+    void addChars(String value) {
+      int length = value.length();
+      add(length);
+      int i = 0;
+      for (; i + 4 <= length; i += 4) {
+        add((long) value.charAt(i) << 48 | (long) value.charAt(i + 1) << 32 | (long) value.charAt(i + 2) << 16
+            | value.charAt(i + 3));
+      }
+      long word = 0;
+      for (; i < length; i++) {
+        word = word << 16 | value.charAt(i);
+      }
+      if ((length & 3) != 0) {
+        add(word);
+      }
+    }
+
+    /**
+     * Ends the stream and returns the first half of the output. Nothing may be added afterwards.
+     */
+    long finishHigh() {
+      long b = words << 56;
+      v3 ^= b;
+      round();
+      round();
+      v0 ^= b;
+      v2 ^= 0xee;
+      finalRounds();
+      return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * Returns the second half of the output, after {@link #finishHigh()}.
+     */
+    long finishLow() {
+      v1 ^= 0xdd;
+      finalRounds();
+      return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    private void finalRounds() {
+      round();
+      round();
+      round();
+      round();
+    }
+
+    private void round() {
+      v0 += v1;
+      v1 = Long.rotateLeft(v1, 13);
+      v1 ^= v0;
+      v0 = Long.rotateLeft(v0, 32);
+      v2 += v3;
+      v3 = Long.rotateLeft(v3, 16);
+      v3 ^= v2;
+      v0 += v3;
+      v3 = Long.rotateLeft(v3, 21);
+      v3 ^= v0;
+      v2 += v1;
+      v1 = Long.rotateLeft(v1, 17);
+      v1 ^= v2;
+      v2 = Long.rotateLeft(v2, 32);
+    }
+  }
+
+}
@@ -0,0 +1,199 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.util.MapUtil;
+
+/**
+ * Default {@link Weigher} that estimates the shallow and retained size of cached values.
+ * <p>
+ * Byte arrays, as stored by read/write caches, weigh their length. Other values are walked through their fields,
+ * without calling any getter so lazy loading proxies are never triggered. Large collections, maps and arrays are
+ * estimated from a sample of their elements, so weighing a list of thousands of beans stays cheap. JDK and MyBatis
+ * internal objects that are not simple values are counted as a fixed size, and keys are counted as a fixed overhead
+ * per entry.
+ */
+public class DefaultWeigher implements Weigher {
+
+  private static final int ENTRY_OVERHEAD = 128;
+  private static final int OBJECT_HEADER = 16;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 8;
+  private static final int SAMPLE_SIZE = 32;
+  private static final int MAX_DEPTH = 16;
+
+  private static final Field[] OPAQUE = new Field[0];
+  private static final String[] INTERNAL_PACKAGES = { "java.", "javax.", "sun.", "jdk.", "org.apache.ibatis.binding.",
+      "org.apache.ibatis.cache.", "org.apache.ibatis.cursor.", "org.apache.ibatis.datasource.",
+      "org.apache.ibatis.executor.", "org.apache.ibatis.mapping.", "org.apache.ibatis.reflection.",
+      "org.apache.ibatis.scripting.", "org.apache.ibatis.session.", "org.apache.ibatis.transaction.",
+      "org.apache.ibatis.type." };
+
+  private final Map<Class<?>, Field[]> fields = new ConcurrentHashMap<>();
+
+  @Override
+  public long weigh(Object key, Object value) {
+    return ENTRY_OVERHEAD + weigh(value, new IdentityHashMap<>(), 0);
+  }
+
+  private long weigh(Object value, Map<Object, Object> visited, int depth) {
+    if (value == null) {
+      return 0;
+    }
+    Class<?> type = value.getClass();
+    if (type == byte[].class) {
+      return align(ARRAY_HEADER + ((byte[]) value).length);
+    }
+    if (type == String.class) {
+      return align(OBJECT_HEADER + 8) + align(ARRAY_HEADER + 2L * ((String) value).length());
+    }
+    if (value instanceof Enum) {
+      return 0;
+    }
+    if (value instanceof Number || value instanceof Boolean || value instanceof Character
+        || value instanceof java.util.Date) {
+      return 24;
+    }
+    if (depth > MAX_DEPTH || visited.put(value, value) != null) {
+      return 0;
+    }
+    if (type.isArray()) {
+      return weighArray(value, type.getComponentType(), visited, depth);
+    }
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      return align(OBJECT_HEADER * 2 + (long) REFERENCE * collection.size())
+          + weighSample(collection, collection.size(), visited, depth);
+    }
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      return align(OBJECT_HEADER * 3 + (long) (OBJECT_HEADER + REFERENCE * 3) * map.size())
+          + weighSample(map.keySet(), map.size(), visited, depth) + weighSample(map.values(), map.size(), visited, depth);
+    }
+    Field[] typeFields = MapUtil.computeIfAbsent(fields, type, DefaultWeigher::findFields);
+    if (typeFields == OPAQUE) {
+      return OBJECT_HEADER + 16;
+    }
+    long weight = OBJECT_HEADER;
+    for (Field field : typeFields) {
+      Class<?> fieldType = field.getType();
+      if (fieldType.isPrimitive()) {
+        weight += primitiveSize(fieldType);
+      } else {
+        weight += REFERENCE;
+        try {
+          weight += weigh(field.get(value), visited, depth + 1);
+        } catch (IllegalAccessException e) {
+          // counted as a plain reference
+        }
+      }
+    }
+    return align(weight);
+  }
+
+  private long weighArray(Object array, Class<?> componentType, Map<Object, Object> visited, int depth) {
+    int length = Array.getLength(array);
+    if (componentType.isPrimitive()) {
+      return align(ARRAY_HEADER + (long) primitiveSize(componentType) * length);
+    }
+    List<Object> elements = new ArrayList<>(Math.min(length, SAMPLE_SIZE));
+    int step = Math.max(1, length / SAMPLE_SIZE);
+    for (int i = 0; i < length && elements.size() < SAMPLE_SIZE; i += step) {
+      elements.add(Array.get(array, i));
+    }
+    return align(ARRAY_HEADER + (long) REFERENCE * length) + weighSample(elements, length, visited, depth);
+  }
+
+  private long weighSample(Collection<?> elements, int size, Map<Object, Object> visited, int depth) {
+    if (size == 0) {
+      return 0;
+    }
+    long weight = 0;
+    int sampled = 0;
+    if (elements instanceof List && elements instanceof RandomAccess) {
+      List<?> list = (List<?>) elements;
+      int step = Math.max(1, list.size() / SAMPLE_SIZE);
+      for (int i = 0; i < list.size() && sampled < SAMPLE_SIZE; i += step, sampled++) {
+        weight += weigh(list.get(i), visited, depth + 1);
+      }
+    } else {
+      Iterator<?> iterator = elements.iterator();
+      while (iterator.hasNext() && sampled < SAMPLE_SIZE) {
+        weight += weigh(iterator.next(), visited, depth + 1);
+        sampled++;
+      }
+    }
+    return sampled == 0 ? 0 : weight * size / sampled;
+  }
+
+  private static Field[] findFields(Class<?> type) {
+    if (isInternal(type)) {
+      return OPAQUE;
+    }
+    List<Field> result = new ArrayList<>();
+    for (Class<?> current = type; current != null && !isInternal(current); current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          try {
+            field.setAccessible(true);
+          } catch (RuntimeException e) {
+            return OPAQUE;
+          }
+          result.add(field);
+        }
+      }
+    }
+    return result.toArray(new Field[0]);
+  }
+
+  private static boolean isInternal(Class<?> type) {
+    String name = type.getName();
+    for (String prefix : INTERNAL_PACKAGES) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+}
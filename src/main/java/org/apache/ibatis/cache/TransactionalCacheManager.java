@@ -15,10 +15,18 @@
  */
 package org.apache.ibatis.cache;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidation;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.util.MapUtil;
 
 /**
@@ -27,6 +35,33 @@ import org.apache.ibatis.util.MapUtil;
 public class TransactionalCacheManager {
 
   private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<>();
+  private final CacheInvalidationBus invalidationBus;
+  private final CacheVersions versions;
+  private final Set<String> writtenTables = new LinkedHashSet<>();
+  private boolean pendingWrites;
+
+  public TransactionalCacheManager() {
+    this(null);
+  }
+
+  /**
+   * @param invalidationBus
+   *          publishes the caches cleared and the tables written by every commit to the other nodes, or null
+   */
+  public TransactionalCacheManager(CacheInvalidationBus invalidationBus) {
+    this(invalidationBus, null);
+  }
+
+  /**
+   * @param invalidationBus
+   *          publishes the caches cleared and the tables written by every commit to the other nodes, or null
+   * @param versions
+   *          the versions of the caches to use the versioned mode of {@link TransactionalCache}, or null
+   */
+  public TransactionalCacheManager(CacheInvalidationBus invalidationBus, CacheVersions versions) {
+    this.invalidationBus = invalidationBus;
+    this.versions = versions;
+  }
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
@@ -36,24 +71,65 @@ public class TransactionalCacheManager {
     return getTransactionalCache(cache).getObject(key);
   }
 
+  public Object getObject(Cache cache, CacheKey key, CacheLoader loader) throws SQLException {
+    return getTransactionalCache(cache).getObject(key, loader, !pendingWrites);
+  }
+
+  public Map<Object, Object> getObjects(Cache cache, Collection<CacheKey> keys) {
+    return getTransactionalCache(cache).getObjects(keys);
+  }
+
   public void putObject(Cache cache, CacheKey key, Object value) {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  /**
+   * Records that the transaction wrote, so its loads are no longer shared with other transactions until it ends.
+   */
+  public void addPendingWrites() {
+    pendingWrites = true;
+  }
+
+  /**
+   * Records tables written in the transaction, to be published when it commits.
+   *
+   * @param tables
+   *          the written tables
+   */
+  public void addWrittenTables(Collection<String> tables) {
+    if (invalidationBus != null) {
+      writtenTables.addAll(tables);
+    }
+  }
+
   public void commit() {
+    pendingWrites = false;
+    List<CacheInvalidation> invalidations = new ArrayList<>();
     for (TransactionalCache txCache : transactionalCaches.values()) {
+      if (invalidationBus != null && txCache.isClearOnCommit()) {
+        invalidations.add(CacheInvalidation.namespace(txCache.getId()));
+      }
       txCache.commit();
     }
+    if (!writtenTables.isEmpty()) {
+      invalidations.add(CacheInvalidation.tables(writtenTables));
+      writtenTables.clear();
+    }
+    for (CacheInvalidation invalidation : invalidations) {
+      invalidationBus.publish(invalidation);
+    }
   }
 
   public void rollback() {
+    pendingWrites = false;
+    writtenTables.clear();
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.rollback();
     }
   }
 
   private TransactionalCache getTransactionalCache(Cache cache) {
-    return MapUtil.computeIfAbsent(transactionalCaches, cache, TransactionalCache::new);
+    return MapUtil.computeIfAbsent(transactionalCaches, cache, k -> new TransactionalCache(k, versions));
   }
 
 }
@@ -0,0 +1,38 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Calculates the weight of cache entries, used to bound a cache by the memory its entries take instead of by their
+ * number.
+ * <p>
+ * Implementations must be thread safe and have a public no-arguments constructor.
+ *
+ * @see DefaultWeigher
+ */
+@FunctionalInterface
+public interface Weigher {
+
+  /**
+   * @param key
+   *          The key of the entry
+   * @param value
+   *          The value as stored by the cache, that is a byte array for read/write caches
+   * @return The estimated number of bytes taken by the entry, never negative
+   */
+  long weigh(Object key, Object value);
+
+}
@@ -15,12 +15,18 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 
 /**
  * <p>Simple blocking decorator
@@ -31,6 +37,10 @@ import org.apache.ibatis.cache.CacheException;
  *
  * <p>By its nature, this implementation can cause deadlock when used incorrectly.
  *
+ * <p>In single flight mode no lock is held between a miss and the later put. Instead concurrent misses on the same key
+ * that go through {@link #getObject(Object, CacheLoader)} share one in-flight load, and the threads waiting for it get
+ * its result as soon as it is loaded. When a serializer is set, every waiting thread gets its own copy of the result.
+ *
  * @author Eduardo Macarron
  *
  */
@@ -39,10 +49,14 @@ public class BlockingCache implements Cache {
   private long timeout;
   private final Cache delegate;
   private final ConcurrentHashMap<Object, CountDownLatch> locks;
+  private final ConcurrentHashMap<Object, Flight> flights;
+  private boolean singleFlight;
+  private CacheSerializer serializer;
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
     this.locks = new ConcurrentHashMap<>();
+    this.flights = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -55,8 +69,16 @@ public class BlockingCache implements Cache {
     return delegate.getSize();
   }
 
+  public Cache getDelegate() {
+    return delegate;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
+    if (singleFlight) {
+      delegate.putObject(key, value);
+      return;
+    }
     try {
       delegate.putObject(key, value);
     } finally {
@@ -66,6 +88,9 @@ public class BlockingCache implements Cache {
 
   @Override
   public Object getObject(Object key) {
+    if (singleFlight) {
+      return delegate.getObject(key);
+    }
     acquireLock(key);
     Object value = delegate.getObject(key);
     if (value != null) {
@@ -77,15 +102,92 @@ public class BlockingCache implements Cache {
   @Override
   public Object removeObject(Object key) {
     // despite its name, this method is called only to release locks
-    releaseLock(key);
+    if (!singleFlight) {
+      releaseLock(key);
+    }
     return null;
   }
 
+  /**
+   * Gets a value from the cache, or loads it on a miss. In single flight mode concurrent misses on the same key share
+   * one load, otherwise the key is locked until the loaded value is put.
+   *
+   * @param key
+   *          the key
+   * @param loader
+   *          loads the value on a miss
+   * @return the cached or loaded value
+   * @throws SQLException
+   *           if the value could not be loaded
+   */
+  public Object getObject(Object key, CacheLoader loader) throws SQLException {
+    Object value = getObject(key);
+    if (value != null) {
+      return value;
+    }
+    if (!singleFlight) {
+      value = loader.load();
+      putObject(key, value);
+      return value;
+    }
+    while (true) {
+      Flight flight = new Flight();
+      Flight inFlight = flights.putIfAbsent(key, flight);
+      if (inFlight == null) {
+        return load(key, flight, loader);
+      }
+      if (inFlight.addWaiter()) {
+        return await(key, inFlight, loader);
+      }
+      // the load just completed, so check the cache again before starting another one
+      value = delegate.getObject(key);
+      if (value != null) {
+        return value;
+      }
+    }
+  }
+
   @Override
   public void clear() {
     delegate.clear();
   }
 
+  private Object load(Object key, Flight flight, CacheLoader loader) throws SQLException {
+    Object value = null;
+    try {
+      value = delegate.getObject(key);
+      if (value == null) {
+        value = loader.load();
+      }
+      return value;
+    } catch (SQLException | RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+      if (!flight.isDone()) {
+        flight.complete(flight.close() && serializer != null && value != null ? serializer.serialize(value) : value);
+      }
+    }
+  }
+
+  private Object await(Object key, Flight flight, CacheLoader loader) throws SQLException {
+    Object value;
+    try {
+      value = timeout > 0 ? flight.get(timeout, TimeUnit.MILLISECONDS) : flight.get();
+    } catch (TimeoutException e) {
+      throw new CacheException(
+          "Couldn't get a result in " + timeout + " for the key " + key + " at the cache " + delegate.getId(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheException("Got interrupted while waiting for the result of key " + key, e);
+    } catch (ExecutionException e) {
+      // the load failed in the other thread, possibly for a reason of its own
+      return loader.load();
+    }
+    return serializer != null && value != null ? serializer.deserialize((byte[]) value) : value;
+  }
+
   private void acquireLock(Object key) {
     CountDownLatch newLatch = new CountDownLatch(1);
     while (true) {
@@ -124,4 +226,40 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  public boolean isSingleFlight() {
+    return singleFlight;
+  }
+
+  public void setSingleFlight(boolean singleFlight) {
+    this.singleFlight = singleFlight;
+  }
+
+  /**
+   * Sets the serializer used to copy a loaded value for every thread that waited for it.
+   *
+   * @param serializer
+   *          the serializer, or {@code null} to share the loaded value
+   */
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  private static class Flight extends CompletableFuture<Object> {
+    private int waiters;
+    private boolean closed;
+
+    synchronized boolean addWaiter() {
+      if (closed) {
+        return false;
+      }
+      waiters++;
+      return true;
+    }
+
+    synchronized boolean close() {
+      closed = true;
+      return waiters > 0;
+    }
+  }
 }
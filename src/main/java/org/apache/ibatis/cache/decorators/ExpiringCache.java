@@ -0,0 +1,202 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatsCounter;
+
+/**
+ * Per entry expiration decorator.
+ * <p>
+ * Every entry expires on its own once it has not been written for the write TTL or not been read for the access TTL.
+ * An optional random jitter is added to every write TTL, so entries cached at the same time do not all expire at the
+ * same time. Expired entries are removed lazily when they are read, and a few of the least recently used entries are
+ * checked on every write so that entries which are never read again do not stay around.
+ * <p>
+ * This decorator goes above the eviction decorator, so that removing an expired entry also frees its room there. The
+ * expiry of an entry evicted below is forgotten when it is read or expires.
+ */
+public class ExpiringCache implements Cache {
+
+  private static final int SWEEP_SIZE = 8;
+
+  private final Cache delegate;
+  private final Map<Object, Expiry> expiries;
+  private long expireAfterWrite;
+  private long expireAfterAccess;
+  private long jitter;
+  private CacheStatsCounter statsCounter;
+  private LongSupplier clock = System::currentTimeMillis;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+    this.expiries = new LinkedHashMap<>(16, .75F, true);
+  }
+
+  /**
+   * Sets the time to live of an entry after it was written. Zero disables the write TTL.
+   *
+   * @param expireAfterWrite
+   *          the time in milliseconds
+   */
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+  }
+
+  /**
+   * Sets the time to live of an entry after it was last read or written. Zero disables the access TTL.
+   *
+   * @param expireAfterAccess
+   *          the time in milliseconds
+   */
+  public void setExpireAfterAccess(long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+  }
+
+  /**
+   * Sets the maximum random time added to the write TTL of every entry.
+   *
+   * @param jitter
+   *          the time in milliseconds
+   */
+  public void setJitter(long jitter) {
+    this.jitter = jitter;
+  }
+
+  /**
+   * Sets the counters the evicted entries are recorded in.
+   *
+   * @param statsCounter
+   *          the counters of the cache
+   */
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  /**
+   * Sets the source of the current time, {@link System#currentTimeMillis()} by default.
+   *
+   * @param clock
+   *          returns the current time in milliseconds
+   */
+  public void setClock(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long now = clock.getAsLong();
+    sweep(now);
+    long writeDeadline = Long.MAX_VALUE;
+    if (expireAfterWrite > 0) {
+      writeDeadline = now + expireAfterWrite + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+    }
+    delegate.putObject(key, value);
+    expiries.put(key, new Expiry(writeDeadline, accessDeadline(now)));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Expiry expiry = expiries.get(key);
+    if (expiry != null) {
+      long now = clock.getAsLong();
+      if (expiry.isExpired(now)) {
+        if (removeObject(key) != null && statsCounter != null) {
+          statsCounter.recordEviction();
+        }
+        return null;
+      }
+      expiry.accessDeadline = accessDeadline(now);
+    }
+    Object value = delegate.getObject(key);
+    if (value == null && expiry != null) {
+      // evicted below
+      expiries.remove(key);
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    expiries.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    expiries.clear();
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private long accessDeadline(long now) {
+    return expireAfterAccess > 0 ? now + expireAfterAccess : Long.MAX_VALUE;
+  }
+
+  private void sweep(long now) {
+    // the least recently used entries come first
+    Iterator<Map.Entry<Object, Expiry>> iterator = expiries.entrySet().iterator();
+    for (int i = 0; i < SWEEP_SIZE && iterator.hasNext(); i++) {
+      Map.Entry<Object, Expiry> entry = iterator.next();
+      if (entry.getValue().isExpired(now)) {
+        iterator.remove();
+        if (delegate.removeObject(entry.getKey()) != null && statsCounter != null) {
+          statsCounter.recordEviction();
+        }
+      }
+    }
+  }
+
+  private static class Expiry {
+    private final long writeDeadline;
+    private long accessDeadline;
+
+    Expiry(long writeDeadline, long accessDeadline) {
+      this.writeDeadline = writeDeadline;
+      this.accessDeadline = accessDeadline;
+    }
+
+    boolean isExpired(long now) {
+      return now >= writeDeadline || now >= accessDeadline;
+    }
+  }
+
+}
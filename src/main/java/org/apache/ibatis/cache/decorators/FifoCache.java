@@ -15,10 +15,13 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatsCounter;
 
 /**
  * FIFO (first in, first out) cache decorator.
@@ -28,12 +31,14 @@ import org.apache.ibatis.cache.Cache;
 public class FifoCache implements Cache {
 
   private final Cache delegate;
-  private final Deque<Object> keyList;
+  private final Set<Object> keyList;
   private int size;
+  private CacheStatsCounter statsCounter;
+  private Consumer<Object> evictionListener;
 
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
-    this.keyList = new LinkedList<>();
+    this.keyList = new LinkedHashSet<>();
     this.size = 1024;
   }
 
@@ -51,6 +56,26 @@ public class FifoCache implements Cache {
     this.size = size;
   }
 
+  /**
+   * Sets the counters the evicted entries are recorded in.
+   *
+   * @param statsCounter
+   *          the counters of the cache
+   */
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  /**
+   * Sets the listener told about every evicted key, so that a decorator above can forget it.
+   *
+   * @param evictionListener
+   *          takes the evicted key
+   */
+  public void setEvictionListener(Consumer<Object> evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     cycleKeyList(key);
@@ -64,6 +89,7 @@ public class FifoCache implements Cache {
 
   @Override
   public Object removeObject(Object key) {
+    keyList.remove(key);
     return delegate.removeObject(key);
   }
 
@@ -74,10 +100,18 @@ public class FifoCache implements Cache {
   }
 
   private void cycleKeyList(Object key) {
-    keyList.addLast(key);
+    keyList.add(key);
     if (keyList.size() > size) {
-      Object oldestKey = keyList.removeFirst();
+      Iterator<Object> iterator = keyList.iterator();
+      Object oldestKey = iterator.next();
+      iterator.remove();
       delegate.removeObject(oldestKey);
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
+      if (evictionListener != null) {
+        evictionListener.accept(oldestKey);
+      }
     }
   }
 
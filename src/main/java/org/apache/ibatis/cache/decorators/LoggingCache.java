@@ -15,7 +15,12 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheStatsCounter;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -26,11 +31,25 @@ public class LoggingCache implements Cache {
 
   private final Log log;
   private final Cache delegate;
+  private final CacheStatsCounter statsCounter;
+  /**
+   * @deprecated Use {@link #getStats()} instead. Still counted for subclasses.
+   */
+  @Deprecated
   protected int requests = 0;
+  /**
+   * @deprecated Use {@link #getStats()} instead. Still counted for subclasses.
+   */
+  @Deprecated
   protected int hits = 0;
 
   public LoggingCache(Cache delegate) {
+    this(delegate, new CacheStatsCounter());
+  }
+
+  public LoggingCache(Cache delegate, CacheStatsCounter statsCounter) {
     this.delegate = delegate;
+    this.statsCounter = statsCounter;
     this.log = LogFactory.getLog(getId());
   }
 
@@ -47,6 +66,7 @@ public class LoggingCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     delegate.putObject(key, object);
+    statsCounter.recordPut();
   }
 
   @Override
@@ -55,6 +75,9 @@ public class LoggingCache implements Cache {
     final Object value = delegate.getObject(key);
     if (value != null) {
       hits++;
+      statsCounter.recordHit();
+    } else {
+      statsCounter.recordMiss();
     }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
@@ -62,6 +85,32 @@ public class LoggingCache implements Cache {
     return value;
   }
 
+  @Override
+  public void putObjects(Map<?, ?> objects) {
+    delegate.putObjects(objects);
+    for (int i = 0; i < objects.size(); i++) {
+      statsCounter.recordPut();
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getObjects(Collection<?> keys) {
+    final Map<Object, Object> objects = delegate.getObjects(keys);
+    for (Object key : keys) {
+      requests++;
+      if (objects.get(key) != null) {
+        hits++;
+        statsCounter.recordHit();
+      } else {
+        statsCounter.recordMiss();
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
+    }
+    return objects;
+  }
+
   @Override
   public Object removeObject(Object key) {
     return delegate.removeObject(key);
@@ -82,8 +131,17 @@ public class LoggingCache implements Cache {
     return delegate.equals(obj);
   }
 
+  public CacheStatsCounter getStatsCounter() {
+    return statsCounter;
+  }
+
+  public CacheStats getStats() {
+    return statsCounter.snapshot(getSize());
+  }
+
   private double getHitRatio() {
-    return (double) hits / (double) requests;
+    long hits = statsCounter.getHitCount();
+    return (double) hits / (double) (hits + statsCounter.getMissCount());
   }
 
 }
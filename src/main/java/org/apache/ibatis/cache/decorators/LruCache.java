@@ -17,8 +17,10 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatsCounter;
 
 /**
  * Lru (least recently used) cache decorator.
@@ -30,6 +32,8 @@ public class LruCache implements Cache {
   private final Cache delegate;
   private Map<Object, Object> keyMap;
   private Object eldestKey;
+  private CacheStatsCounter statsCounter;
+  private Consumer<Object> evictionListener;
 
   public LruCache(Cache delegate) {
     this.delegate = delegate;
@@ -61,6 +65,26 @@ public class LruCache implements Cache {
     };
   }
 
+  /**
+   * Sets the counters the evicted entries are recorded in.
+   *
+   * @param statsCounter
+   *          the counters of the cache
+   */
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  /**
+   * Sets the listener told about every evicted key, so that a decorator above can forget it.
+   *
+   * @param evictionListener
+   *          takes the evicted key
+   */
+  public void setEvictionListener(Consumer<Object> evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     delegate.putObject(key, value);
@@ -75,6 +99,7 @@ public class LruCache implements Cache {
 
   @Override
   public Object removeObject(Object key) {
+    keyMap.remove(key);
     return delegate.removeObject(key);
   }
 
@@ -87,8 +112,15 @@ public class LruCache implements Cache {
   private void cycleKeyList(Object key) {
     keyMap.put(key, key);
     if (eldestKey != null) {
-      delegate.removeObject(eldestKey);
+      Object evictedKey = eldestKey;
+      delegate.removeObject(evictedKey);
       eldestKey = null;
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
+      if (evictionListener != null) {
+        evictionListener.accept(evictedKey);
+      }
     }
   }
 
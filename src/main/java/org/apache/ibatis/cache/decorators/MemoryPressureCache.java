@@ -0,0 +1,170 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatsCounter;
+
+/**
+ * Memory pressure cache decorator.
+ * <p>
+ * Unlike {@link SoftCache} and {@link WeakCache}, which lose entries whenever the garbage collector clears their
+ * references, this cache keeps its entries until the heap is actually short of memory. A usage threshold is set on the
+ * heap pools that support one, and when a pool is still above it after a collection, the least recently used fraction of
+ * the entries is evicted. The thresholds are shared by the whole JVM, so the lowest one asked for by any cache is used.
+ *
+ * @see MemoryPressureMonitor
+ */
+public class MemoryPressureCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Object> keyMap;
+  private int size;
+  private double usageThreshold;
+  private double evictionFraction;
+  private CacheStatsCounter statsCounter;
+
+  public MemoryPressureCache(Cache delegate) {
+    this.delegate = delegate;
+    this.keyMap = new LinkedHashMap<>(16, .75F, true);
+    this.usageThreshold = 0.8;
+    this.evictionFraction = 0.25;
+    MemoryPressureMonitor.register(this);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * Sets the number of entries above which the least recently used one is evicted, also without memory pressure.
+   *
+   * @param size
+   *          the maximum number of entries, or 0 for no limit
+   */
+  public synchronized void setSize(int size) {
+    this.size = size;
+  }
+
+  public double getUsageThreshold() {
+    return usageThreshold;
+  }
+
+  /**
+   * Sets how full a heap pool must still be after a collection for entries to be evicted.
+   *
+   * @param usageThreshold
+   *          the fraction of the maximum size of the pool, between 0 and 1
+   */
+  public void setUsageThreshold(double usageThreshold) {
+    if (usageThreshold <= 0 || usageThreshold > 1) {
+      throw new IllegalArgumentException("The usage threshold must be between 0 and 1, but was " + usageThreshold);
+    }
+    this.usageThreshold = usageThreshold;
+    MemoryPressureMonitor.updateThresholds();
+  }
+
+  /**
+   * Sets the fraction of the entries evicted each time the heap is under pressure.
+   *
+   * @param evictionFraction
+   *          the fraction, between 0 and 1
+   */
+  public void setEvictionFraction(double evictionFraction) {
+    if (evictionFraction <= 0 || evictionFraction > 1) {
+      throw new IllegalArgumentException("The eviction fraction must be between 0 and 1, but was " + evictionFraction);
+    }
+    this.evictionFraction = evictionFraction;
+  }
+
+  /**
+   * Sets the counters the evicted entries are recorded in.
+   *
+   * @param statsCounter
+   *          the counters of the cache
+   */
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  @Override
+  public synchronized void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    keyMap.put(key, key);
+    if (size > 0 && keyMap.size() > size) {
+      evict(keyMap.size() - size);
+    }
+  }
+
+  @Override
+  public synchronized Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      // evicted or expired by the decorated cache
+      keyMap.remove(key);
+    } else {
+      keyMap.get(key); // touch
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized Object removeObject(Object key) {
+    keyMap.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public synchronized void clear() {
+    keyMap.clear();
+    delegate.clear();
+  }
+
+  /**
+   * Evicts the least recently used fraction of the entries, as done when the heap is under pressure.
+   *
+   * @return the number of entries evicted
+   */
+  public synchronized int evict() {
+    return evict((int) Math.ceil(keyMap.size() * evictionFraction));
+  }
+
+  private int evict(int count) {
+    int evicted = 0;
+    Iterator<Object> keys = keyMap.keySet().iterator();
+    while (evicted < count && keys.hasNext()) {
+      Object key = keys.next();
+      keys.remove();
+      delegate.removeObject(key);
+      evicted++;
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
+    }
+    return evicted;
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Turns the collection usage threshold notifications of the heap pools into evictions of the
+ * {@link MemoryPressureCache}s of the JVM.
+ * <p>
+ * The caches are held weakly, so a cache that is no longer used is forgotten. Only the pools that support both usage
+ * thresholds are watched, which are the old generation pools of the usual collectors.
+ */
+final class MemoryPressureMonitor {
+
+  private static final Log log = LogFactory.getLog(MemoryPressureMonitor.class);
+  private static final List<WeakReference<MemoryPressureCache>> caches = new CopyOnWriteArrayList<>();
+  private static boolean listening;
+
+  private MemoryPressureMonitor() {
+    // Prevent Instantiation
+  }
+
+  static synchronized void register(MemoryPressureCache cache) {
+    caches.add(new WeakReference<>(cache));
+    if (!listening) {
+      ((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+          .addNotificationListener((notification, handback) -> onNotification(notification), null, null);
+      listening = true;
+    }
+    updateThresholds();
+  }
+
+  static synchronized void updateThresholds() {
+    double threshold = 1;
+    for (WeakReference<MemoryPressureCache> reference : caches) {
+      MemoryPressureCache cache = reference.get();
+      if (cache == null) {
+        caches.remove(reference);
+      } else {
+        threshold = Math.min(threshold, cache.getUsageThreshold());
+      }
+    }
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (isWatched(pool)) {
+        long max = pool.getUsage().getMax();
+        if (max > 0) {
+          pool.setCollectionUsageThreshold((long) (max * threshold));
+        }
+      }
+    }
+  }
+
+  /**
+   * Evicts the entries of the caches whose threshold is exceeded by the given usage.
+   *
+   * @param usage
+   *          the usage of a heap pool after a collection
+   * @return the number of entries evicted
+   */
+  static int onMemoryPressure(MemoryUsage usage) {
+    if (usage.getMax() <= 0) {
+      return 0;
+    }
+    double ratio = (double) usage.getUsed() / usage.getMax();
+    int evicted = 0;
+    for (WeakReference<MemoryPressureCache> reference : caches) {
+      MemoryPressureCache cache = reference.get();
+      if (cache != null && ratio >= cache.getUsageThreshold()) {
+        evicted += cache.evict();
+      }
+    }
+    return evicted;
+  }
+
+  private static void onNotification(Notification notification) {
+    if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+      return;
+    }
+    MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+    try {
+      int evicted = onMemoryPressure(info.getUsage());
+      if (log.isDebugEnabled()) {
+        log.debug("Heap pool " + info.getPoolName() + " is still " + info.getUsage().getUsed() + " bytes used after a "
+            + "collection, evicted " + evicted + " cache entries");
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not evict cache entries under memory pressure. Cause: " + e);
+    }
+  }
+
+  private static boolean isWatched(MemoryPoolMXBean pool) {
+    return pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+        && pool.isCollectionUsageThresholdSupported();
+  }
+
+}
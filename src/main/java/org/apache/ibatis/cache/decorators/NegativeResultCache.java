@@ -0,0 +1,223 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatsCounter;
+
+/**
+ * Negative result decorator.
+ * <p>
+ * Empty results, which is what a select returning no row or a {@code selectOne} returning null is cached as, are kept
+ * apart from the decorated cache with their own time to live and size. So lookups of absent keys can be cached for a
+ * short time without evicting real results or staying around as long as them. A new empty list is returned on every
+ * hit, so callers can never change the cached result.
+ */
+public class NegativeResultCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Long> negatives;
+  private long negativeTtl;
+  private int negativeSize;
+  private CacheStatsCounter statsCounter;
+
+  public NegativeResultCache(Cache delegate) {
+    this.delegate = delegate;
+    this.negativeSize = 1024;
+    this.negatives = new LinkedHashMap<Object, Long>(16, .75F, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+        boolean tooBig = size() > negativeSize;
+        if (tooBig && statsCounter != null) {
+          statsCounter.recordEviction();
+        }
+        return tooBig;
+      }
+    };
+  }
+
+  /**
+   * Sets the time to live of an empty result. Zero keeps it until it is evicted, removed or the cache is cleared.
+   *
+   * @param negativeTtl
+   *          the time in milliseconds
+   */
+  public void setNegativeTtl(long negativeTtl) {
+    this.negativeTtl = negativeTtl;
+  }
+
+  public long getNegativeTtl() {
+    return negativeTtl;
+  }
+
+  /**
+   * Sets the maximum number of empty results kept. The least recently used ones are evicted first.
+   *
+   * @param negativeSize
+   *          the number of entries
+   */
+  public void setNegativeSize(int negativeSize) {
+    this.negativeSize = negativeSize;
+  }
+
+  public int getNegativeSize() {
+    return negativeSize;
+  }
+
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  public synchronized int getNegativeCount() {
+    return negatives.size();
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize() + getNegativeCount();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (isNegative(value)) {
+      // an older real result of the same key must not be returned any more
+      delegate.removeObject(key);
+      synchronized (this) {
+        negatives.put(key, negativeTtl > 0 ? System.currentTimeMillis() + negativeTtl : Long.MAX_VALUE);
+      }
+    } else {
+      synchronized (this) {
+        negatives.remove(key);
+      }
+      delegate.putObject(key, value);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    synchronized (this) {
+      Boolean negative = getNegative(key, System.currentTimeMillis());
+      if (negative != null) {
+        return negative ? new ArrayList<>() : null;
+      }
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public void putObjects(Map<?, ?> objects) {
+    Map<Object, Object> positives = new HashMap<>();
+    for (Map.Entry<?, ?> entry : objects.entrySet()) {
+      if (isNegative(entry.getValue())) {
+        putObject(entry.getKey(), entry.getValue());
+      } else {
+        positives.put(entry.getKey(), entry.getValue());
+      }
+    }
+    synchronized (this) {
+      negatives.keySet().removeAll(positives.keySet());
+    }
+    delegate.putObjects(positives);
+  }
+
+  @Override
+  public Map<Object, Object> getObjects(Collection<?> keys) {
+    Map<Object, Object> objects = new HashMap<>();
+    List<Object> others = new ArrayList<>();
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      for (Object key : keys) {
+        Boolean negative = getNegative(key, now);
+        if (negative == null) {
+          others.add(key);
+        } else if (negative) {
+          objects.put(key, new ArrayList<>());
+        }
+      }
+    }
+    if (!others.isEmpty()) {
+      objects.putAll(delegate.getObjects(others));
+    }
+    return objects;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    synchronized (this) {
+      if (negatives.remove(key) != null) {
+        return new ArrayList<>();
+      }
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this) {
+      negatives.clear();
+    }
+    delegate.clear();
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  /**
+   * Looks a key up in the empty results.
+   *
+   * @return true if an empty result is cached, false if it just expired, null if none was cached
+   */
+  private Boolean getNegative(Object key, long now) {
+    Long deadline = negatives.get(key);
+    if (deadline == null) {
+      return null;
+    }
+    if (now < deadline) {
+      return Boolean.TRUE;
+    }
+    negatives.remove(key);
+    if (statsCounter != null) {
+      statsCounter.recordEviction();
+    }
+    return Boolean.FALSE;
+  }
+
+  private static boolean isNegative(Object value) {
+    return value instanceof List && ((List<?>) value).isEmpty();
+  }
+
+}
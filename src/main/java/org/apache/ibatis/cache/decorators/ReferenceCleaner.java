@@ -0,0 +1,73 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Removes the entries of {@link SoftCache} and {@link WeakCache} whose values were garbage collected.
+ * <p>
+ * The entries of all the caches share one reference queue, which a daemon thread waits on. The caches therefore do not
+ * poll a queue on every call, and entries are removed as soon as they are collected, also from caches that are not
+ * read or written at the time.
+ */
+final class ReferenceCleaner {
+
+  private static final Log log = LogFactory.getLog(ReferenceCleaner.class);
+  static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+  static {
+    Thread thread = new Thread(ReferenceCleaner::drain, "mybatis-cache-reference-cleaner");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private ReferenceCleaner() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * A reference to a cached value, enqueued on {@link ReferenceCleaner#QUEUE}.
+   */
+  interface CollectedEntry {
+
+    /**
+     * Removes the entry from its cache, unless it was replaced in the meantime.
+     */
+    void expunge();
+  }
+
+  private static void drain() {
+    while (true) {
+      try {
+        Reference<?> reference = QUEUE.remove();
+        if (reference instanceof CollectedEntry) {
+          ((CollectedEntry) reference).expunge();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.warn("Could not remove a garbage collected cache entry. Cause: " + e);
+      }
+    }
+  }
+
+}
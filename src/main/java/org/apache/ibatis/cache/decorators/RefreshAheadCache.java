@@ -0,0 +1,243 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Refresh-ahead (stale-while-revalidate) decorator.
+ * <p>
+ * Once an entry is older than the refresh time it is still returned, and a reload is started in the background. The
+ * reloaded value replaces the stale one when it is ready, unless the entry was removed or the cache was cleared in the
+ * meantime. Only entries that got a loader through {@link #prepareRefresh(Object, CacheLoader, Executor)} before they
+ * were put are refreshed; the others behave as in the decorated cache. At most one reload per entry runs at a time.
+ *
+ * @see org.apache.ibatis.executor.CachingExecutor
+ */
+public class RefreshAheadCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(RefreshAheadCache.class);
+  private static final int SLACK = 64;
+  private static final int MAX_PENDING = 1024;
+
+  private final Cache delegate;
+  private final Map<Object, Entry> entries;
+  private final Map<Object, Entry> pending;
+  private long refreshAfterWrite;
+
+  public RefreshAheadCache(Cache delegate) {
+    this.delegate = delegate;
+    this.entries = new LinkedHashMap<>();
+    this.pending = new LinkedHashMap<>();
+    this.refreshAfterWrite = 60000;
+  }
+
+  /**
+   * Sets the time after which an entry is served stale and reloaded in the background.
+   *
+   * @param refreshAfterWrite
+   *          the time in milliseconds
+   */
+  public void setRefreshAfterWrite(long refreshAfterWrite) {
+    this.refreshAfterWrite = refreshAfterWrite;
+  }
+
+  public long getRefreshAfterWrite() {
+    return refreshAfterWrite;
+  }
+
+  public Cache getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * Registers how to reload the value that is about to be put for a key.
+   *
+   * @param key
+   *          the key
+   * @param loader
+   *          loads a fresh value, or returns null when the value cannot be reloaded any more
+   * @param executor
+   *          runs the reloads, or null to use a shared pool of daemon threads
+   */
+  public void prepareRefresh(Object key, CacheLoader loader, Executor executor) {
+    Entry prepared = new Entry(0, loader, executor == null ? DefaultExecutorHolder.EXECUTOR : executor);
+    synchronized (pending) {
+      // the oldest come first
+      pending.remove(key);
+      pending.put(key, prepared);
+      Iterator<Object> keys = pending.keySet().iterator();
+      while (pending.size() > MAX_PENDING && keys.hasNext()) {
+        // values of rolled back sessions are never put, so the oldest loaders are dropped eventually
+        keys.next();
+        keys.remove();
+      }
+    }
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    Entry prepared = removePending(key);
+    synchronized (this) {
+      entries.remove(key);
+      if (prepared != null) {
+        entries.put(key, new Entry(System.currentTimeMillis(), prepared.loader, prepared.executor));
+        trim();
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    Entry entry;
+    synchronized (this) {
+      if (value == null) {
+        entries.remove(key);
+        return null;
+      }
+      entry = entries.get(key);
+      if (entry == null || entry.refreshing || System.currentTimeMillis() - entry.loadedAt < refreshAfterWrite) {
+        return value;
+      }
+      entry.refreshing = true;
+    }
+    try {
+      entry.executor.execute(() -> refresh(key, entry));
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        entry.refreshing = false;
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    removePending(key);
+    synchronized (this) {
+      entries.remove(key);
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public synchronized void clear() {
+    synchronized (pending) {
+      pending.clear();
+    }
+    entries.clear();
+    delegate.clear();
+  }
+
+  private void refresh(Object key, Entry entry) {
+    Object value;
+    try {
+      value = entry.loader.load();
+    } catch (Throwable e) {
+      log.warn("Could not refresh an entry of cache " + getId() + ". Cause: " + e);
+      synchronized (this) {
+        if (entries.get(key) == entry) {
+          // try again after another refresh period instead of on every read
+          entries.put(key, new Entry(System.currentTimeMillis(), entry.loader, entry.executor));
+        }
+      }
+      return;
+    }
+    synchronized (this) {
+      if (entries.get(key) != entry) {
+        // removed, replaced or cleared while reloading
+        return;
+      }
+      if (value == null) {
+        entries.remove(key);
+        return;
+      }
+      delegate.putObject(key, value);
+      entries.put(key, new Entry(System.currentTimeMillis(), entry.loader, entry.executor));
+    }
+  }
+
+  private Entry removePending(Object key) {
+    synchronized (pending) {
+      return pending.remove(key);
+    }
+  }
+
+  private void trim() {
+    // entries evicted by the decorated cache are never removed here, so drop the oldest ones once there are too many
+    int max = delegate.getSize() + SLACK;
+    Iterator<Object> keys = entries.keySet().iterator();
+    while (entries.size() > max && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+
+  private static class Entry {
+    private final long loadedAt;
+    private final CacheLoader loader;
+    private final Executor executor;
+    private boolean refreshing;
+
+    Entry(long loadedAt, CacheLoader loader, Executor executor) {
+      this.loadedAt = loadedAt;
+      this.loader = loader;
+      this.executor = executor;
+    }
+  }
+
+  private static class DefaultExecutorHolder {
+    private static final Executor EXECUTOR = newDefaultExecutor();
+
+    private static Executor newDefaultExecutor() {
+      AtomicInteger count = new AtomicInteger();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(MAX_PENDING), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-cache-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+
+}
@@ -0,0 +1,337 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Snapshot decorator.
+ * <p>
+ * Keeps track of the keys put, so the cached entries can be saved when the application stops, and takes the entries
+ * of a saved snapshot back. Restored values stay serialized in the snapshot, usually a memory mapped file, and are only
+ * deserialized and put into the decorated cache when they are read for the first time. Clearing the cache also drops
+ * the restored entries that were not read yet.
+ * <p>
+ * The time every entry was written is saved along with it. When the cache expires entries after they were written,
+ * restored entries keep their original write time: the ones already expired are not restored, and the others expire
+ * when they would have without the restart.
+ *
+ * @see org.apache.ibatis.session.Configuration#saveCacheSnapshot()
+ */
+public class SnapshotCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(SnapshotCache.class);
+  private static final int SLACK = 64;
+
+  private final Cache delegate;
+  private final Map<Object, Long> keys;
+  private final Map<Object, Restored> restored;
+  private final Map<Object, Long> restoredDeadlines;
+  private CacheSerializer serializer;
+  private long expireAfterWrite;
+  private long writeCount;
+
+  public SnapshotCache(Cache delegate) {
+    this.delegate = delegate;
+    this.keys = new LinkedHashMap<>(16, .75F, true);
+    this.restored = new LinkedHashMap<>();
+    this.restoredDeadlines = new HashMap<>();
+    this.serializer = new JavaSerializer();
+  }
+
+  /**
+   * Sets how values are serialized in a snapshot.
+   *
+   * @param serializer
+   *          the serializer
+   */
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  /**
+   * Sets the time to live of an entry after it was written, so restored entries expire at their original time. Zero
+   * disables it.
+   *
+   * @param expireAfterWrite
+   *          the time in milliseconds
+   */
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+  }
+
+  public Cache getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * Adds an entry of a saved snapshot. It is only deserialized when it is read.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the serialized value; it must not change any more
+   * @param writtenAt
+   *          the time the entry was written, in milliseconds since the epoch
+   * @return false if the entry already expired, so it was not restored
+   */
+  public synchronized boolean restore(Object key, ByteBuffer value, long writtenAt) {
+    if (deadline(writtenAt) <= System.currentTimeMillis()) {
+      return false;
+    }
+    restored.put(key, new Restored(value, writtenAt));
+    return true;
+  }
+
+  /**
+   * Passes every cached entry that can be serialized, and every restored entry that was not read yet, to a consumer.
+   *
+   * @param consumer
+   *          takes the key, the serialized value and the write time of each entry
+   */
+  public void snapshot(EntryConsumer consumer) {
+    Map<Object, Long> cachedKeys;
+    Map<Object, Restored> restoredEntries;
+    synchronized (this) {
+      cachedKeys = new LinkedHashMap<>(keys);
+      restoredEntries = new LinkedHashMap<>(restored);
+    }
+    for (Map.Entry<Object, Restored> entry : restoredEntries.entrySet()) {
+      consumer.accept(entry.getKey(), toBytes(entry.getValue().value), entry.getValue().writtenAt);
+    }
+    for (Map.Entry<Object, Long> entry : cachedKeys.entrySet()) {
+      Object value = delegate.getObject(entry.getKey());
+      if (value != null && !restoredEntries.containsKey(entry.getKey())) {
+        byte[] bytes;
+        try {
+          bytes = serializer.serialize(value);
+        } catch (CacheException e) {
+          log.debug("Skipped an entry of cache " + getId() + " that cannot be serialized. Cause: " + e);
+          continue;
+        }
+        consumer.accept(entry.getKey(), bytes, entry.getValue());
+      }
+    }
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    int restoredSize;
+    synchronized (this) {
+      restoredSize = restored.size();
+    }
+    return delegate.getSize() + restoredSize;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    synchronized (this) {
+      writeCount++;
+      restored.remove(key);
+      restoredDeadlines.remove(key);
+      if (value != null) {
+        keys.put(key, System.currentTimeMillis());
+        trim();
+      }
+    }
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value != null) {
+      synchronized (this) {
+        keys.get(key);
+        if (isExpired(key)) {
+          value = null;
+        }
+      }
+      if (value == null) {
+        removeObject(key);
+      }
+      return value;
+    }
+    return restore(key);
+  }
+
+  @Override
+  public void putObjects(Map<?, ?> objects) {
+    synchronized (this) {
+      writeCount++;
+      long now = System.currentTimeMillis();
+      for (Map.Entry<?, ?> entry : objects.entrySet()) {
+        restored.remove(entry.getKey());
+        restoredDeadlines.remove(entry.getKey());
+        if (entry.getValue() != null) {
+          keys.put(entry.getKey(), now);
+        }
+      }
+      trim();
+    }
+    delegate.putObjects(objects);
+  }
+
+  @Override
+  public Map<Object, Object> getObjects(Collection<?> keys) {
+    Map<Object, Object> objects = new HashMap<>(delegate.getObjects(keys));
+    List<Object> missed = new ArrayList<>();
+    List<Object> expired = new ArrayList<>();
+    synchronized (this) {
+      for (Object key : keys) {
+        if (objects.get(key) != null) {
+          this.keys.get(key);
+          if (isExpired(key)) {
+            expired.add(key);
+          }
+        } else if (restored.containsKey(key)) {
+          missed.add(key);
+        }
+      }
+    }
+    for (Object key : expired) {
+      objects.remove(key);
+      removeObject(key);
+    }
+    for (Object key : missed) {
+      Object value = restore(key);
+      if (value != null) {
+        objects.put(key, value);
+      }
+    }
+    return objects;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    synchronized (this) {
+      writeCount++;
+      keys.remove(key);
+      restored.remove(key);
+      restoredDeadlines.remove(key);
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this) {
+      writeCount++;
+      keys.clear();
+      restored.clear();
+      restoredDeadlines.clear();
+    }
+    delegate.clear();
+  }
+
+  private Object restore(Object key) {
+    Object value;
+    Restored serialized;
+    long expectedWriteCount;
+    synchronized (this) {
+      serialized = restored.remove(key);
+      if (serialized == null || deadline(serialized.writtenAt) <= System.currentTimeMillis()) {
+        return null;
+      }
+      expectedWriteCount = writeCount;
+    }
+    try {
+      value = serializer.deserialize(toBytes(serialized.value));
+    } catch (CacheException e) {
+      log.warn("Could not restore an entry of cache " + getId() + ". Cause: " + e);
+      return null;
+    }
+    synchronized (this) {
+      if (writeCount == expectedWriteCount) {
+        // nothing was put, removed or cleared while deserializing, so the restored value is still current
+        keys.put(key, serialized.writtenAt);
+        trim();
+        delegate.putObject(key, value);
+        if (expireAfterWrite > 0) {
+          // the decorated cache counts its time to live from now
+          restoredDeadlines.put(key, deadline(serialized.writtenAt));
+        }
+      }
+    }
+    return value;
+  }
+
+  private long deadline(long writtenAt) {
+    return expireAfterWrite > 0 ? writtenAt + expireAfterWrite : Long.MAX_VALUE;
+  }
+
+  private boolean isExpired(Object key) {
+    Long deadline = restoredDeadlines.get(key);
+    return deadline != null && deadline <= System.currentTimeMillis();
+  }
+
+  private void trim() {
+    // keys evicted by the decorated cache are never removed here, so drop the least recently used ones once there are
+    // too many
+    int max = delegate.getSize() + SLACK;
+    Iterator<Object> iterator = keys.keySet().iterator();
+    while (keys.size() > max && iterator.hasNext()) {
+      restoredDeadlines.remove(iterator.next());
+      iterator.remove();
+    }
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Takes the entries of a snapshot.
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+
+    void accept(Object key, byte[] value, long writtenAt);
+
+  }
+
+  private static class Restored {
+    private final ByteBuffer value;
+    private final long writtenAt;
+
+    Restored(ByteBuffer value, long writtenAt) {
+      this.value = value;
+      this.writtenAt = writtenAt;
+    }
+  }
+
+}
@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.apache.ibatis.cache.Cache;
 
 /**
@@ -48,6 +51,16 @@ public class SynchronizedCache implements Cache {
     return delegate.getObject(key);
   }
 
+  @Override
+  public synchronized void putObjects(Map<?, ?> objects) {
+    delegate.putObjects(objects);
+  }
+
+  @Override
+  public synchronized Map<Object, Object> getObjects(Collection<?> keys) {
+    return delegate.getObjects(keys);
+  }
+
   @Override
   public synchronized Object removeObject(Object key) {
     return delegate.removeObject(key);
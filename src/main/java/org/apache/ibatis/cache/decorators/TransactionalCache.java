@@ -15,12 +15,18 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.cache.CacheVersions;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -31,6 +37,9 @@ import org.apache.ibatis.logging.LogFactory;
  * Entries are sent to the cache when commit is called or discarded if the Session is rolled back.
  * Blocking cache support has been added. Therefore any get() that returns a cache miss
  * will be followed by a put() so any lock associated with the key can be released.
+ * <p>
+ * In versioned mode the transaction also reads the entries it is going to add, even after it cleared the cache, and
+ * does not add them when another transaction cleared the cache after it first read it.
  *
  * @author Clinton Begin
  * @author Eduardo Macarron
@@ -43,12 +52,26 @@ public class TransactionalCache implements Cache {
   private boolean clearOnCommit;
   private final Map<Object, Object> entriesToAddOnCommit;
   private final Set<Object> entriesMissedInCache;
+  private final Set<Object> entriesMissedInBulk;
+  private final AtomicLong version;
+  private long readVersion;
 
   public TransactionalCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param versions
+   *          the versions of the caches, or null to not use the versioned mode
+   */
+  public TransactionalCache(Cache delegate, CacheVersions versions) {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
     this.entriesMissedInCache = new HashSet<>();
+    this.entriesMissedInBulk = new HashSet<>();
+    this.version = versions == null ? null : versions.of(delegate);
+    this.readVersion = -1;
   }
 
   @Override
@@ -63,6 +86,17 @@ public class TransactionalCache implements Cache {
 
   @Override
   public Object getObject(Object key) {
+    if (version != null) {
+      Object object = entriesToAddOnCommit.get(key);
+      if (object != null) {
+        return object;
+      }
+      recordReadVersion();
+    }
+    if (entriesMissedInBulk.remove(key)) {
+      // just missed by getObjects(), so the key is about to be loaded
+      return null;
+    }
     // issue #116
     Object object = delegate.getObject(key);
     if (object == null) {
@@ -76,6 +110,108 @@ public class TransactionalCache implements Cache {
     }
   }
 
+  /**
+   * Gets several values from the cache with one call to the delegate. The next {@link #getObject(Object)} of a key
+   * that was missed returns null without asking the delegate again.
+   *
+   * @param keys
+   *          the keys
+   * @return the cached values by key
+   */
+  @Override
+  public Map<Object, Object> getObjects(Collection<?> keys) {
+    Map<Object, Object> pendingObjects = Collections.emptyMap();
+    if (version != null) {
+      pendingObjects = new HashMap<>();
+      for (Object key : keys) {
+        Object object = entriesToAddOnCommit.get(key);
+        if (object != null) {
+          pendingObjects.put(key, object);
+        }
+      }
+      if (pendingObjects.size() == keys.size()) {
+        return pendingObjects;
+      }
+      if (!pendingObjects.isEmpty()) {
+        Set<Object> otherKeys = new HashSet<>(keys);
+        otherKeys.removeAll(pendingObjects.keySet());
+        keys = otherKeys;
+      }
+      recordReadVersion();
+    }
+    Map<Object, Object> objects = delegate.getObjects(keys);
+    for (Object key : keys) {
+      if (objects.get(key) == null) {
+        entriesMissedInCache.add(key);
+        entriesMissedInBulk.add(key);
+      }
+    }
+    // issue #146
+    if (clearOnCommit) {
+      return pendingObjects;
+    } else if (pendingObjects.isEmpty()) {
+      return objects;
+    } else {
+      pendingObjects.putAll(objects);
+      return pendingObjects;
+    }
+  }
+
+  /**
+   * Gets a value from the cache, or loads it on a miss and adds it to the cache on commit. When the delegate is a
+   * single flight {@link BlockingCache}, the load is shared with other transactions missing the same key, unless this
+   * transaction is going to clear the cache.
+   *
+   * @param key
+   *          the key
+   * @param loader
+   *          loads the value on a miss
+   * @return the cached or loaded value
+   * @throws SQLException
+   *           if the value could not be loaded
+   */
+  public Object getObject(Object key, CacheLoader loader) throws SQLException {
+    return getObject(key, loader, true);
+  }
+
+  /**
+   * Gets a value from the cache, or loads it on a miss and adds it to the cache on commit.
+   *
+   * @param key
+   *          the key
+   * @param loader
+   *          loads the value on a miss
+   * @param shareLoad
+   *          false when the transaction has written, so its load may see uncommitted data, and must neither be shared
+   *          with other transactions nor take the load of another one
+   * @return the cached or loaded value
+   * @throws SQLException
+   *           if the value could not be loaded
+   */
+  public Object getObject(Object key, CacheLoader loader, boolean shareLoad) throws SQLException {
+    if (version != null) {
+      Object object = entriesToAddOnCommit.get(key);
+      if (object != null) {
+        return object;
+      }
+      recordReadVersion();
+    }
+    if (!shareLoad || clearOnCommit || !(delegate instanceof BlockingCache)
+        || !((BlockingCache) delegate).isSingleFlight()) {
+      Object object = getObject(key);
+      if (object == null) {
+        object = loader.load();
+        putObject(key, object);
+      }
+      return object;
+    }
+    return ((BlockingCache) delegate).getObject(key, () -> {
+      Object object = loader.load();
+      putObject(key, object);
+      return object;
+    });
+  }
+
   @Override
   public void putObject(Object key, Object object) {
     entriesToAddOnCommit.put(key, object);
@@ -92,11 +228,36 @@ public class TransactionalCache implements Cache {
     entriesToAddOnCommit.clear();
   }
 
+  /**
+   * Tells whether the cache is cleared when the transaction commits.
+   *
+   * @return true if cleared
+   */
+  public boolean isClearOnCommit() {
+    return clearOnCommit;
+  }
+
   public void commit() {
-    if (clearOnCommit) {
-      delegate.clear();
+    if (version == null) {
+      if (clearOnCommit) {
+        delegate.clear();
+      }
+      flushPendingEntries();
+    } else {
+      synchronized (version) {
+        boolean stale = readVersion != -1 && readVersion != version.get();
+        if (clearOnCommit) {
+          delegate.clear();
+          version.incrementAndGet();
+        }
+        if (stale) {
+          // loaded before another transaction cleared the cache, so possibly from the data the clear was meant to drop
+          unlockMissedEntries();
+        } else {
+          flushPendingEntries();
+        }
+      }
     }
-    flushPendingEntries();
     reset();
   }
 
@@ -109,16 +270,24 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    entriesMissedInBulk.clear();
+    readVersion = -1;
   }
 
-  private void flushPendingEntries() {
-    for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
+  private void recordReadVersion() {
+    if (readVersion == -1) {
+      readVersion = version.get();
     }
+  }
+
+  private void flushPendingEntries() {
+    // one call to the delegate, with null values to release the locks of the missed entries that were not loaded
+    Map<Object, Object> entries = new HashMap<>(entriesToAddOnCommit);
     for (Object entry : entriesMissedInCache) {
-      if (!entriesToAddOnCommit.containsKey(entry)) {
-        delegate.putObject(entry, null);
-      }
+      entries.putIfAbsent(entry, null);
+    }
+    if (!entries.isEmpty()) {
+      delegate.putObjects(entries);
     }
   }
 
@@ -15,7 +15,6 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.Deque;
 import java.util.LinkedList;
@@ -25,12 +24,13 @@ import org.apache.ibatis.cache.Cache;
 /**
  * Weak Reference cache decorator.
  * Thanks to Dr. Heinz Kabutz for his guidance here.
+ * <p>
+ * Entries whose values were garbage collected are removed in the background by {@link ReferenceCleaner}.
  *
  * @author Clinton Begin
  */
 public class WeakCache implements Cache {
   private final Deque<Object> hardLinksToAvoidGarbageCollection;
-  private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
 
@@ -38,7 +38,6 @@ public class WeakCache implements Cache {
     this.delegate = delegate;
     this.numberOfHardLinks = 256;
     this.hardLinksToAvoidGarbageCollection = new LinkedList<>();
-    this.queueOfGarbageCollectedEntries = new ReferenceQueue<>();
   }
 
   @Override
@@ -47,8 +46,7 @@ public class WeakCache implements Cache {
   }
 
   @Override
-  public int getSize() {
-    removeGarbageCollectedItems();
+  public synchronized int getSize() {
     return delegate.getSize();
   }
 
@@ -57,13 +55,12 @@ public class WeakCache implements Cache {
   }
 
   @Override
-  public void putObject(Object key, Object value) {
-    removeGarbageCollectedItems();
-    delegate.putObject(key, new WeakEntry(key, value, queueOfGarbageCollectedEntries));
+  public synchronized void putObject(Object key, Object value) {
+    delegate.putObject(key, new WeakEntry(key, value, this));
   }
 
   @Override
-  public Object getObject(Object key) {
+  public synchronized Object getObject(Object key) {
     Object result = null;
     @SuppressWarnings("unchecked") // assumed delegate cache is totally managed by this cache
     WeakReference<Object> weakReference = (WeakReference<Object>) delegate.getObject(key);
@@ -84,35 +81,39 @@ public class WeakCache implements Cache {
   }
 
   @Override
-  public Object removeObject(Object key) {
-    removeGarbageCollectedItems();
+  public synchronized Object removeObject(Object key) {
     @SuppressWarnings("unchecked")
     WeakReference<Object> weakReference = (WeakReference<Object>) delegate.removeObject(key);
     return weakReference == null ? null : weakReference.get();
   }
 
   @Override
-  public void clear() {
+  public synchronized void clear() {
     synchronized (hardLinksToAvoidGarbageCollection) {
       hardLinksToAvoidGarbageCollection.clear();
     }
-    removeGarbageCollectedItems();
     delegate.clear();
   }
 
-  private void removeGarbageCollectedItems() {
-    WeakEntry sv;
-    while ((sv = (WeakEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-      delegate.removeObject(sv.key);
+  private synchronized void expunge(Object key, WeakEntry entry) {
+    if (delegate.getObject(key) == entry) {
+      delegate.removeObject(key);
     }
   }
 
-  private static class WeakEntry extends WeakReference<Object> {
+  private static class WeakEntry extends WeakReference<Object> implements ReferenceCleaner.CollectedEntry {
     private final Object key;
+    private final WeakCache cache;
 
-    private WeakEntry(Object key, Object value, ReferenceQueue<Object> garbageCollectionQueue) {
-      super(value, garbageCollectionQueue);
+    private WeakEntry(Object key, Object value, WeakCache cache) {
+      super(value, ReferenceCleaner.QUEUE);
       this.key = key;
+      this.cache = cache;
+    }
+
+    @Override
+    public void expunge() {
+      cache.expunge(key, this);
     }
   }
 
@@ -0,0 +1,162 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatsCounter;
+import org.apache.ibatis.cache.DefaultWeigher;
+import org.apache.ibatis.cache.Weigher;
+
+/**
+ * Weight bounded cache decorator.
+ * <p>
+ * Keeps the total weight of the entries, as calculated by a {@link Weigher}, below a maximum by removing the least
+ * recently used entries. An entry heavier than the maximum on its own is not cached at all.
+ * <p>
+ * This decorator goes above the eviction decorator, so that the entries it rejects or evicts do not take its room. The
+ * eviction decorator reports its own evictions through {@link #evicted(Object)}, and the weight of an entry dropped
+ * below without a report is forgotten when it is read.
+ */
+public class WeightedCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Long> weights;
+  private Weigher weigher;
+  private long maxWeightBytes;
+  private long totalWeight;
+  private CacheStatsCounter statsCounter;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+    this.weights = new LinkedHashMap<>(16, .75F, true);
+    this.weigher = new DefaultWeigher();
+    this.maxWeightBytes = 64L * 1024 * 1024;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setMaxWeightBytes(long maxWeightBytes) {
+    this.maxWeightBytes = maxWeightBytes;
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Sets the counters the evicted entries are recorded in.
+   *
+   * @param statsCounter
+   *          the counters of the cache
+   */
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  /**
+   * @return The sum of the weights of the cached entries.
+   */
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * Forgets the weight of an entry that was evicted by the decorated cache.
+   *
+   * @param key
+   *          the evicted key
+   */
+  public void evicted(Object key) {
+    removeWeight(key);
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long weight = weigher.weigh(key, value);
+    removeWeight(key);
+    if (weight > maxWeightBytes) {
+      delegate.removeObject(key);
+      return;
+    }
+    delegate.putObject(key, value);
+    weights.put(key, weight);
+    totalWeight += weight;
+    Iterator<Map.Entry<Object, Long>> eldest = weights.entrySet().iterator();
+    while (totalWeight > maxWeightBytes) {
+      Map.Entry<Object, Long> entry = eldest.next();
+      eldest.remove();
+      totalWeight -= entry.getValue();
+      delegate.removeObject(entry.getKey());
+      if (statsCounter != null) {
+        statsCounter.recordEviction();
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Long weight = weights.get(key); // touch
+    Object value = delegate.getObject(key);
+    if (value == null && weight != null) {
+      // dropped below
+      removeWeight(key);
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    removeWeight(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    weights.clear();
+    totalWeight = 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private void removeWeight(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      totalWeight -= weight;
+    }
+  }
+
+}
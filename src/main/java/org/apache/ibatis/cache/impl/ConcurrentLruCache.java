@@ -0,0 +1,315 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStatsCounter;
+import org.apache.ibatis.cache.DefaultWeigher;
+import org.apache.ibatis.cache.Weigher;
+
+/**
+ * Thread safe and size bounded cache that does not need to be wrapped by a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}.
+ * <p>
+ * Entries are spread over lock striped segments. Every segment holds its entries in one access ordered map, so a
+ * read or a write only locks the segment owning the key and the least recently used entry of that segment is evicted
+ * once the segment grows beyond its share of the size.
+ * <p>
+ * When a maximum weight is set, the total weight of all entries is bounded as well. Entries are weighed by a
+ * {@link Weigher} outside of any lock, and least recently used entries of the other segments are evicted first when
+ * the total weight grows beyond the maximum.
+ */
+public class ConcurrentLruCache implements Cache {
+
+  private static final int MIN_SEGMENT_SIZE = 16;
+  private static final int MAX_SEGMENTS = 1 << 16;
+
+  private final String id;
+  private int size;
+  private int concurrencyLevel;
+  private Segment[] segments;
+  private int segmentMask;
+  private long maxWeightBytes;
+  private Weigher weigher;
+  private volatile CacheStatsCounter statsCounter;
+  private final AtomicLong totalWeight = new AtomicLong();
+
+  public ConcurrentLruCache(String id) {
+    this.id = id;
+    this.size = 1024;
+    this.concurrencyLevel = Runtime.getRuntime().availableProcessors();
+    initSegments();
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  public void setSize(int size) {
+    this.size = size;
+    initSegments();
+  }
+
+  public void setConcurrencyLevel(int concurrencyLevel) {
+    this.concurrencyLevel = concurrencyLevel;
+    initSegments();
+  }
+
+  /**
+   * Sets the maximum total weight of the cached entries. Zero, the default, disables weighing.
+   *
+   * @param maxWeightBytes
+   *          the maximum weight, usually an estimate in bytes
+   */
+  public void setMaxWeightBytes(long maxWeightBytes) {
+    this.maxWeightBytes = maxWeightBytes;
+    initSegments();
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Sets the counters the evicted entries are recorded in.
+   *
+   * @param statsCounter
+   *          the counters of the cache
+   */
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  /**
+   * @return The sum of the weights of the cached entries, always zero when weighing is disabled.
+   */
+  public long getTotalWeight() {
+    return totalWeight.get();
+  }
+
+  @Override
+  public int getSize() {
+    int total = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        total += segment.size();
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (maxWeightBytes <= 0) {
+      Segment segment = segmentFor(key);
+      synchronized (segment) {
+        segment.put(key, value);
+      }
+      return;
+    }
+    long weight = getWeigher().weigh(key, value);
+    int index = segmentIndex(key);
+    Segment segment = segments[index];
+    synchronized (segment) {
+      segment.release(segment.remove(key));
+      if (weight > maxWeightBytes) {
+        return;
+      }
+      segment.put(key, new Weighted(value, weight));
+      segment.weigh(weight);
+    }
+    evictByWeight(index, key);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      return unwrap(segment.get(key));
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      Object value = segment.remove(key);
+      segment.release(value);
+      return unwrap(value);
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+        segment.weigh(-segment.weight);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private Segment segmentFor(Object key) {
+    return segments[segmentIndex(key)];
+  }
+
+  private int segmentIndex(Object key) {
+    int h = Objects.hashCode(key) * 0x9E3779B9;
+    return (h >>> 16) & segmentMask;
+  }
+
+  private Weigher getWeigher() {
+    if (weigher == null) {
+      weigher = new DefaultWeigher();
+    }
+    return weigher;
+  }
+
+  private void evictByWeight(int start, Object insertedKey) {
+    // round robin over the segments starting after the one just written, one eldest entry at a time
+    Segment[] current = segments;
+    int misses = 0;
+    for (int i = start + 1; totalWeight.get() > maxWeightBytes && misses < current.length; i++) {
+      Segment segment = current[i & segmentMask];
+      synchronized (segment) {
+        misses = segment.evictEldest(insertedKey) ? 0 : misses + 1;
+      }
+    }
+  }
+
+  private void recordEviction() {
+    CacheStatsCounter counter = statsCounter;
+    if (counter != null) {
+      counter.recordEviction();
+    }
+  }
+
+  private static Object unwrap(Object value) {
+    return value instanceof Weighted ? ((Weighted) value).value : value;
+  }
+
+  private void initSegments() {
+    if (size < 1) {
+      throw new CacheException("Cache size must be greater than zero but was " + size + " for cache " + id);
+    }
+    int count = 1;
+    int limit = Math.min(Math.max(concurrencyLevel, 1), Math.max(size / MIN_SEGMENT_SIZE, 1));
+    while (count < limit && count < MAX_SEGMENTS) {
+      count <<= 1;
+    }
+    if (count > limit && count > 1) {
+      count >>= 1;
+    }
+    Segment[] newSegments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      // spread the remainder so that the sum of all segment sizes is exactly the cache size
+      newSegments[i] = new Segment(size / count + (i < size % count ? 1 : 0));
+    }
+    this.segments = newSegments;
+    this.segmentMask = count - 1;
+    this.totalWeight.set(0);
+  }
+
+  private class Segment extends LinkedHashMap<Object, Object> {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+    private long weight;
+
+    Segment(int maxSize) {
+      super(16, .75F, true);
+      this.maxSize = maxSize;
+    }
+
+    void weigh(long delta) {
+      weight += delta;
+      totalWeight.addAndGet(delta);
+    }
+
+    void release(Object value) {
+      if (value instanceof Weighted) {
+        weigh(-((Weighted) value).weight);
+      }
+    }
+
+    boolean evictEldest(Object insertedKey) {
+      Iterator<Map.Entry<Object, Object>> iterator = entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Object, Object> eldest = iterator.next();
+        if (!Objects.equals(eldest.getKey(), insertedKey)) {
+          iterator.remove();
+          release(eldest.getValue());
+          recordEviction();
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+      if (size() > maxSize) {
+        release(eldest.getValue());
+        recordEviction();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static class Weighted {
+    private final Object value;
+    private final long weight;
+
+    Weighted(Object value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+}
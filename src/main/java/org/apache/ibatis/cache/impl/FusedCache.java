@@ -0,0 +1,247 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStatsCounter;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * The standard second level cache in a single class.
+ * <p>
+ * It does the work of a {@link PerpetualCache} decorated with an LRU or FIFO eviction policy, an optional flush
+ * interval and read/write copies, then statistics and a lock, with one map and one lock instead of a call and
+ * possibly a lock at every level. Values are copied outside the lock. {@link org.apache.ibatis.mapping.CacheBuilder}
+ * builds it for these combinations when fused caches are enabled.
+ *
+ * @see org.apache.ibatis.cache.decorators.LruCache
+ * @see org.apache.ibatis.cache.decorators.FifoCache
+ * @see org.apache.ibatis.cache.decorators.ScheduledCache
+ * @see org.apache.ibatis.cache.decorators.SerializedCache
+ * @see org.apache.ibatis.cache.decorators.LoggingCache
+ * @see org.apache.ibatis.cache.decorators.SynchronizedCache
+ */
+public class FusedCache implements Cache {
+
+  private final String id;
+  private final Log log;
+  private final CacheStatsCounter statsCounter;
+  private final Map<Object, Object> entries;
+  private int size;
+  private long clearInterval;
+  private long lastClear;
+  private CacheSerializer serializer;
+
+  /**
+   * @param lru
+   *          true to evict the least recently used entry, false to evict the oldest one
+   */
+  public FusedCache(String id, CacheStatsCounter statsCounter, boolean lru) {
+    this.id = id;
+    this.log = LogFactory.getLog(id);
+    this.statsCounter = statsCounter;
+    this.size = 1024;
+    this.lastClear = System.currentTimeMillis();
+    this.entries = new LinkedHashMap<Object, Object>(16, .75F, lru) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+        boolean tooBig = size() > FusedCache.this.size;
+        if (tooBig) {
+          statsCounter.recordEviction();
+        }
+        return tooBig;
+      }
+    };
+  }
+
+  public synchronized void setSize(int size) {
+    this.size = size;
+  }
+
+  /**
+   * Sets the interval after which the whole cache is cleared.
+   *
+   * @param clearInterval
+   *          the interval in milliseconds, or 0 to never clear the cache
+   */
+  public synchronized void setClearInterval(long clearInterval) {
+    this.clearInterval = clearInterval;
+  }
+
+  /**
+   * Sets the serializer that copies the values, so that every reader gets its own copy.
+   *
+   * @param serializer
+   *          the serializer, or null to return the cached values themselves
+   */
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    clearWhenStale();
+    return entries.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Object stored = serialize(value);
+    synchronized (this) {
+      clearWhenStale();
+      entries.put(key, stored);
+    }
+    statsCounter.recordPut();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object stored;
+    synchronized (this) {
+      stored = clearWhenStale() ? null : entries.get(key);
+    }
+    Object value = deserialize(stored);
+    if (value != null) {
+      statsCounter.recordHit();
+    } else {
+      statsCounter.recordMiss();
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Cache Hit Ratio [" + id + "]: " + getHitRatio());
+    }
+    return value;
+  }
+
+  @Override
+  public void putObjects(Map<?, ?> objects) {
+    Map<Object, Object> stored = new LinkedHashMap<>();
+    for (Map.Entry<?, ?> entry : objects.entrySet()) {
+      stored.put(entry.getKey(), serialize(entry.getValue()));
+    }
+    synchronized (this) {
+      clearWhenStale();
+      entries.putAll(stored);
+    }
+    for (int i = 0; i < objects.size(); i++) {
+      statsCounter.recordPut();
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getObjects(Collection<?> keys) {
+    Map<Object, Object> stored = new HashMap<>();
+    synchronized (this) {
+      if (!clearWhenStale()) {
+        for (Object key : keys) {
+          Object value = entries.get(key);
+          if (value != null) {
+            stored.put(key, value);
+          }
+        }
+      }
+    }
+    Map<Object, Object> values = new HashMap<>();
+    for (Map.Entry<Object, Object> entry : stored.entrySet()) {
+      Object value = deserialize(entry.getValue());
+      if (value != null) {
+        values.put(entry.getKey(), value);
+      }
+    }
+    for (Object key : keys) {
+      if (values.containsKey(key)) {
+        statsCounter.recordHit();
+      } else {
+        statsCounter.recordMiss();
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Cache Hit Ratio [" + id + "]: " + getHitRatio());
+    }
+    return values;
+  }
+
+  @Override
+  public synchronized Object removeObject(Object key) {
+    clearWhenStale();
+    return entries.remove(key);
+  }
+
+  @Override
+  public synchronized void clear() {
+    lastClear = System.currentTimeMillis();
+    entries.clear();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+    return id.equals(((Cache) o).getId());
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+
+  private boolean clearWhenStale() {
+    if (clearInterval > 0 && System.currentTimeMillis() - lastClear > clearInterval) {
+      clear();
+      return true;
+    }
+    return false;
+  }
+
+  private Object serialize(Object value) {
+    if (serializer == null) {
+      return value;
+    }
+    if (value != null && !(value instanceof Serializable)) {
+      throw new CacheException("FusedCache " + id + " failed to make a copy of a non-serializable object: " + value);
+    }
+    return serializer.serialize(value);
+  }
+
+  private Object deserialize(Object stored) {
+    return serializer == null || stored == null ? stored : serializer.deserialize((byte[]) stored);
+  }
+
+  private double getHitRatio() {
+    long hits = statsCounter.getHitCount();
+    return (double) hits / (double) (hits + statsCounter.getMissCount());
+  }
+
+}
@@ -0,0 +1,397 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStatsCounter;
+
+/**
+ * Cache that keeps serialized values outside of the Java heap.
+ * <p>
+ * Values must be byte arrays, as produced by {@link org.apache.ibatis.cache.decorators.SerializedCache}. They are
+ * copied into fixed size blocks carved out of direct {@link ByteBuffer} slabs, so only the keys and a small block index
+ * per entry stay on the heap. Slabs are allocated lazily up to the configured capacity in bytes, and least recently
+ * used entries are evicted when there are not enough free blocks left for a new value. Values that are larger than the
+ * whole capacity are not cached at all.
+ * <p>
+ * Direct memory is limited by the <code>-XX:MaxDirectMemorySize</code> JVM option, which must be at least as large as
+ * the sum of the capacities of all off-heap caches.
+ */
+public class OffHeapCache implements Cache, InitializingObject {
+
+  private static final int MAX_SLAB_SIZE = 1 << 30;
+
+  private final String id;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<Object, Entry> entries = new LinkedHashMap<>(16, .75F, true);
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+
+  private long capacity;
+  private int blockSize;
+  private int slabSize;
+
+  private int blocksPerSlab;
+  private int totalBlocks;
+  private int[] freeBlocks;
+  private int freeCount;
+  private int allocatedBlocks;
+  private long storedBytes;
+  private long evictionCount;
+  private long rejectionCount;
+  private CacheStatsCounter statsCounter;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+    this.capacity = 64L * 1024 * 1024;
+    this.blockSize = 1024;
+    this.slabSize = 16 * 1024 * 1024;
+    initialize();
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the maximum number of bytes that may be allocated outside of the heap.
+   *
+   * @param capacity
+   *          the capacity in bytes
+   */
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Sets the size of the blocks values are split into. Smaller blocks waste less memory per value while larger blocks
+   * need a smaller index.
+   *
+   * @param blockSize
+   *          the block size in bytes
+   */
+  public void setBlockSize(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Sets the size of every direct buffer that is allocated when the cache needs more room.
+   *
+   * @param slabSize
+   *          the slab size in bytes
+   */
+  public void setSlabSize(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  /**
+   * Sets the counters the evicted entries are recorded in.
+   *
+   * @param statsCounter
+   *          the counters of the cache
+   */
+  public void setStatsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return The number of bytes currently allocated outside of the heap.
+   */
+  public long getAllocatedBytes() {
+    lock.lock();
+    try {
+      long allocated = 0;
+      for (ByteBuffer slab : slabs) {
+        allocated += slab.capacity();
+      }
+      return allocated;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of bytes taken by the blocks of the cached values.
+   */
+  public long getUsedBytes() {
+    lock.lock();
+    try {
+      return (long) (allocatedBlocks - freeCount) * blockSize;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of bytes of the cached values themselves.
+   */
+  public long getStoredBytes() {
+    lock.lock();
+    try {
+      return storedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of bytes that may still be stored without evicting any entry.
+   */
+  public long getFreeBytes() {
+    lock.lock();
+    try {
+      return (long) (totalBlocks - allocatedBlocks + freeCount) * blockSize;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of entries evicted to make room for new values.
+   */
+  public long getEvictionCount() {
+    lock.lock();
+    try {
+      return evictionCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of values that were not cached because they were larger than the capacity.
+   */
+  public long getRejectionCount() {
+    lock.lock();
+    try {
+      return rejectionCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (!(value instanceof byte[])) {
+      throw new CacheException("OffHeapCache can only store serialized values but got " + value + " for cache " + id
+          + ". Cause: the cache must be read/write.");
+    }
+    byte[] bytes = (byte[]) value;
+    int needed = (bytes.length + blockSize - 1) / blockSize;
+    lock.lock();
+    try {
+      release(entries.remove(key));
+      if (needed > totalBlocks) {
+        rejectionCount++;
+        return;
+      }
+      while (availableBlocks() < needed) {
+        evictEldest();
+      }
+      int[] blocks = new int[needed];
+      for (int i = 0; i < needed; i++) {
+        blocks[i] = allocateBlock();
+        int offset = i * blockSize;
+        write(blocks[i], bytes, offset, Math.min(blockSize, bytes.length - offset));
+      }
+      entries.put(key, new Entry(bytes.length, blocks));
+      storedBytes += bytes.length;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    lock.lock();
+    try {
+      return read(entries.get(key));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      Entry entry = entries.remove(key);
+      byte[] bytes = read(entry);
+      release(entry);
+      return bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      entries.clear();
+      freeCount = 0;
+      for (int block = allocatedBlocks - 1; block >= 0; block--) {
+        freeBlocks[freeCount++] = block;
+      }
+      storedBytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  /**
+   * Validates the layout and discards all entries. Must be called after the capacity, block size or slab size have
+   * been changed.
+   */
+  @Override
+  public void initialize() {
+    if (blockSize < 1 || slabSize < blockSize || slabSize > MAX_SLAB_SIZE || capacity < blockSize) {
+      throw new CacheException("Invalid off-heap cache layout for cache " + id + ": capacity=" + capacity
+          + ", slabSize=" + slabSize + ", blockSize=" + blockSize);
+    }
+    lock.lock();
+    try {
+      entries.clear();
+      slabs.clear();
+      blocksPerSlab = slabSize / blockSize;
+      totalBlocks = (int) Math.min(capacity / blockSize, Integer.MAX_VALUE - 8);
+      freeBlocks = new int[totalBlocks];
+      freeCount = 0;
+      allocatedBlocks = 0;
+      storedBytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int availableBlocks() {
+    return freeCount + totalBlocks - allocatedBlocks;
+  }
+
+  private int allocateBlock() {
+    if (freeCount > 0) {
+      return freeBlocks[--freeCount];
+    }
+    if (allocatedBlocks % blocksPerSlab == 0) {
+      int blocks = Math.min(blocksPerSlab, totalBlocks - allocatedBlocks);
+      slabs.add(ByteBuffer.allocateDirect(blocks * blockSize));
+    }
+    return allocatedBlocks++;
+  }
+
+  private void evictEldest() {
+    Iterator<Entry> iterator = entries.values().iterator();
+    Entry eldest = iterator.next();
+    iterator.remove();
+    release(eldest);
+    evictionCount++;
+    if (statsCounter != null) {
+      statsCounter.recordEviction();
+    }
+  }
+
+  private void release(Entry entry) {
+    if (entry != null) {
+      for (int block : entry.blocks) {
+        freeBlocks[freeCount++] = block;
+      }
+      storedBytes -= entry.length;
+    }
+  }
+
+  private void write(int block, byte[] source, int offset, int length) {
+    ByteBuffer slab = slabs.get(block / blocksPerSlab);
+    slab.position((block % blocksPerSlab) * blockSize);
+    slab.put(source, offset, length);
+  }
+
+  private byte[] read(Entry entry) {
+    if (entry == null) {
+      return null;
+    }
+    byte[] bytes = new byte[entry.length];
+    for (int i = 0; i < entry.blocks.length; i++) {
+      int offset = i * blockSize;
+      read(entry.blocks[i], bytes, offset, Math.min(blockSize, bytes.length - offset));
+    }
+    return bytes;
+  }
+
+  private void read(int block, byte[] target, int offset, int length) {
+    ByteBuffer slab = slabs.get(block / blocksPerSlab);
+    slab.position((block % blocksPerSlab) * blockSize);
+    slab.get(target, offset, length);
+  }
+
+  private static class Entry {
+    private final int length;
+    private final int[] blocks;
+
+    Entry(int length, int[] blocks) {
+      this.length = length;
+      this.blocks = blocks;
+    }
+  }
+
+}
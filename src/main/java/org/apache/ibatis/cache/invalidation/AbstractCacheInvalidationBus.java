@@ -0,0 +1,210 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Base class of buses that batches and coalesces the published invalidations before sending them.
+ * <p>
+ * Invalidations are sent once {@code batchDelay} milliseconds have passed since the first pending one was published,
+ * or as soon as {@code maxBatchSize} are pending, so a burst of writes results in a few messages. Duplicates are sent
+ * once, table invalidations are merged, and key invalidations of a cache that is cleared in the same batch are
+ * dropped. A batch delay of 0 sends every invalidation as it is published.
+ */
+public abstract class AbstractCacheInvalidationBus implements CacheInvalidationBus {
+
+  private static final Log log = LogFactory.getLog(AbstractCacheInvalidationBus.class);
+
+  private final String nodeId = UUID.randomUUID().toString();
+  private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+  private final Set<CacheInvalidation> pending = new LinkedHashSet<>();
+  private long batchDelay = 10;
+  private int maxBatchSize = 256;
+
+  @Override
+  public void setProperties(Properties properties) {
+    String value = properties.getProperty("batchDelay");
+    if (value != null) {
+      setBatchDelay(Long.parseLong(value));
+    }
+    value = properties.getProperty("maxBatchSize");
+    if (value != null) {
+      setMaxBatchSize(Integer.parseInt(value));
+    }
+  }
+
+  public void setBatchDelay(long batchDelay) {
+    this.batchDelay = batchDelay;
+  }
+
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Gets the id of this node, which is sent with every batch so that a node ignores its own invalidations.
+   *
+   * @return the node id
+   */
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  @Override
+  public void publish(CacheInvalidation invalidation) {
+    List<CacheInvalidation> batch = null;
+    boolean schedule;
+    synchronized (pending) {
+      schedule = pending.isEmpty() && batchDelay > 0;
+      pending.add(invalidation);
+      if (batchDelay <= 0 || pending.size() >= maxBatchSize) {
+        batch = drainPending();
+        schedule = false;
+      }
+    }
+    if (batch != null) {
+      sendSafely(batch);
+    } else if (schedule) {
+      SchedulerHolder.SCHEDULER.schedule(this::flush, batchDelay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void subscribe(CacheInvalidationListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Sends the pending invalidations now.
+   */
+  public void flush() {
+    List<CacheInvalidation> batch;
+    synchronized (pending) {
+      batch = drainPending();
+    }
+    if (!batch.isEmpty()) {
+      sendSafely(batch);
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+
+  /**
+   * Sends a batch of invalidations to the other nodes.
+   *
+   * @param origin
+   *          the id of the node that published the invalidations
+   * @param batch
+   *          the coalesced invalidations
+   * @throws Exception
+   *           if the batch could not be sent
+   */
+  protected abstract void send(String origin, List<CacheInvalidation> batch) throws Exception;
+
+  /**
+   * Delivers a batch sent by a node to the listeners, unless this node sent it.
+   *
+   * @param origin
+   *          the id of the node that published the invalidations
+   * @param batch
+   *          the invalidations
+   */
+  protected void receive(String origin, List<CacheInvalidation> batch) {
+    if (nodeId.equals(origin)) {
+      return;
+    }
+    for (CacheInvalidationListener listener : listeners) {
+      try {
+        listener.onInvalidation(batch);
+      } catch (RuntimeException e) {
+        log.warn("Could not apply cache invalidations " + batch + ". Cause: " + e);
+      }
+    }
+  }
+
+  static List<CacheInvalidation> coalesce(Collection<CacheInvalidation> invalidations) {
+    Set<String> clearedCaches = new LinkedHashSet<>();
+    Set<String> tables = new LinkedHashSet<>();
+    for (CacheInvalidation invalidation : invalidations) {
+      if (invalidation.getType() == CacheInvalidation.Type.NAMESPACE) {
+        clearedCaches.add(invalidation.getCacheId());
+      } else if (invalidation.getType() == CacheInvalidation.Type.TABLES) {
+        tables.addAll(invalidation.getTables());
+      }
+    }
+    List<CacheInvalidation> result = new ArrayList<>();
+    for (String cacheId : clearedCaches) {
+      result.add(CacheInvalidation.namespace(cacheId));
+    }
+    if (!tables.isEmpty()) {
+      result.add(CacheInvalidation.tables(tables));
+    }
+    for (CacheInvalidation invalidation : invalidations) {
+      if (invalidation.getType() == CacheInvalidation.Type.KEY && !clearedCaches.contains(invalidation.getCacheId())) {
+        result.add(invalidation);
+      }
+    }
+    return result;
+  }
+
+  private List<CacheInvalidation> drainPending() {
+    List<CacheInvalidation> batch = coalesce(pending);
+    pending.clear();
+    return batch;
+  }
+
+  private void sendSafely(List<CacheInvalidation> batch) {
+    try {
+      send(nodeId, batch);
+    } catch (Exception e) {
+      log.warn("Could not send cache invalidations " + batch + ". Cause: " + e);
+    }
+  }
+
+  private static class SchedulerHolder {
+    private static final ScheduledExecutorService SCHEDULER = newScheduler();
+
+    private static ScheduledExecutorService newScheduler() {
+      AtomicInteger count = new AtomicInteger();
+      ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-cache-invalidation-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.ibatis.cache.CompactCacheKey;
+
+/**
+ * A second level cache invalidation sent over a {@link CacheInvalidationBus}.
+ * <p>
+ * It either clears a whole cache, clears the caches that depend on written tables, or removes a single key from a
+ * cache. Keys are compared on the receiving nodes, so key invalidations require keys that are serializable and equal
+ * across JVMs. Compact cache keys are not: their fingerprint is keyed per JVM, so the invalidation of a compact key
+ * clears its whole cache instead.
+ */
+public final class CacheInvalidation implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public enum Type {
+    NAMESPACE, TABLES, KEY
+  }
+
+  private final Type type;
+  private final String cacheId;
+  private final Set<String> tables;
+  private final Object key;
+
+  private CacheInvalidation(Type type, String cacheId, Set<String> tables, Object key) {
+    this.type = type;
+    this.cacheId = cacheId;
+    this.tables = tables;
+    this.key = key;
+  }
+
+  public static CacheInvalidation namespace(String cacheId) {
+    return new CacheInvalidation(Type.NAMESPACE, Objects.requireNonNull(cacheId), null, null);
+  }
+
+  public static CacheInvalidation tables(Collection<String> tables) {
+    return new CacheInvalidation(Type.TABLES, null, Collections.unmodifiableSet(new LinkedHashSet<>(tables)), null);
+  }
+
+  /**
+   * Creates the invalidation of a single key, or of the whole cache when the key would not match on other nodes.
+   *
+   * @param cacheId
+   *          the id of the cache
+   * @param key
+   *          the key to remove
+   * @return the invalidation
+   */
+  public static CacheInvalidation key(String cacheId, Object key) {
+    if (key instanceof CompactCacheKey) {
+      return namespace(cacheId);
+    }
+    return new CacheInvalidation(Type.KEY, Objects.requireNonNull(cacheId), null, Objects.requireNonNull(key));
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getCacheId() {
+    return cacheId;
+  }
+
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  public Object getKey() {
+    return key;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CacheInvalidation)) {
+      return false;
+    }
+    CacheInvalidation other = (CacheInvalidation) o;
+    return type == other.type && Objects.equals(cacheId, other.cacheId) && Objects.equals(tables, other.tables)
+        && Objects.equals(key, other.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, cacheId, tables, key);
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+      case NAMESPACE:
+        return "namespace " + cacheId;
+      case TABLES:
+        return "tables " + tables;
+      default:
+        return "key " + key + " of " + cacheId;
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Properties;
+
+/**
+ * Carries second level cache invalidations between the nodes of a cluster.
+ * <p>
+ * When a bus is configured, every node publishes the caches it cleared and the tables it wrote to when a session
+ * commits, and clears its own caches accordingly when another node publishes. Implementations must be thread safe and
+ * should not deliver the invalidations published by a node back to the same node.
+ *
+ * @see AbstractCacheInvalidationBus
+ * @see org.apache.ibatis.session.Configuration#setCacheInvalidationBus(CacheInvalidationBus)
+ */
+public interface CacheInvalidationBus {
+
+  /**
+   * Sets the properties of the bus, as configured in the cacheInvalidationBus element.
+   *
+   * @param properties
+   *          the properties
+   */
+  default void setProperties(Properties properties) {
+    // NOP
+  }
+
+  /**
+   * Publishes an invalidation to the other nodes. It may be sent later, together with other invalidations.
+   *
+   * @param invalidation
+   *          the invalidation
+   */
+  void publish(CacheInvalidation invalidation);
+
+  void subscribe(CacheInvalidationListener listener);
+
+  /**
+   * Sends the pending invalidations and releases the resources of the bus.
+   */
+  void close();
+
+}
@@ -0,0 +1,77 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.util.MapUtil;
+
+/**
+ * Bus between the configurations of a single JVM that use the same channel, for instance several
+ * {@link org.apache.ibatis.session.SqlSessionFactory} instances standing for the nodes of a cluster in a test.
+ * <p>
+ * Batches are delivered synchronously, by the thread that sends them.
+ */
+public class LocalCacheInvalidationBus extends AbstractCacheInvalidationBus {
+
+  private static final ConcurrentMap<String, Set<LocalCacheInvalidationBus>> channels = new ConcurrentHashMap<>();
+
+  private String channel = "default";
+
+  @Override
+  public void setProperties(Properties properties) {
+    super.setProperties(properties);
+    setChannel(properties.getProperty("channel", channel));
+  }
+
+  public void setChannel(String channel) {
+    this.channel = channel;
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  @Override
+  public void subscribe(CacheInvalidationListener listener) {
+    super.subscribe(listener);
+    MapUtil.computeIfAbsent(channels, channel, k -> ConcurrentHashMap.newKeySet()).add(this);
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    Set<LocalCacheInvalidationBus> members = channels.get(channel);
+    if (members != null) {
+      members.remove(this);
+    }
+  }
+
+  @Override
+  protected void send(String origin, List<CacheInvalidation> batch) {
+    Set<LocalCacheInvalidationBus> members = channels.get(channel);
+    if (members != null) {
+      for (LocalCacheInvalidationBus member : members) {
+        member.receive(origin, batch);
+      }
+    }
+  }
+
+}
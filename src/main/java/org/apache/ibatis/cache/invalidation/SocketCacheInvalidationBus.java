@@ -0,0 +1,279 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Bus that sends batches as UDP datagrams between processes of the same machine, to test the behavior of several
+ * nodes on a single host.
+ * <p>
+ * Every node listens on its {@code port} of the loopback interface and sends to the comma separated {@code peers}
+ * ports. Datagrams may be lost, so this bus is not meant to keep the caches of a production cluster consistent. Only
+ * JDK value types and MyBatis cache keys are accepted in received batches, so a key invalidation holding other classes
+ * is sent as an invalidation of its whole cache.
+ */
+public class SocketCacheInvalidationBus extends AbstractCacheInvalidationBus {
+
+  private static final Log log = LogFactory.getLog(SocketCacheInvalidationBus.class);
+  private static final int MAX_PACKET_SIZE = 65507;
+  private static final String[] ALLOWED_PACKAGES = { "java.lang.", "java.math.", "java.util.", "java.sql.",
+      "java.time.", "org.apache.ibatis.cache.", "org.apache.ibatis.cache.invalidation." };
+
+  private final InetAddress address = InetAddress.getLoopbackAddress();
+  private int port;
+  private List<Integer> peers = Collections.emptyList();
+  private DatagramSocket socket;
+
+  @Override
+  public void setProperties(Properties properties) {
+    super.setProperties(properties);
+    String value = properties.getProperty("port");
+    if (value != null) {
+      setPort(Integer.parseInt(value));
+    }
+    value = properties.getProperty("peers");
+    if (value != null) {
+      setPeers(value);
+    }
+  }
+
+  /**
+   * Sets the port to listen on, 0 for any free port.
+   *
+   * @param port
+   *          the port
+   */
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  /**
+   * Sets the ports of the other nodes.
+   *
+   * @param peers
+   *          comma separated ports
+   */
+  public void setPeers(String peers) {
+    List<Integer> ports = new ArrayList<>();
+    for (String peer : peers.split(",")) {
+      if (!peer.trim().isEmpty()) {
+        ports.add(Integer.valueOf(peer.trim()));
+      }
+    }
+    this.peers = ports;
+  }
+
+  /**
+   * Gets the port this node listens on, once it has subscribed.
+   *
+   * @return the port
+   */
+  public synchronized int getLocalPort() {
+    return socket == null ? port : socket.getLocalPort();
+  }
+
+  @Override
+  public void subscribe(CacheInvalidationListener listener) {
+    super.subscribe(listener);
+    synchronized (this) {
+      if (socket == null) {
+        try {
+          socket = new DatagramSocket(new InetSocketAddress(address, port));
+        } catch (SocketException e) {
+          throw new IllegalStateException("Could not listen on port " + port + ". Cause: " + e, e);
+        }
+        Thread receiver = new Thread(() -> listen(socket), "mybatis-cache-invalidation-receiver-" + getLocalPort());
+        receiver.setDaemon(true);
+        receiver.start();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    synchronized (this) {
+      if (socket != null) {
+        socket.close();
+      }
+    }
+  }
+
+  @Override
+  protected void send(String origin, List<CacheInvalidation> batch) throws IOException {
+    Set<CacheInvalidation> allowed = new LinkedHashSet<>();
+    for (CacheInvalidation invalidation : batch) {
+      if (invalidation.getType() == CacheInvalidation.Type.KEY && !isAllowed(invalidation.getKey())) {
+        // the receiver would reject the whole datagram, with the other invalidations of the batch
+        allowed.add(CacheInvalidation.namespace(invalidation.getCacheId()));
+      } else {
+        allowed.add(invalidation);
+      }
+    }
+    sendAllowed(origin, new ArrayList<>(allowed));
+  }
+
+  private void sendAllowed(String origin, List<CacheInvalidation> batch) throws IOException {
+    byte[] data = encode(origin, batch);
+    if (data.length > MAX_PACKET_SIZE) {
+      if (batch.size() > 1) {
+        sendAllowed(origin, batch.subList(0, batch.size() / 2));
+        sendAllowed(origin, batch.subList(batch.size() / 2, batch.size()));
+        return;
+      }
+      CacheInvalidation invalidation = batch.get(0);
+      if (invalidation.getType() != CacheInvalidation.Type.KEY) {
+        throw new IOException("Cache invalidation too large to be sent: " + invalidation);
+      }
+      // the key is too large, clear the whole cache instead
+      sendAllowed(origin, Collections.singletonList(CacheInvalidation.namespace(invalidation.getCacheId())));
+      return;
+    }
+    DatagramSocket sender = getSender();
+    for (Integer peer : peers) {
+      sender.send(new DatagramPacket(data, data.length, address, peer));
+    }
+  }
+
+  private synchronized DatagramSocket getSender() throws SocketException {
+    if (socket == null) {
+      // publishing only, the socket does not need a known port
+      socket = new DatagramSocket(new InetSocketAddress(address, 0));
+    }
+    return socket;
+  }
+
+  private void listen(DatagramSocket socket) {
+    byte[] buffer = new byte[MAX_PACKET_SIZE];
+    while (!socket.isClosed()) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        socket.receive(packet);
+      } catch (IOException e) {
+        if (!socket.isClosed()) {
+          log.warn("Could not receive cache invalidations. Cause: " + e);
+        }
+        continue;
+      }
+      try (ObjectInputStream in = new FilteringObjectInputStream(
+          new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength()))) {
+        String origin = in.readUTF();
+        @SuppressWarnings("unchecked")
+        List<CacheInvalidation> batch = (List<CacheInvalidation>) in.readObject();
+        receive(origin, batch);
+      } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        log.warn("Could not read cache invalidations. Cause: " + e);
+      }
+    }
+  }
+
+  static byte[] encode(String origin, List<CacheInvalidation> batch) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeUTF(origin);
+      out.writeObject(new ArrayList<>(batch));
+    }
+    return bytes.toByteArray();
+  }
+
+  static boolean isAllowed(Object key) {
+    try (ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream()) {
+      @Override
+      protected void annotateClass(Class<?> type) throws IOException {
+        if (!isAllowed(type.getName())) {
+          throw new InvalidClassException(type.getName(), "Class not allowed in cache invalidations");
+        }
+      }
+
+      @Override
+      protected void annotateProxyClass(Class<?> type) throws IOException {
+        throw new InvalidClassException("Proxies are not allowed in cache invalidations");
+      }
+    }) {
+      out.writeObject(key);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  static boolean isAllowed(String className) {
+    String name = className;
+    int dimensions = 0;
+    while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+      dimensions++;
+    }
+    if (dimensions > 0) {
+      if (name.length() == dimensions + 1) {
+        // array of primitives
+        return true;
+      }
+      name = name.substring(dimensions + 1, name.length() - 1);
+    }
+    for (String prefix : ALLOWED_PACKAGES) {
+      // classes of sub packages, such as java.lang.reflect, are not allowed
+      if (name.startsWith(prefix) && name.indexOf('.', prefix.length()) < 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static class FilteringObjectInputStream extends ObjectInputStream {
+
+    FilteringObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      if (!isAllowed(desc.getName())) {
+        throw new InvalidClassException(desc.getName(), "Class not allowed in cache invalidations");
+      }
+      return Resources.classForName(desc.getName());
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+      throw new InvalidClassException("Proxies are not allowed in cache invalidations");
+    }
+
+  }
+
+}
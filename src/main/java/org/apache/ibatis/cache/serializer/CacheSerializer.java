@@ -0,0 +1,41 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+/**
+ * SPI for the serializers that read/write caches use to store private copies of the cached results.
+ * <p>
+ * Implementations must be thread safe and have a public no-arguments constructor.
+ *
+ * @see org.apache.ibatis.cache.decorators.SerializedCache
+ */
+public interface CacheSerializer {
+
+  /**
+   * @param value
+   *          The value to serialize, may be null
+   * @return The serialized form of the value
+   */
+  byte[] serialize(Object value);
+
+  /**
+   * @param bytes
+   *          The bytes returned by {@link #serialize(Object)}
+   * @return A new copy of the serialized value
+   */
+  Object deserialize(byte[] bytes);
+
+}
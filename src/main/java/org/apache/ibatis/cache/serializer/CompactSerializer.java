@@ -0,0 +1,508 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.util.MapUtil;
+
+/**
+ * Compact binary serializer for the usual query results: lists and maps of beans, strings, numbers and dates.
+ * <p>
+ * Beans are written as the values of their properties, found through the {@link Reflector} metadata, so neither class
+ * descriptors nor field names end up in the payload and a class name is written only once per payload. A class is
+ * handled as a bean when it has a default constructor, does not customize its serialization and every instance field
+ * can be read and written through the {@link Reflector}. Any other value, lazy loading proxies included, falls back
+ * to the standard Java serialization. Shared references and cycles between beans, collections and arrays are kept.
+ */
+public class CompactSerializer implements CacheSerializer {
+
+  private static final byte VERSION = 1;
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte DOUBLE = 5;
+  private static final byte FLOAT = 6;
+  private static final byte SHORT = 7;
+  private static final byte BYTE = 8;
+  private static final byte TRUE = 9;
+  private static final byte FALSE = 10;
+  private static final byte CHARACTER = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte BIG_INTEGER = 13;
+  private static final byte DATE = 14;
+  private static final byte TIMESTAMP = 15;
+  private static final byte BYTE_ARRAY = 16;
+  private static final byte ARRAY = 17;
+  private static final byte COLLECTION = 18;
+  private static final byte MAP = 19;
+  private static final byte ENUM = 20;
+  private static final byte BEAN = 21;
+  private static final byte SERIALIZED = 22;
+
+  private static final Set<Class<?>> COLLECTION_TYPES = new HashSet<>(
+      Arrays.asList(ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class));
+  private static final Set<Class<?>> MAP_TYPES = new HashSet<>(Arrays.asList(HashMap.class, LinkedHashMap.class));
+  private static final Set<Class<?>> DATE_TYPES = new HashSet<>(
+      Arrays.asList(Date.class, java.sql.Date.class, Time.class));
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, BeanType> beanTypes = new ConcurrentHashMap<>();
+  private final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+  private final JavaSerializer javaSerializer = new JavaSerializer();
+
+  @Override
+  public byte[] serialize(Object value) {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bos);
+      out.writeByte(VERSION);
+      new Writer(out).writeValue(value);
+      out.flush();
+      return bos.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      byte version = in.readByte();
+      if (version != VERSION) {
+        throw new CacheException("Unsupported compact serialization format version " + version);
+      }
+      return new Reader(in).readValue();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private BeanType beanType(Class<?> type) {
+    return MapUtil.computeIfAbsent(beanTypes, type, this::inspect);
+  }
+
+  private BeanType inspect(Class<?> type) {
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.getName().startsWith("java.")
+        || Proxy.isProxyClass(type) || WriteReplaceInterface.class.isAssignableFrom(type)
+        || Externalizable.class.isAssignableFrom(type) || hasCustomSerialization(type)) {
+      return BeanType.NOT_A_BEAN;
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      return BeanType.NOT_A_BEAN;
+    }
+    List<String> properties = new ArrayList<>();
+    for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+          continue;
+        }
+        String name = field.getName();
+        if (properties.contains(name) || !reflector.hasGetter(name) || !reflector.hasSetter(name)) {
+          return BeanType.NOT_A_BEAN;
+        }
+        properties.add(name);
+      }
+    }
+    properties.sort(null);
+    try {
+      Constructor<?> constructor = reflector.getDefaultConstructor();
+      constructor.setAccessible(true);
+      Invoker[] getters = new Invoker[properties.size()];
+      Invoker[] setters = new Invoker[properties.size()];
+      for (int i = 0; i < getters.length; i++) {
+        getters[i] = reflector.getGetInvoker(properties.get(i));
+        setters[i] = reflector.getSetInvoker(properties.get(i));
+      }
+      return new BeanType(constructor, getters, setters);
+    } catch (RuntimeException e) {
+      return BeanType.NOT_A_BEAN;
+    }
+  }
+
+  private static boolean hasCustomSerialization(Class<?> type) {
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (String method : new String[] { "writeReplace", "readResolve", "writeObject", "readObject" }) {
+        if (Arrays.stream(current.getDeclaredMethods()).anyMatch(m -> m.getName().equals(method))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private Class<?> classForName(String name) throws ClassNotFoundException {
+    Class<?> type = classes.get(name);
+    if (type == null) {
+      type = Resources.classForName(name);
+      classes.put(name, type);
+    }
+    return type;
+  }
+
+  private static final class BeanType {
+    private static final BeanType NOT_A_BEAN = new BeanType(null, null, null);
+
+    private final Constructor<?> constructor;
+    private final Invoker[] getters;
+    private final Invoker[] setters;
+
+    private BeanType(Constructor<?> constructor, Invoker[] getters, Invoker[] setters) {
+      this.constructor = constructor;
+      this.getters = getters;
+      this.setters = setters;
+    }
+  }
+
+  private final class Writer {
+    private final DataOutputStream out;
+    private final Map<Object, Integer> handles = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classIds = new HashMap<>();
+
+    private Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    private void writeValue(Object value) throws Exception {
+      if (value == null) {
+        out.writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        out.writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) value);
+      } else if (type == Long.class) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (type == Double.class) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (type == Float.class) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) value);
+      } else if (type == Short.class) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) value);
+      } else if (type == Byte.class) {
+        out.writeByte(BYTE);
+        out.writeByte((Byte) value);
+      } else if (type == Boolean.class) {
+        out.writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (type == Character.class) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) value);
+      } else if (type == BigDecimal.class) {
+        out.writeByte(BIG_DECIMAL);
+        writeString(value.toString());
+      } else if (type == BigInteger.class) {
+        out.writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (DATE_TYPES.contains(type)) {
+        out.writeByte(DATE);
+        writeClass(type);
+        out.writeLong(((Date) value).getTime());
+      } else if (type == Timestamp.class) {
+        out.writeByte(TIMESTAMP);
+        out.writeLong(((Timestamp) value).getTime());
+        out.writeInt(((Timestamp) value).getNanos());
+      } else if (type == byte[].class) {
+        out.writeByte(BYTE_ARRAY);
+        writeBytes((byte[]) value);
+      } else if (value instanceof Enum) {
+        out.writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else if (!writeReference(value)) {
+        writeObject(type, value);
+      }
+    }
+
+    private void writeObject(Class<?> type, Object value) throws Exception {
+      if (type.isArray() && !type.getComponentType().isPrimitive()) {
+        out.writeByte(ARRAY);
+        writeClass(type.getComponentType());
+        Object[] array = (Object[]) value;
+        writeVarInt(array.length);
+        for (Object element : array) {
+          writeValue(element);
+        }
+      } else if (COLLECTION_TYPES.contains(type)) {
+        out.writeByte(COLLECTION);
+        writeClass(type);
+        Collection<?> collection = (Collection<?>) value;
+        writeVarInt(collection.size());
+        for (Object element : collection) {
+          writeValue(element);
+        }
+      } else if (MAP_TYPES.contains(type)) {
+        out.writeByte(MAP);
+        writeClass(type);
+        Map<?, ?> map = (Map<?, ?>) value;
+        writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          writeValue(entry.getKey());
+          writeValue(entry.getValue());
+        }
+      } else {
+        BeanType beanType = beanType(type);
+        if (beanType == BeanType.NOT_A_BEAN) {
+          out.writeByte(SERIALIZED);
+          writeBytes(javaSerializer.serialize(value));
+        } else {
+          out.writeByte(BEAN);
+          writeClass(type);
+          for (Invoker getter : beanType.getters) {
+            writeValue(getter.invoke(value, null));
+          }
+        }
+      }
+    }
+
+    private boolean writeReference(Object value) throws IOException {
+      Integer handle = handles.get(value);
+      if (handle != null) {
+        out.writeByte(REFERENCE);
+        writeVarInt(handle);
+        return true;
+      }
+      handles.put(value, handles.size());
+      return false;
+    }
+
+    private void writeClass(Class<?> type) throws IOException {
+      Integer id = classIds.get(type);
+      if (id == null) {
+        out.writeByte(0);
+        writeString(type.getName());
+        classIds.put(type, classIds.size());
+      } else {
+        writeVarInt(id + 1);
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+      writeVarInt(bytes.length);
+      out.write(bytes);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        out.writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte(value);
+    }
+  }
+
+  private final class Reader {
+    private final DataInputStream in;
+    private final List<Object> handles = new ArrayList<>();
+    private final List<Class<?>> classIds = new ArrayList<>();
+
+    private Reader(DataInputStream in) {
+      this.in = in;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readValue() throws Exception {
+      byte tag = in.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return handles.get(readVarInt());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case DOUBLE:
+          return in.readDouble();
+        case FLOAT:
+          return in.readFloat();
+        case SHORT:
+          return in.readShort();
+        case BYTE:
+          return in.readByte();
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case CHARACTER:
+          return in.readChar();
+        case BIG_DECIMAL:
+          return new BigDecimal(readString());
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return readClass().getConstructor(long.class).newInstance(in.readLong());
+        case TIMESTAMP:
+          Timestamp timestamp = new Timestamp(in.readLong());
+          timestamp.setNanos(in.readInt());
+          return timestamp;
+        case BYTE_ARRAY:
+          return readBytes();
+        case ENUM:
+          return Enum.valueOf((Class<Enum>) readClass(), readString());
+        case ARRAY:
+          return readArray();
+        case COLLECTION:
+          return readCollection();
+        case MAP:
+          return readMap();
+        case BEAN:
+          return readBean();
+        case SERIALIZED:
+          Object value = javaSerializer.deserialize(readBytes());
+          // registered like any other object so that handles match the ones of the writer
+          handles.add(value);
+          return value;
+        default:
+          throw new CacheException("Unknown compact serialization tag " + tag);
+      }
+    }
+
+    private Object readArray() throws Exception {
+      Class<?> componentType = readClass();
+      Object[] array = (Object[]) Array.newInstance(componentType, readVarInt());
+      handles.add(array);
+      for (int i = 0; i < array.length; i++) {
+        array[i] = readValue();
+      }
+      return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection() throws Exception {
+      Collection<Object> collection = (Collection<Object>) readClass().getDeclaredConstructor().newInstance();
+      handles.add(collection);
+      int size = readVarInt();
+      for (int i = 0; i < size; i++) {
+        collection.add(readValue());
+      }
+      return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap() throws Exception {
+      Map<Object, Object> map = (Map<Object, Object>) readClass().getDeclaredConstructor().newInstance();
+      handles.add(map);
+      int size = readVarInt();
+      for (int i = 0; i < size; i++) {
+        Object key = readValue();
+        map.put(key, readValue());
+      }
+      return map;
+    }
+
+    private Object readBean() throws Exception {
+      BeanType beanType = beanType(readClass());
+      Object bean = beanType.constructor.newInstance();
+      handles.add(bean);
+      for (Invoker setter : beanType.setters) {
+        setter.invoke(bean, new Object[] { readValue() });
+      }
+      return bean;
+    }
+
+    private Class<?> readClass() throws IOException, ClassNotFoundException {
+      int id = readVarInt();
+      if (id == 0) {
+        Class<?> type = classForName(readString());
+        classIds.add(type);
+        return type;
+      }
+      return classIds.get(id - 1);
+    }
+
+    private String readString() throws IOException {
+      return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] bytes = new byte[readVarInt()];
+      in.readFully(bytes);
+      return bytes;
+    }
+
+    private int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0;; shift += 7) {
+        int b = in.readByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+    }
+  }
+
+}
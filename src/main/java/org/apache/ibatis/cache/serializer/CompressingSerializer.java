@@ -0,0 +1,103 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Serializer that deflates the output of another serializer.
+ * <p>
+ * Payloads smaller than the threshold are stored as they are, since compressing them costs more than it saves.
+ */
+public class CompressingSerializer implements CacheSerializer {
+
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+
+  private final CacheSerializer delegate;
+  private final int threshold;
+
+  public CompressingSerializer(CacheSerializer delegate) {
+    this(delegate, 1024);
+  }
+
+  public CompressingSerializer(CacheSerializer delegate, int threshold) {
+    this.delegate = delegate;
+    this.threshold = threshold;
+  }
+
+  @Override
+  public byte[] serialize(Object value) {
+    byte[] bytes = delegate.serialize(value);
+    if (bytes.length < threshold) {
+      byte[] raw = new byte[bytes.length + 1];
+      raw[0] = RAW;
+      System.arraycopy(bytes, 0, raw, 1, bytes.length);
+      return raw;
+    }
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length / 2 + 5);
+      bos.write(DEFLATED);
+      bos.write(bytes.length >>> 24);
+      bos.write(bytes.length >>> 16);
+      bos.write(bytes.length >>> 8);
+      bos.write(bytes.length);
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        bos.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return bos.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    if (bytes[0] == RAW) {
+      return delegate.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+    int length = (bytes[1] & 0xFF) << 24 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 8 | bytes[4] & 0xFF;
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, 5, bytes.length - 5);
+      byte[] inflated = new byte[length];
+      int offset = 0;
+      while (offset < length) {
+        int count = inflater.inflate(inflated, offset, length - offset);
+        if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new CacheException("Error inflating cached object.  Cause: truncated data");
+        }
+        offset += count;
+      }
+      return delegate.deserialize(inflated);
+    } catch (DataFormatException e) {
+      throw new CacheException("Error inflating cached object.  Cause: " + e, e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+}
@@ -0,0 +1,272 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The connections of a pool, borrowed and returned without locking.
+ * <p>
+ * Entries are claimed by switching their state with a CAS. A thread first tries the entries it returned last, which
+ * are kept in a thread local list, then scans all entries. A returned entry is handed directly to a waiting thread when
+ * there is one.
+ * <p>
+ * A slot is reserved before a physical connection is opened, so that connections being opened count toward the size
+ * limit while no lock is held. Waiting threads are woken up when a slot is freed, to open a connection themselves.
+ */
+class ConnectionBag {
+
+  private static final int MAX_LOCAL_ENTRIES = 16;
+  private static final PoolEntry SLOT_FREED = new PoolEntry(null, PoolEntry.STATE_REMOVED);
+
+  private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<PoolEntry>>> localEntries = ThreadLocal
+      .withInitial(() -> new ArrayList<>(MAX_LOCAL_ENTRIES));
+  private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  // entries plus reserved slots
+  private final AtomicInteger slots = new AtomicInteger();
+
+  /**
+   * Borrows an idle entry without waiting.
+   *
+   * @return the entry, now in use, or null if there is no idle entry
+   */
+  PoolEntry borrow() {
+    List<WeakReference<PoolEntry>> local = localEntries.get();
+    for (int i = local.size() - 1; i >= 0; i--) {
+      PoolEntry entry = local.remove(i).get();
+      if (entry != null && entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return scan();
+  }
+
+  /**
+   * Waits for an entry to be returned.
+   *
+   * @param timeout
+   *          how long to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return the entry, now in use, or null if none was returned in time or a slot was freed
+   * @throws InterruptedException
+   *           if the thread was interrupted while waiting
+   */
+  PoolEntry await(long timeout, TimeUnit unit) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      // entries returned before this thread was counted as a waiter were not handed off
+      PoolEntry entry = scan();
+      if (entry != null) {
+        return entry;
+      }
+      long remaining = unit.toNanos(timeout);
+      long deadline = System.nanoTime() + remaining;
+      while (remaining > 0) {
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || entry == SLOT_FREED) {
+          return null;
+        }
+        if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+          return entry;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns a borrowed entry, handing it to a waiting thread if there is one.
+   *
+   * @param entry
+   *          the entry
+   */
+  void requite(PoolEntry entry) {
+    entry.setState(PoolEntry.STATE_NOT_IN_USE);
+    if (handOff(entry)) {
+      return;
+    }
+    List<WeakReference<PoolEntry>> local = localEntries.get();
+    if (local.size() < MAX_LOCAL_ENTRIES) {
+      local.add(new WeakReference<>(entry));
+    }
+  }
+
+  /**
+   * Takes an idle entry out of reach of the borrowers, to check it.
+   *
+   * @param entry
+   *          the entry
+   * @return false if the entry is not idle
+   */
+  boolean hold(PoolEntry entry) {
+    return entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_HELD);
+  }
+
+  /**
+   * Makes a held entry idle again.
+   *
+   * @param entry
+   *          the entry
+   */
+  void restore(PoolEntry entry) {
+    entry.setState(PoolEntry.STATE_NOT_IN_USE);
+    handOff(entry);
+  }
+
+  /**
+   * Reserves a slot for a connection that is about to be opened.
+   *
+   * @param maxSize
+   *          the maximum number of entries and reserved slots
+   * @return false if the bag is full
+   */
+  boolean reserve(int maxSize) {
+    for (;;) {
+      int current = slots.get();
+      if (current >= maxSize) {
+        return false;
+      }
+      if (slots.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Adds an entry in the slot reserved for it.
+   *
+   * @param entry
+   *          the entry
+   */
+  void fill(PoolEntry entry) {
+    entries.add(entry);
+    if (entry.getState() == PoolEntry.STATE_NOT_IN_USE) {
+      handOff(entry);
+    }
+  }
+
+  /**
+   * Frees a reserved slot, typically because the connection could not be opened.
+   */
+  void cancel() {
+    slots.decrementAndGet();
+    handOff(SLOT_FREED);
+  }
+
+  void add(PoolEntry entry) {
+    slots.incrementAndGet();
+    entries.add(entry);
+  }
+
+  boolean remove(PoolEntry entry) {
+    entry.setState(PoolEntry.STATE_REMOVED);
+    if (!entries.remove(entry)) {
+      return false;
+    }
+    slots.decrementAndGet();
+    handOff(SLOT_FREED);
+    return true;
+  }
+
+  /**
+   * Gets all entries, whatever their state.
+   *
+   * @return a snapshot of the entries
+   */
+  List<PoolEntry> values() {
+    return new ArrayList<>(entries);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  int getPendingCount() {
+    return slots.get() - entries.size();
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (PoolEntry entry : entries) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Counts the idle entries, including the ones held to be checked.
+   *
+   * @return the number of idle entries
+   */
+  int getIdleCount() {
+    int count = 0;
+    for (PoolEntry entry : entries) {
+      int state = entry.getState();
+      if (state == PoolEntry.STATE_NOT_IN_USE || state == PoolEntry.STATE_HELD) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  boolean hasWaiters() {
+    return waiters.get() > 0;
+  }
+
+  int getWaiterCount() {
+    return waiters.get();
+  }
+
+  private boolean handOff(PoolEntry entry) {
+    for (int i = 0; waiters.get() > 0; i++) {
+      // stop once a returned entry was taken by a thread that scanned the entries
+      if ((entry != SLOT_FREED && entry.getState() != PoolEntry.STATE_NOT_IN_USE) || handoffQueue.offer(entry)) {
+        return true;
+      }
+      if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    return false;
+  }
+
+  private PoolEntry scan() {
+    for (PoolEntry entry : entries) {
+      if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A physical connection kept by the pool. It outlives the {@link PooledConnection}s that lend it out, one per checkout.
+ */
+final class PoolEntry {
+
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_REMOVED = -1;
+  static final int STATE_HELD = -2;
+
+  private final Connection realConnection;
+  private final AtomicInteger state;
+  private final AtomicReference<PooledConnection> owner = new AtomicReference<>();
+  private final long createdTimestamp;
+  private volatile long lastUsedTimestamp;
+  private volatile long checkoutTimestamp;
+  private volatile long checkoutNanoTime;
+  private volatile int connectionTypeCode;
+
+  PoolEntry(Connection realConnection, int state) {
+    this.realConnection = realConnection;
+    this.state = new AtomicInteger(state);
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  int getState() {
+    return state.get();
+  }
+
+  void setState(int state) {
+    this.state.set(state);
+  }
+
+  boolean compareAndSetState(int expect, int update) {
+    return state.compareAndSet(expect, update);
+  }
+
+  PooledConnection getOwner() {
+    return owner.get();
+  }
+
+  void setOwner(PooledConnection owner) {
+    this.owner.set(owner);
+  }
+
+  /**
+   * Takes the entry away from the given owner.
+   *
+   * @param owner
+   *          the connection the entry is expected to be lent to
+   * @return false if the entry was already returned, claimed by another thread or closed
+   */
+  boolean release(PooledConnection owner) {
+    return this.owner.compareAndSet(owner, null);
+  }
+
+  long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+  long getCheckoutTimestamp() {
+    return checkoutTimestamp;
+  }
+
+  void setCheckoutTimestamp(long checkoutTimestamp) {
+    this.checkoutTimestamp = checkoutTimestamp;
+  }
+
+  long getCheckoutNanoTime() {
+    return checkoutNanoTime;
+  }
+
+  void setCheckoutNanoTime(long checkoutNanoTime) {
+    this.checkoutNanoTime = checkoutNanoTime;
+  }
+
+  int getConnectionTypeCode() {
+    return connectionTypeCode;
+  }
+
+  void setConnectionTypeCode(int connectionTypeCode) {
+    this.connectionTypeCode = connectionTypeCode;
+  }
+
+}
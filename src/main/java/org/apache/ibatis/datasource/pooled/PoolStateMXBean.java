@@ -0,0 +1,71 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * The statistics of a {@link PooledDataSource}, as published over JMX when
+ * {@link PooledDataSource#setPoolRegisterMbeans(boolean)} is enabled. Durations are in milliseconds.
+ */
+public interface PoolStateMXBean {
+
+  int getActiveConnectionCount();
+
+  int getIdleConnectionCount();
+
+  int getPendingConnectionCount();
+
+  int getWaitingThreadCount();
+
+  long getRequestCount();
+
+  long getHadToWaitCount();
+
+  long getBadConnectionCount();
+
+  long getClaimedOverdueConnectionCount();
+
+  long getAverageRequestTime();
+
+  long getAverageWaitTime();
+
+  long getAverageCheckoutTime();
+
+  long getAverageOverdueCheckoutTime();
+
+  /**
+   * Gets the time callers spent in getConnection, whether they had to wait for a connection or not.
+   *
+   * @return the histogram
+   */
+  LatencyHistogram getWaitTimeHistogram();
+
+  /**
+   * Gets the time connections were held before they were returned or claimed as overdue.
+   *
+   * @return the histogram
+   */
+  LatencyHistogram getCheckoutTimeHistogram();
+
+  /**
+   * Gets the time spent opening physical connections.
+   *
+   * @return the histogram
+   */
+  LatencyHistogram getConnectTimeHistogram();
+
+  void resetHistograms();
+
+}
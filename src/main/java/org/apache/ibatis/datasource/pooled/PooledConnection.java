@@ -33,32 +33,37 @@ class PooledConnection implements InvocationHandler {
 
   private final int hashCode;
   private final PooledDataSource dataSource;
+  private final PoolEntry entry;
   private final Connection realConnection;
   private final Connection proxyConnection;
-  private long checkoutTimestamp;
-  private long createdTimestamp;
-  private long lastUsedTimestamp;
-  private int connectionTypeCode;
-  private boolean valid;
+  private volatile boolean valid;
 
   /**
-   * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
+   * Constructor for SimplePooledConnection that lends out the pool entry passed in.
    *
-   * @param connection
-   *          - the connection that is to be presented as a pooled connection
+   * @param entry
+   *          - the pool entry holding the connection that is to be presented as a pooled connection
    * @param dataSource
    *          - the dataSource that the connection is from
    */
-  public PooledConnection(Connection connection, PooledDataSource dataSource) {
-    this.hashCode = connection.hashCode();
-    this.realConnection = connection;
+  public PooledConnection(PoolEntry entry, PooledDataSource dataSource) {
+    this.hashCode = entry.getRealConnection().hashCode();
+    this.entry = entry;
+    this.realConnection = entry.getRealConnection();
     this.dataSource = dataSource;
-    this.createdTimestamp = System.currentTimeMillis();
-    this.lastUsedTimestamp = System.currentTimeMillis();
     this.valid = true;
     this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
   }
 
+  /**
+   * Getter for the pool entry that this lends out.
+   *
+   * @return The pool entry
+   */
+  PoolEntry getPoolEntry() {
+    return entry;
+  }
+
   /**
    * Invalidates the connection.
    */
@@ -108,7 +113,7 @@ class PooledConnection implements InvocationHandler {
    * @return The connection type
    */
   public int getConnectionTypeCode() {
-    return connectionTypeCode;
+    return entry.getConnectionTypeCode();
   }
 
   /**
@@ -118,7 +123,7 @@ class PooledConnection implements InvocationHandler {
    *          - the connection type
    */
   public void setConnectionTypeCode(int connectionTypeCode) {
-    this.connectionTypeCode = connectionTypeCode;
+    entry.setConnectionTypeCode(connectionTypeCode);
   }
 
   /**
@@ -127,17 +132,7 @@ class PooledConnection implements InvocationHandler {
    * @return The creation timestamp
    */
   public long getCreatedTimestamp() {
-    return createdTimestamp;
-  }
-
-  /**
-   * Setter for the time that the connection was created.
-   *
-   * @param createdTimestamp
-   *          - the timestamp
-   */
-  public void setCreatedTimestamp(long createdTimestamp) {
-    this.createdTimestamp = createdTimestamp;
+    return entry.getCreatedTimestamp();
   }
 
   /**
@@ -146,7 +141,7 @@ class PooledConnection implements InvocationHandler {
    * @return - the timestamp
    */
   public long getLastUsedTimestamp() {
-    return lastUsedTimestamp;
+    return entry.getLastUsedTimestamp();
   }
 
   /**
@@ -156,7 +151,7 @@ class PooledConnection implements InvocationHandler {
    *          - the timestamp
    */
   public void setLastUsedTimestamp(long lastUsedTimestamp) {
-    this.lastUsedTimestamp = lastUsedTimestamp;
+    entry.setLastUsedTimestamp(lastUsedTimestamp);
   }
 
   /**
@@ -165,7 +160,7 @@ class PooledConnection implements InvocationHandler {
    * @return - the time since the last use
    */
   public long getTimeElapsedSinceLastUse() {
-    return System.currentTimeMillis() - lastUsedTimestamp;
+    return System.currentTimeMillis() - entry.getLastUsedTimestamp();
   }
 
   /**
@@ -174,7 +169,7 @@ class PooledConnection implements InvocationHandler {
    * @return the age
    */
   public long getAge() {
-    return System.currentTimeMillis() - createdTimestamp;
+    return System.currentTimeMillis() - entry.getCreatedTimestamp();
   }
 
   /**
@@ -183,7 +178,7 @@ class PooledConnection implements InvocationHandler {
    * @return the timestamp
    */
   public long getCheckoutTimestamp() {
-    return checkoutTimestamp;
+    return entry.getCheckoutTimestamp();
   }
 
   /**
@@ -193,7 +188,7 @@ class PooledConnection implements InvocationHandler {
    *          the timestamp
    */
   public void setCheckoutTimestamp(long timestamp) {
-    this.checkoutTimestamp = timestamp;
+    entry.setCheckoutTimestamp(timestamp);
   }
 
   /**
@@ -202,7 +197,7 @@ class PooledConnection implements InvocationHandler {
    * @return the time
    */
   public long getCheckoutTime() {
-    return System.currentTimeMillis() - checkoutTimestamp;
+    return System.currentTimeMillis() - entry.getCheckoutTimestamp();
   }
 
   @Override
@@ -16,19 +16,25 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
@@ -36,13 +42,19 @@ import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
 /**
- * This is a simple, synchronous, thread-safe database connection pool.
+ * This is a simple, thread-safe database connection pool.
+ * <p>
+ * Connections are checked out and returned without a pool wide lock, see {@link ConnectionBag}. A connection returned
+ * while other threads wait for one is handed to one of them directly. New connections are opened by the thread that
+ * needs one, without blocking the others; connections being opened count toward the maximum of active connections.
  *
  * @author Clinton Begin
  */
 public class PooledDataSource implements DataSource {
 
   private static final Log log = LogFactory.getLog(PooledDataSource.class);
+  private static final String NO_PING_QUERY = "NO PING QUERY SET";
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
 
   private final PoolState state = new PoolState(this);
 
@@ -54,14 +66,25 @@ public class PooledDataSource implements DataSource {
   protected int poolMaximumCheckoutTime = 20000;
   protected int poolTimeToWait = 20000;
   protected int poolMaximumLocalBadConnectionTolerance = 3;
-  protected String poolPingQuery = "NO PING QUERY SET";
+  protected String poolPingQuery = NO_PING_QUERY;
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
-
-  private int expectedConnectionTypeCode;
-
-  private final Lock lock = new ReentrantLock();
-  private final Condition condition = lock.newCondition();
+  protected int poolValidationTimeout = 5000;
+  protected int poolHousekeepingInterval;
+  protected int poolMaximumIdleTime;
+  protected int poolMaximumLifetime;
+  protected int poolMinimumIdle;
+  protected boolean poolEagerInitialization;
+  protected String poolName = "pool-" + POOL_COUNT.incrementAndGet();
+  protected boolean poolRegisterMbeans;
+
+  private volatile int expectedConnectionTypeCode;
+  private final AtomicReference<PoolHousekeeper> housekeeper = new AtomicReference<>();
+  private final AtomicInteger generation = new AtomicInteger();
+  // set on first use or prefill; the setters force close a pool that is still being configured, which is not refilled
+  private volatile boolean started;
+  private volatile boolean mbeanRegistrationDone;
+  private ObjectName mbeanName;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -228,7 +251,8 @@ public class PooledDataSource implements DataSource {
   }
 
   /**
-   * The query to be used to check a connection.
+   * The query to be used to check a connection. When it is not set, connections are checked with
+   * {@link Connection#isValid(int)}.
    *
    * @param poolPingQuery
    *          The query
@@ -261,6 +285,82 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The time to wait for the database when a connection is checked with {@link Connection#isValid(int)}.
+   *
+   * @param milliseconds
+   *          the timeout in milliseconds, rounded up to seconds
+   */
+  public void setPoolValidationTimeout(int milliseconds) {
+    this.poolValidationTimeout = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * How often idle connections are checked in the background. While this is enabled, connections are never pinged
+   * when they are checked out or returned; idle ones are pinged by a background thread instead, and the ones past
+   * {@link #setPoolMaximumIdleTime(int)} or {@link #setPoolMaximumLifetime(int)} are closed.
+   *
+   * @param milliseconds
+   *          the interval in milliseconds, or 0 to disable the background checks
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    PoolHousekeeper previous = housekeeper.getAndSet(null);
+    if (previous != null) {
+      previous.stop();
+    }
+    forceCloseAll();
+  }
+
+  /**
+   * The time after which an idle connection is closed by the background checks.
+   *
+   * @param milliseconds
+   *          the time in milliseconds, or 0 to keep idle connections
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The time after which a connection is closed, once it is idle.
+   *
+   * @param milliseconds
+   *          the time in milliseconds since the connection was opened, or 0 to never retire connections
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The number of idle connections the pool keeps ready, opening new ones in the background when needed. It is capped
+   * by the maximum numbers of idle and active connections.
+   *
+   * @param poolMinimumIdle
+   *          The minimum number of idle connections
+   */
+  public void setPoolMinimumIdle(int poolMinimumIdle) {
+    this.poolMinimumIdle = poolMinimumIdle;
+    forceCloseAll();
+  }
+
+  /**
+   * Determines if the minimum of idle connections is opened as soon as the pool is configured by
+   * {@link PooledDataSourceFactory}, rather than on first use. This has no effect unless
+   * {@link #setPoolMinimumIdle(int)} is set too.
+   *
+   * @param poolEagerInitialization
+   *          True to fill the pool at startup
+   * @see #prefill()
+   */
+  public void setPoolEagerInitialization(boolean poolEagerInitialization) {
+    this.poolEagerInitialization = poolEagerInitialization;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -331,47 +431,115 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolValidationTimeout() {
+    return poolValidationTimeout;
+  }
+
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
   /**
-   * Closes all active and idle connections in the pool.
+   * The name of the pool, which names its MBean.
+   *
+   * @param poolName
+   *          The name
    */
-  public void forceCloseAll() {
-    lock.lock();
-    try {
-      expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
-      for (int i = state.activeConnections.size(); i > 0; i--) {
-        try {
-          PooledConnection conn = state.activeConnections.remove(i - 1);
-          conn.invalidate();
+  public void setPoolName(String poolName) {
+    unregisterMBean();
+    this.poolName = poolName;
+  }
 
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
-        }
-      }
-      for (int i = state.idleConnections.size(); i > 0; i--) {
-        try {
-          PooledConnection conn = state.idleConnections.remove(i - 1);
-          conn.invalidate();
+  /**
+   * Determines if the statistics of the pool are published as an MBean, see {@link PoolStateMXBean}. The MBean is
+   * registered on first use, under {@code org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=<poolName>},
+   * and keeps the pool reachable until this is disabled again or the pool is {@link #close() closed}.
+   *
+   * @param poolRegisterMbeans
+   *          True to register the MBean
+   */
+  public void setPoolRegisterMbeans(boolean poolRegisterMbeans) {
+    unregisterMBean();
+    this.poolRegisterMbeans = poolRegisterMbeans;
+  }
 
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
-        }
+  public String getPoolName() {
+    return poolName;
+  }
+
+  public boolean isPoolRegisterMbeans() {
+    return poolRegisterMbeans;
+  }
+
+  public int getPoolMinimumIdle() {
+    return poolMinimumIdle;
+  }
+
+  public boolean isPoolEagerInitialization() {
+    return poolEagerInitialization;
+  }
+
+  /**
+   * Closes all active and idle connections in the pool. A pool that was already used or prefilled then opens its
+   * minimum of idle connections again, like after closing any other connection.
+   */
+  public void forceCloseAll() {
+    generation.incrementAndGet();
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (PoolEntry entry : state.connections.values()) {
+      state.connections.remove(entry);
+      PooledConnection owner = entry.getOwner();
+      if (owner != null && entry.release(owner)) {
+        owner.invalidate();
       }
-    } finally {
-      lock.unlock();
+      closeQuietly(entry);
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
     }
+    if (started) {
+      fill();
+    }
+  }
+
+  /**
+   * Closes the pool once it is no longer needed: unregisters its MBean, stops the background checks and closes all
+   * connections. A closed pool that is used again starts over.
+   */
+  public void close() {
+    unregisterMBean();
+    PoolHousekeeper previous = housekeeper.getAndSet(null);
+    if (previous != null) {
+      previous.stop();
+    }
+    started = false;
+    forceCloseAll();
+  }
+
+  /**
+   * Opens connections in parallel until the pool holds {@link #setPoolMinimumIdle(int) the minimum of idle
+   * connections}, and waits for them. Like after the first use, the pool is from then on also refilled after
+   * {@link #forceCloseAll()}.
+   */
+  public void prefill() {
+    if (poolRegisterMbeans && !mbeanRegistrationDone) {
+      registerMBean();
+    }
+    if (getMinimumIdle() <= 0) {
+      log.warn("Pool " + poolName + " is initialized eagerly, but opens no connection because poolMinimumIdle is "
+          + poolMinimumIdle + ".");
+    }
+    started = true;
+    List<CompletableFuture<Void>> fills = fill();
+    CompletableFuture.allOf(fills.toArray(new CompletableFuture[0])).join();
   }
 
   public PoolState getPoolState() {
@@ -383,44 +551,46 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
-
-    lock.lock();
-    try {
-      state.activeConnections.remove(conn);
-      if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
-          state.idleConnections.add(newConn);
-          newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
-          newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
-          conn.invalidate();
-          if (log.isDebugEnabled()) {
-            log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
-          }
-          condition.signal();
-        } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          conn.getRealConnection().close();
-          if (log.isDebugEnabled()) {
-            log.debug("Closed connection " + conn.getRealHashCode() + ".");
-          }
-          conn.invalidate();
-        }
-      } else {
-        if (log.isDebugEnabled()) {
-          log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+    PoolEntry entry = conn.getPoolEntry();
+    // fails when the connection was claimed as overdue, force closed or closed twice
+    boolean owned = entry.release(conn);
+    if (!owned || !conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      conn.invalidate();
+      if (owned) {
+        state.connections.remove(entry);
+        fill();
+      }
+      state.badConnectionCount.increment();
+      return;
+    }
+    state.accumulatedCheckoutTime.add(conn.getCheckoutTime());
+    state.checkoutTimeHistogram.record(System.nanoTime() - entry.getCheckoutNanoTime(), TimeUnit.NANOSECONDS);
+    conn.invalidate();
+    long now = System.currentTimeMillis();
+    if ((state.connections.hasWaiters() || state.getIdleConnectionCount() < poolMaximumIdleConnections)
+        && conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(entry, now)) {
+      rollbackIfNeeded(entry);
+      entry.setLastUsedTimestamp(now);
+      state.connections.requite(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+    } else {
+      state.connections.remove(entry);
+      try {
+        if (!entry.getRealConnection().getAutoCommit()) {
+          entry.getRealConnection().rollback();
         }
-        state.badConnectionCount++;
+      } finally {
+        entry.getRealConnection().close();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
       }
-    } finally {
-      lock.unlock();
+      fill();
     }
   }
 
@@ -428,109 +598,89 @@ public class PooledDataSource implements DataSource {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
+    long start = System.nanoTime();
     int localBadConnectionCount = 0;
+    if (poolHousekeepingInterval > 0 && housekeeper.get() == null) {
+      startHousekeeping();
+    }
+    if (poolRegisterMbeans && !mbeanRegistrationDone) {
+      registerMBean();
+    }
+    started = true;
 
     while (conn == null) {
-      lock.lock();
-      try {
-        if (!state.idleConnections.isEmpty()) {
-          // Pool has available connection
-          conn = state.idleConnections.remove(0);
-          if (log.isDebugEnabled()) {
-            log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
-          }
-        } else {
-          // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-            // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
+      PoolEntry entry = state.connections.borrow();
+      if (entry != null) {
+        // Pool has available connection
+        conn = new PooledConnection(entry, this);
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+      } else {
+        // Pool does not have available connection
+        conn = createConnection();
+        if (conn == null) {
+          conn = claimOverdueConnection();
+        }
+        if (conn == null) {
+          // Must wait
+          try {
+            if (!countedWait) {
+              state.hadToWaitCount.increment();
+              countedWait = true;
+            }
             if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
+              log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
             }
-          } else {
-            // Cannot create new connection
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
-              // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
-              state.activeConnections.remove(oldestActiveConnection);
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                try {
-                  oldestActiveConnection.getRealConnection().rollback();
-                } catch (SQLException e) {
-                  /*
-                     Just log a message for debug and continue to execute the following
-                     statement like nothing happened.
-                     Wrap the bad connection with a new PooledConnection, this will help
-                     to not interrupt current executing thread and give current thread a
-                     chance to join the next competition for another valid/good database
-                     connection. At the end of this loop, bad {@link @conn} will be set as null.
-                   */
-                  log.debug("Bad connection. Could not roll back");
-                }
-              }
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-              conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
-              conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
-              oldestActiveConnection.invalidate();
-              if (log.isDebugEnabled()) {
-                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
-              }
-            } else {
-              // Must wait
-              try {
-                if (!countedWait) {
-                  state.hadToWaitCount++;
-                  countedWait = true;
-                }
-                if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
-                }
-                long wt = System.currentTimeMillis();
-                condition.await(poolTimeToWait, TimeUnit.MILLISECONDS);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                // set interrupt flag
-                Thread.currentThread().interrupt();
-                break;
-              }
+            long wt = System.currentTimeMillis();
+            entry = state.connections.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+            state.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
+            if (entry != null) {
+              conn = new PooledConnection(entry, this);
             }
+          } catch (InterruptedException e) {
+            // set interrupt flag
+            Thread.currentThread().interrupt();
+            break;
           }
         }
-        if (conn != null) {
-          // ping to server and check the connection is valid or not
-          if (conn.isValid()) {
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
-            }
-            conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
-            conn.setCheckoutTimestamp(System.currentTimeMillis());
-            conn.setLastUsedTimestamp(System.currentTimeMillis());
-            state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
-          } else {
-            if (log.isDebugEnabled()) {
-              log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
-            }
-            state.badConnectionCount++;
-            localBadConnectionCount++;
+      }
+      if (conn != null) {
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          rollbackIfNeeded(conn.getPoolEntry());
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          conn.getPoolEntry().setCheckoutNanoTime(System.nanoTime());
+          conn.getPoolEntry().setOwner(conn);
+          if (conn.getPoolEntry().getState() == PoolEntry.STATE_REMOVED) {
+            // forceCloseAll() removed the entry before it had an owner to invalidate, and may have closed it already
+            conn.getPoolEntry().release(conn);
+            closeQuietly(conn.getPoolEntry());
             conn = null;
-            if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
-              if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Could not get a good connection to the database.");
-              }
-              throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+            continue;
+          }
+          state.requestCount.increment();
+          state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
+          state.waitTimeHistogram.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          fill();
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          state.connections.remove(conn.getPoolEntry());
+          state.badConnectionCount.increment();
+          localBadConnectionCount++;
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+            if (log.isDebugEnabled()) {
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
             }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
           }
         }
-      } finally {
-        lock.unlock();
       }
-
     }
 
     if (conn == null) {
@@ -543,6 +693,230 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  private PooledConnection createConnection() throws SQLException {
+    if (!state.connections.reserve(poolMaximumActiveConnections)) {
+      return null;
+    }
+    // Can create new connection
+    PoolEntry entry;
+    try {
+      long start = System.nanoTime();
+      entry = new PoolEntry(dataSource.getConnection(), PoolEntry.STATE_IN_USE);
+      state.connectTimeHistogram.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    } catch (SQLException | RuntimeException e) {
+      // wake up a waiting thread so that it tries for itself instead of waiting for this connection
+      state.connections.cancel();
+      throw e;
+    }
+    state.connections.fill(entry);
+    PooledConnection conn = new PooledConnection(entry, this);
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private PooledConnection claimOverdueConnection() {
+    PoolEntry oldestEntry = null;
+    PooledConnection oldestActiveConnection = null;
+    for (PoolEntry entry : state.connections.values()) {
+      PooledConnection owner = entry.getOwner();
+      if (owner != null && entry.getState() == PoolEntry.STATE_IN_USE
+          && (oldestEntry == null || entry.getCheckoutTimestamp() < oldestEntry.getCheckoutTimestamp())) {
+        oldestEntry = entry;
+        oldestActiveConnection = owner;
+      }
+    }
+    if (oldestEntry == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    if (longestCheckoutTime <= poolMaximumCheckoutTime || !oldestEntry.release(oldestActiveConnection)) {
+      // Cannot claim, or the connection was returned in the meantime
+      return null;
+    }
+    // Can claim overdue connection
+    state.claimedOverdueConnectionCount.increment();
+    state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+    state.accumulatedCheckoutTime.add(longestCheckoutTime);
+    state.checkoutTimeHistogram.record(System.nanoTime() - oldestEntry.getCheckoutNanoTime(), TimeUnit.NANOSECONDS);
+    oldestActiveConnection.invalidate();
+    try {
+      if (!oldestEntry.getRealConnection().getAutoCommit()) {
+        oldestEntry.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      /*
+         Just log a message for debug and continue to execute the following
+         statement like nothing happened.
+         Wrap the bad connection with a new PooledConnection, this will help
+         to not interrupt current executing thread and give current thread a
+         chance to join the next competition for another valid/good database
+         connection. At the end of this loop, bad {@link @conn} will be set as null.
+       */
+      log.debug("Bad connection. Could not roll back");
+    }
+    PooledConnection conn = new PooledConnection(oldestEntry, this);
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private void rollbackIfNeeded(PoolEntry entry) throws SQLException {
+    try {
+      if (!entry.getRealConnection().getAutoCommit()) {
+        entry.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      state.connections.remove(entry);
+      closeQuietly(entry);
+      throw e;
+    }
+  }
+
+  private void closeQuietly(PoolEntry entry) {
+    try {
+      Connection realConn = entry.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private void startHousekeeping() {
+    PoolHousekeeper started = PoolHousekeeper.start(this, poolHousekeepingInterval);
+    if (!housekeeper.compareAndSet(null, started)) {
+      started.stop();
+    }
+  }
+
+  /**
+   * Pings the idle connections and closes the ones that are bad, idle for too long or too old.
+   */
+  void housekeep() {
+    long now = System.currentTimeMillis();
+    int idle = state.getIdleConnectionCount();
+    for (PoolEntry entry : state.connections.values()) {
+      if (!state.connections.hold(entry)) {
+        // in use or removed
+        continue;
+      }
+      if (isExpired(entry, now) || (poolMaximumIdleTime > 0 && now - entry.getLastUsedTimestamp() > poolMaximumIdleTime
+          && idle > getMinimumIdle())) {
+        idle--;
+        closeQuietly(entry);
+        state.connections.remove(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Evicted idle connection " + entry.getRealConnection().hashCode() + ".");
+        }
+      } else if (!pingConnection(entry, poolPingEnabled)) {
+        closeQuietly(entry);
+        state.connections.remove(entry);
+        state.badConnectionCount.increment();
+      } else {
+        state.connections.restore(entry);
+      }
+    }
+    fill();
+  }
+
+  private int getMinimumIdle() {
+    return Math.min(poolMinimumIdle, Math.min(poolMaximumIdleConnections, poolMaximumActiveConnections));
+  }
+
+  /**
+   * Starts opening the connections missing to reach the minimum of idle connections, each in a background thread.
+   *
+   * @return the connections being opened
+   */
+  private List<CompletableFuture<Void>> fill() {
+    int minimumIdle = getMinimumIdle();
+    if (minimumIdle <= 0) {
+      return Collections.emptyList();
+    }
+    int missing = minimumIdle - state.getIdleConnectionCount() - state.connections.getPendingCount();
+    List<CompletableFuture<Void>> fills = new ArrayList<>();
+    // a fill still queued when the pool is force closed must not open a connection afterwards
+    int expectedGeneration = generation.get();
+    for (int i = 0; i < missing && state.connections.reserve(poolMaximumActiveConnections); i++) {
+      fills.add(CompletableFuture.runAsync(() -> openIdleConnection(expectedGeneration), PoolHousekeeper.filler()));
+    }
+    return fills;
+  }
+
+  private void openIdleConnection(int expectedGeneration) {
+    Connection realConn;
+    try {
+      long start = System.nanoTime();
+      realConn = dataSource.getConnection();
+      state.connectTimeHistogram.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    } catch (SQLException | RuntimeException e) {
+      state.connections.cancel();
+      log.warn("Could not open an idle connection. Cause: " + e);
+      return;
+    }
+    if (generation.get() != expectedGeneration) {
+      // the pool was force closed in the meantime, maybe with other settings
+      state.connections.cancel();
+      try {
+        realConn.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+      if (started) {
+        // the refill after forceCloseAll() counted on this connection
+        fill();
+      }
+      return;
+    }
+    PoolEntry entry = new PoolEntry(realConn, PoolEntry.STATE_NOT_IN_USE);
+    state.connections.fill(entry);
+    if (generation.get() != expectedGeneration && state.connections.hold(entry)) {
+      // force closed while being added, before forceCloseAll() could see it
+      state.connections.remove(entry);
+      closeQuietly(entry);
+      return;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Opened idle connection " + realConn.hashCode() + ".");
+    }
+  }
+
+  private synchronized void registerMBean() {
+    if (mbeanRegistrationDone) {
+      return;
+    }
+    mbeanRegistrationDone = true;
+    try {
+      ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name="
+          + ObjectName.quote(poolName));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(state, name);
+      mbeanName = name;
+    } catch (JMException e) {
+      log.warn("Could not register the MBean of pool " + poolName + ". Cause: " + e);
+    }
+  }
+
+  private synchronized void unregisterMBean() {
+    mbeanRegistrationDone = false;
+    if (mbeanName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+      } catch (JMException e) {
+        // ignore
+      }
+      mbeanName = null;
+    }
+  }
+
+  private boolean isExpired(PoolEntry entry, long now) {
+    return poolMaximumLifetime > 0 && now - entry.getCreatedTimestamp() > poolMaximumLifetime;
+  }
+
   /**
    * Method to check to see if a connection is still usable
    *
@@ -551,44 +925,61 @@ public class PooledDataSource implements DataSource {
    * @return True if the connection is still usable
    */
   protected boolean pingConnection(PooledConnection conn) {
+    // with housekeeping, idle connections are pinged in the background rather than on the way in and out
+    return pingConnection(conn.getPoolEntry(), poolPingEnabled && poolHousekeepingInterval <= 0);
+  }
+
+  private boolean pingConnection(PoolEntry entry, boolean ping) {
     boolean result = true;
+    Connection realConn = entry.getRealConnection();
 
     try {
-      result = !conn.getRealConnection().isClosed();
+      result = !realConn.isClosed();
     } catch (SQLException e) {
       if (log.isDebugEnabled()) {
-        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+        log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
       }
       result = false;
     }
 
-    if (result && poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
-        && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+    if (result && ping && poolPingConnectionsNotUsedFor >= 0
+        && System.currentTimeMillis() - entry.getLastUsedTimestamp() > poolPingConnectionsNotUsedFor) {
+      boolean pingQuerySet = poolPingQuery != null && !NO_PING_QUERY.equals(poolPingQuery);
       try {
         if (log.isDebugEnabled()) {
-          log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+          log.debug("Testing connection " + realConn.hashCode() + " ...");
         }
-        Connection realConn = conn.getRealConnection();
-        try (Statement statement = realConn.createStatement()) {
-          statement.executeQuery(poolPingQuery).close();
-        }
-        if (!realConn.getAutoCommit()) {
-          realConn.rollback();
+        if (pingQuerySet) {
+          try (Statement statement = realConn.createStatement()) {
+            statement.executeQuery(poolPingQuery).close();
+          }
+          if (!realConn.getAutoCommit()) {
+            realConn.rollback();
+          }
+        } else {
+          int timeout = (poolValidationTimeout + 999) / 1000;
+          if (!realConn.isValid(timeout)) {
+            throw new SQLException("Connection.isValid(" + timeout + ") returned false");
+          }
         }
         result = true;
         if (log.isDebugEnabled()) {
-          log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+          log.debug("Connection " + realConn.hashCode() + " is GOOD!");
         }
       } catch (Exception e) {
-        log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+        if (pingQuerySet) {
+          log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+        } else {
+          log.warn("Validation of connection " + realConn.hashCode() + " failed: " + e.getMessage());
+        }
         try {
-          conn.getRealConnection().close();
+          realConn.close();
         } catch (Exception e2) {
           // ignore
         }
         result = false;
         if (log.isDebugEnabled()) {
-          log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+          log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
         }
       }
     }
@@ -614,6 +1005,7 @@ public class PooledDataSource implements DataSource {
 
   @Override
   protected void finalize() throws Throwable {
+    started = false;
     forceCloseAll();
     super.finalize();
   }
@@ -36,6 +36,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
@@ -53,6 +54,7 @@ public abstract class BaseExecutor implements Executor {
     protected ConcurrentLinkedQueue<DeferredLoad> deferredLoads;
     protected PerpetualCache localCache;
     protected PerpetualCache localOutputParameterCache;
+    private LocalCacheDependencies localCacheDependencies;
     protected Configuration configuration;
 
     protected int queryStack;
@@ -61,8 +63,9 @@ public abstract class BaseExecutor implements Executor {
     protected BaseExecutor(Configuration configuration, Transaction transaction) {
         this.transaction = transaction;
         this.deferredLoads = new ConcurrentLinkedQueue<>();
-        this.localCache = new PerpetualCache("LocalCache");
+        this.localCache = newLocalCache(configuration);
         this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+        this.localCacheDependencies = new LocalCacheDependencies();
         this.closed = false;
         this.configuration = configuration;
         this.wrapper = this;
@@ -94,6 +97,7 @@ public abstract class BaseExecutor implements Executor {
             deferredLoads = null;
             localCache = null;
             localOutputParameterCache = null;
+            localCacheDependencies = null;
             closed = true;
         }
     }
@@ -112,8 +116,13 @@ public abstract class BaseExecutor implements Executor {
         if (closed) {
             throw new ExecutorException("Executor was closed.");
         }
-        // 直接清除整个会发的缓存（Session）
-        clearLocalCache();
+        if (configuration.isTableBasedLocalCacheInvalidation()) {
+            // 只清除依赖于被写入的表的本地缓存
+            invalidateLocalCache(ms, parameter);
+        } else {
+            // 直接清除整个会发的缓存（Session）
+            clearLocalCache();
+        }
         return doUpdate(ms, parameter);
     }
 
@@ -172,6 +181,8 @@ public abstract class BaseExecutor implements Executor {
             }
             // issue #601
             deferredLoads.clear();
+            // 嵌套查询和延迟加载都已完成，这时才可以淘汰本地缓存中的条目
+            trimLocalCache();
             // 缓存的作用于是 STATEMENT
             if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
                 // 清空 本地缓存(session)
@@ -209,12 +220,12 @@ public abstract class BaseExecutor implements Executor {
         if (closed) {
             throw new ExecutorException("Executor was closed.");
         }
-        CacheKey cacheKey = new CacheKey();
+        CacheKey cacheKey = configuration.newCacheKey();
         // 是取的hashCode计算cacheKey
         cacheKey.update(ms.getId());
         cacheKey.update(rowBounds.getOffset());
         cacheKey.update(rowBounds.getLimit());
-        cacheKey.update(boundSql.getSql());
+        cacheKey.updateSql(boundSql.getSql());
         List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
         TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration()
                 .getTypeHandlerRegistry();
@@ -282,7 +293,57 @@ public abstract class BaseExecutor implements Executor {
         if (!closed) {
             localCache.clear();
             localOutputParameterCache.clear();
+            localCacheDependencies.clear();
+        }
+    }
+
+    private static PerpetualCache newLocalCache(Configuration configuration) {
+        // configuration 为 null 的是延迟加载反序列化时使用的 ClosedExecutor
+        if (configuration != null
+                && (configuration.getLocalCacheMaxSize() > 0 || configuration.getLocalCacheMaxWeightBytes() > 0)) {
+            return new BoundedLocalCache("LocalCache", configuration.getLocalCacheMaxSize(),
+                    configuration.getLocalCacheMaxWeightBytes(), configuration.getLocalCacheWeigher());
+        }
+        return new PerpetualCache("LocalCache");
+    }
+
+    private void trimLocalCache() {
+        if (localCache instanceof BoundedLocalCache) {
+            ((BoundedLocalCache) localCache).trim(key -> {
+                localOutputParameterCache.removeObject(key);
+                localCacheDependencies.remove(key);
+            });
+        }
+    }
+
+    private void invalidateLocalCache(MappedStatement ms, Object parameter) {
+        Set<String> tables = ms.getWriteTables();
+        if (tables == null) {
+            tables = TableNameParser.parseWriteTables(ms.getBoundSql(parameter).getSql());
+        }
+        if (tables == null) {
+            // 不知道写入了哪些表，只能全部清除
+            clearLocalCache();
+            return;
+        }
+        for (Object key : localCacheDependencies.removeDependentKeys(tables)) {
+            localCache.removeObject(key);
+            localOutputParameterCache.removeObject(key);
+        }
+    }
+
+    /**
+     * 本地缓存条目所依赖的表，null 表示未知
+     */
+    private static Set<String> readTables(MappedStatement ms, BoundSql boundSql) {
+        for (ResultMap resultMap : ms.getResultMaps()) {
+            if (resultMap.hasNestedQueries()) {
+                // 嵌套查询和延迟加载的结果也在这个条目中，它们读取的表无法在这里得知
+                return null;
+            }
         }
+        Set<String> tables = ms.getReadTables();
+        return tables != null ? tables : TableNameParser.parseReadTables(boundSql.getSql());
     }
 
     protected abstract int doUpdate(MappedStatement ms, Object parameter) throws SQLException;
@@ -352,6 +413,9 @@ public abstract class BaseExecutor implements Executor {
         }
         // 存入本地缓存（Session）
         localCache.putObject(key, list);
+        if (configuration.isTableBasedLocalCacheInvalidation()) {
+            localCacheDependencies.add(key, readTables(ms, boundSql));
+        }
         if (ms.getStatementType() == StatementType.CALLABLE) {
             localOutputParameterCache.putObject(key, parameter);
         }
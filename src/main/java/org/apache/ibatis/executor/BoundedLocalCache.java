@@ -0,0 +1,116 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+/**
+ * Local cache of an executor that is bounded by its number of entries and/or by the estimated weight of its result
+ * lists, evicting the least recently used ones.
+ * <p>
+ * Entries are never evicted while they are put, because nested queries and deferred loads of the running statement
+ * may still need them. The executor calls {@link #trim(Consumer)} once the outermost query has completed, and
+ * {@link ExecutionPlaceholder#EXECUTION_PLACEHOLDER} entries are never evicted.
+ *
+ * @see BaseExecutor
+ */
+class BoundedLocalCache extends PerpetualCache {
+
+  private final int maxSize;
+  private final long maxWeightBytes;
+  private final Weigher weigher;
+  private final Map<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+  private long totalWeight;
+
+  BoundedLocalCache(String id, int maxSize, long maxWeightBytes, Weigher weigher) {
+    super(id);
+    this.maxSize = maxSize;
+    this.maxWeightBytes = maxWeightBytes;
+    this.weigher = weigher;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    super.putObject(key, value);
+    untrack(key);
+    if (value != EXECUTION_PLACEHOLDER) {
+      long weight = maxWeightBytes > 0 ? weigher.weigh(key, value) : 0;
+      weights.put(key, weight);
+      totalWeight += weight;
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    // touches the entry
+    weights.get(key);
+    return super.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    untrack(key);
+    return super.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    weights.clear();
+    totalWeight = 0;
+    super.clear();
+  }
+
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache is within its bounds again.
+   *
+   * @param evictionListener
+   *          called with the key of each evicted entry
+   */
+  public void trim(Consumer<Object> evictionListener) {
+    Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+    while (iterator.hasNext() && isOverflowing()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      totalWeight -= eldest.getValue();
+      super.removeObject(eldest.getKey());
+      evictionListener.accept(eldest.getKey());
+    }
+  }
+
+  private boolean isOverflowing() {
+    return maxSize > 0 && weights.size() > maxSize || maxWeightBytes > 0 && totalWeight > maxWeightBytes;
+  }
+
+  private void untrack(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      totalWeight -= weight;
+    }
+  }
+
+}
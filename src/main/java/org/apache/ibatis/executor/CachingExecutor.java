@@ -16,19 +16,31 @@
 package org.apache.ibatis.executor;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheDependencyRegistry;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStatsCounter;
+import org.apache.ibatis.cache.CacheVersions;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Clinton Begin
@@ -37,11 +49,27 @@ import java.util.List;
 public class CachingExecutor implements Executor {
 
     private final Executor delegate;
-    private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+    private final TransactionalCacheManager tcm;
     private static final Log log = LogFactory.getLog(CachingExecutor.class);
 
     public CachingExecutor(Executor delegate) {
+        this(delegate, null);
+    }
+
+    /**
+     * @param invalidationBus 提交时把清空的缓存和写入的表发布给其他节点，可以为 null
+     */
+    public CachingExecutor(Executor delegate, CacheInvalidationBus invalidationBus) {
+        this(delegate, invalidationBus, null);
+    }
+
+    /**
+     * @param invalidationBus 提交时把清空的缓存和写入的表发布给其他节点，可以为 null
+     * @param versions 缓存的版本，不为 null 时事务在写入之后仍然可以读到自己待提交的缓存项
+     */
+    public CachingExecutor(Executor delegate, CacheInvalidationBus invalidationBus, CacheVersions versions) {
         this.delegate = delegate;
+        this.tcm = new TransactionalCacheManager(invalidationBus, versions);
         delegate.setExecutorWrapper(this);
     }
 
@@ -71,8 +99,14 @@ public class CachingExecutor implements Executor {
 
     @Override
     public int update(MappedStatement ms, Object parameterObject) throws SQLException {
+        // 之后的查询可能读到本事务未提交的数据，不能再和其他事务共享
+        tcm.addPendingWrites();
         // 刷新二级缓存（SQL级别的）
-        flushCacheIfRequired(ms);
+        if (ms.getConfiguration().isTableBasedCacheInvalidation()) {
+            flushDependentCachesIfRequired(ms, parameterObject);
+        } else {
+            flushCacheIfRequired(ms);
+        }
         return delegate.update(ms, parameterObject);
     }
 
@@ -111,13 +145,29 @@ public class CachingExecutor implements Executor {
             if (ms.isUseCache() && resultHandler == null) {
                 // 有 OUT 模式的参数，就报错。也就是不支持
                 ensureNoOutParams(ms, boundSql);
+                if (cache instanceof BlockingCache && ((BlockingCache) cache).isSingleFlight()) {
+                    // 并发未命中同一个key时共享一次查询
+                    @SuppressWarnings("unchecked") List<E> list = (List<E>) tcm.getObject(cache, key, () -> {
+                        if (ms.getConfiguration().isTableBasedCacheInvalidation()) {
+                            registerCacheDependencies(ms, cache, boundSql);
+                        }
+                        List<E> loaded = load(ms, cache, parameterObject, rowBounds, key, boundSql);
+                        prepareRefresh(ms, cache, parameterObject, rowBounds, key);
+                        return loaded;
+                    });
+                    return list;
+                }
                 @SuppressWarnings("unchecked") List<E> list = (List<E>) tcm.getObject(cache, key);
                 if (list != null) {
                     log.warn("命中二级缓存(SQL级别)--->" + ms.getId());
                 }
                 // 未命中缓存，就执行sql，然后在存储缓存
                 if (list == null) {
-                    list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+                    if (ms.getConfiguration().isTableBasedCacheInvalidation()) {
+                        registerCacheDependencies(ms, cache, boundSql);
+                    }
+                    list = load(ms, cache, parameterObject, rowBounds, key, boundSql);
+                    prepareRefresh(ms, cache, parameterObject, rowBounds, key);
                     tcm.putObject(cache, key, list); // issue #578 and #116
                 }
                 return list;
@@ -126,6 +176,22 @@ public class CachingExecutor implements Executor {
         return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
     }
 
+    @Override
+    public Map<CacheKey, List<Object>> queryCached(MappedStatement ms, Collection<CacheKey> keys) {
+        Cache cache = ms.getCache();
+        // 阻塞缓存会给每个未命中的 key 加锁，批量读取会同时持有很多锁，所以还是逐个读取
+        if (cache == null || !ms.isUseCache() || ms.isFlushCacheRequired() || cache instanceof BlockingCache
+                || ms.getStatementType() == StatementType.CALLABLE || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<CacheKey, List<Object>> results = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : tcm.getObjects(cache, keys).entrySet()) {
+            @SuppressWarnings("unchecked") List<Object> list = (List<Object>) entry.getValue();
+            results.put((CacheKey) entry.getKey(), list);
+        }
+        return results;
+    }
+
     @Override
     public List<BatchResult> flushStatements() throws SQLException {
         return delegate.flushStatements();
@@ -187,6 +253,93 @@ public class CachingExecutor implements Executor {
         }
     }
 
+    private void flushDependentCachesIfRequired(MappedStatement ms, Object parameterObject) {
+        if (!ms.isFlushCacheRequired()) {
+            return;
+        }
+        Set<String> tables = ms.getWriteTables();
+        if (tables == null) {
+            tables = TableNameParser.parseWriteTables(ms.getBoundSql(parameterObject).getSql());
+        }
+        if (tables == null) {
+            // the written tables are unknown, so fall back to the cache of the namespace
+            flushCacheIfRequired(ms);
+            return;
+        }
+        // 其他节点上依赖这些表的缓存由它们自己的 registry 找到
+        tcm.addWrittenTables(tables);
+        CacheDependencyRegistry registry = ms.getConfiguration().getCacheDependencyRegistry();
+        for (Cache dependentCache : registry.getDependentCaches(tables)) {
+            tcm.clear(dependentCache);
+        }
+        Cache cache = ms.getCache();
+        if (cache != null && registry.isUntracked(cache)) {
+            tcm.clear(cache);
+        }
+    }
+
+    private void registerCacheDependencies(MappedStatement ms, Cache cache, BoundSql boundSql) {
+        Set<String> tables = ms.getReadTables();
+        if (tables == null) {
+            tables = TableNameParser.parseReadTables(boundSql.getSql());
+        }
+        CacheDependencyRegistry registry = ms.getConfiguration().getCacheDependencyRegistry();
+        if (tables == null) {
+            registry.addUntrackedCache(cache);
+        } else {
+            registry.addDependencies(cache, tables);
+        }
+    }
+
+    /**
+     * 未命中二级缓存时执行查询，并记录耗时
+     */
+    private <E> List<E> load(MappedStatement ms, Cache cache, Object parameterObject, RowBounds rowBounds, CacheKey key,
+                             BoundSql boundSql) throws SQLException {
+        CacheStatsCounter statsCounter = ms.getConfiguration().getCacheStatsCounter(cache.getId());
+        long start = System.nanoTime();
+        try {
+            List<E> list = delegate.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+            if (statsCounter != null) {
+                statsCounter.recordLoadSuccess(System.nanoTime() - start);
+            }
+            return list;
+        } catch (SQLException | RuntimeException e) {
+            if (statsCounter != null) {
+                statsCounter.recordLoadFailure(System.nanoTime() - start);
+            }
+            throw e;
+        }
+    }
+
+    private void prepareRefresh(MappedStatement ms, Cache cache, Object parameterObject, RowBounds rowBounds, CacheKey key) {
+        Cache refreshCache = cache instanceof BlockingCache ? ((BlockingCache) cache).getDelegate() : cache;
+        if (refreshCache instanceof RefreshAheadCache && ms.getConfiguration().getEnvironment() != null) {
+            ((RefreshAheadCache) refreshCache).prepareRefresh(key, () -> reload(ms, parameterObject, rowBounds, key),
+                    ms.getConfiguration().getCacheRefreshExecutor());
+        }
+    }
+
+    /**
+     * 在后台用一个独立的事务重新执行查询，不经过任何缓存
+     */
+    private static List<Object> reload(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key) throws SQLException {
+        Configuration configuration = ms.getConfiguration();
+        Environment environment = configuration.getEnvironment();
+        Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+        Executor executor = new SimpleExecutor(configuration, tx);
+        try {
+            BoundSql boundSql = ms.getBoundSql(parameterObject);
+            if (!key.equals(executor.createCacheKey(ms, parameterObject, rowBounds, boundSql))) {
+                // 参数对象在缓存之后被调用方修改了，无法再刷新这个key
+                return null;
+            }
+            return executor.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+        } finally {
+            executor.close(false);
+        }
+    }
+
     @Override
     public void setExecutorWrapper(Executor executor) {
         throw new UnsupportedOperationException("This method should not be called");
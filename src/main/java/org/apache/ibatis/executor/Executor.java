@@ -16,7 +16,10 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
@@ -56,6 +59,20 @@ public interface Executor {
 
   void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType);
 
+  /**
+   * Looks several results of a select up in the second level cache at once. The keys that are missed are expected to
+   * be queried right after.
+   *
+   * @param ms
+   *          the select
+   * @param keys
+   *          the cache keys of the results
+   * @return the cached results by key; the keys that are not cached are left out
+   */
+  default Map<CacheKey, List<Object>> queryCached(MappedStatement ms, Collection<CacheKey> keys) {
+    return Collections.emptyMap();
+  }
+
   Transaction getTransaction();
 
   void close(boolean forceRollback);
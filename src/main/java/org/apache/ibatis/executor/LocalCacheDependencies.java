@@ -0,0 +1,98 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the tables the entries of the local cache of an executor were read from, so that a write only
+ * invalidates the entries that depend on the tables it writes to. Entries whose tables are unknown are invalidated by
+ * every write.
+ *
+ * @see BaseExecutor
+ */
+class LocalCacheDependencies {
+
+  private final Map<String, Set<Object>> keysByTable = new HashMap<>();
+  private final Map<Object, Collection<String>> tablesByKey = new HashMap<>();
+  private final Set<Object> untrackedKeys = new HashSet<>();
+
+  /**
+   * @param key
+   *          the key of the entry
+   * @param tables
+   *          the tables the entry was read from, or null when they are unknown
+   */
+  public void add(Object key, Collection<String> tables) {
+    remove(key);
+    if (tables == null) {
+      untrackedKeys.add(key);
+      return;
+    }
+    tablesByKey.put(key, tables);
+    for (String table : tables) {
+      keysByTable.computeIfAbsent(table, k -> new HashSet<>()).add(key);
+    }
+  }
+
+  public void remove(Object key) {
+    untrackedKeys.remove(key);
+    Collection<String> tables = tablesByKey.remove(key);
+    if (tables != null) {
+      for (String table : tables) {
+        Set<Object> keys = keysByTable.get(table);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+          keysByTable.remove(table);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the keys of the entries that are invalidated by a write to the tables, and stops tracking them.
+   *
+   * @param tables
+   *          the written tables
+   * @return the keys of the entries to remove
+   */
+  public List<Object> removeDependentKeys(Collection<String> tables) {
+    Set<Object> keys = new HashSet<>(untrackedKeys);
+    for (String table : tables) {
+      Set<Object> dependents = keysByTable.get(table);
+      if (dependents != null) {
+        keys.addAll(dependents);
+      }
+    }
+    List<Object> result = new ArrayList<>(keys);
+    for (Object key : result) {
+      remove(key);
+    }
+    return result;
+  }
+
+  public void clear() {
+    keysByTable.clear();
+    tablesByKey.clear();
+    untrackedKeys.clear();
+  }
+
+}
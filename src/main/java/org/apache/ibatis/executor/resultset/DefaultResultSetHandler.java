@@ -24,6 +24,7 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -60,6 +61,7 @@ import java.util.*;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
     private static final Object DEFERRED = new Object();
+    private static final Object PENDING = new Object();
 
     private final Executor executor;
     private final Configuration configuration;
@@ -81,6 +83,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
     private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+    // nested queries of the rows handled so far, loaded together at the end of the result set
+    private final List<PendingNestedQuery> pendingNestedQueries = new ArrayList<>();
+    private final List<PendingNestedQuery> pendingRowNestedQueries = new ArrayList<>();
+    private boolean batchingNestedQueries;
+
     // Cached Automappings
     private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
     private final Map<String, List<String>> constructorAutoMappingColumns = new HashMap<>();
@@ -93,6 +100,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         public ResultMapping propertyMapping;
     }
 
+    private static class PendingNestedQuery {
+        private final MetaObject metaObject;
+        private final String property;
+        private final MappedStatement mappedStatement;
+        private final CacheKey key;
+        private final Class<?> targetType;
+        private final ResultLoader resultLoader;
+
+        PendingNestedQuery(MetaObject metaObject, String property, MappedStatement mappedStatement, CacheKey key,
+                           Class<?> targetType, ResultLoader resultLoader) {
+            this.metaObject = metaObject;
+            this.property = property;
+            this.mappedStatement = mappedStatement;
+            this.key = key;
+            this.targetType = targetType;
+            this.resultLoader = resultLoader;
+        }
+    }
+
     private static class UnMappedColumnAutoMapping {
         private final String column;
         private final String property;
@@ -359,15 +385,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
         ResultSet resultSet = rsw.getResultSet();
         skipRows(resultSet, rowBounds);
-        // 遍历结果集
-        while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
-            // 处理一下，看看是否有 Discriminator
-            ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-            // 返回的就是映射完结果的JavaBean
-            Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
-            // 将属性值记录到 resultHandler 中
-            storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+        // 结果只是收集到 list 中时，嵌套查询可以等所有行都处理完再一起从二级缓存中读取
+        batchingNestedQueries = resultHandler instanceof DefaultResultHandler && parentMapping == null;
+        try {
+            // 遍历结果集
+            while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+                // 处理一下，看看是否有 Discriminator
+                ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
+                // 返回的就是映射完结果的JavaBean
+                Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+                // 将属性值记录到 resultHandler 中
+                storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+            }
+        } finally {
+            batchingNestedQueries = false;
         }
+        loadPendingNestedQueries();
     }
 
     private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext,
@@ -437,6 +470,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
              * */
             foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
             foundValues = lazyLoader.size() > 0 || foundValues;
+            if (!pendingRowNestedQueries.isEmpty()) {
+                if (foundValues || configuration.isReturnInstanceForEmptyRow()) {
+                    pendingNestedQueries.addAll(pendingRowNestedQueries);
+                } else {
+                    // 这一行是否返回取决于嵌套查询的结果，只能马上查询
+                    for (PendingNestedQuery pending : pendingRowNestedQueries) {
+                        foundValues = setNestedQueryValue(pending, pending.resultLoader.loadResult()) || foundValues;
+                    }
+                }
+                pendingRowNestedQueries.clear();
+            }
            /**
             * 找不到值 且 没有开启isReturnInstanceForEmptyRow 那就返回null
             *
@@ -531,6 +575,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 } else if (value == DEFERRED) {
                     foundValues = true;
                     continue;
+                } else if (value == PENDING) {
+                    continue;
                 }
                 if (value != null) {
                     foundValues = true;
@@ -1002,6 +1048,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 if (propertyMapping.isLazy()) {
                     lazyLoader.addLoader(property, metaResultObject, resultLoader);
                     value = DEFERRED;
+                } else if (batchingNestedQueries && property != null && nestedQuery.getCache() != null
+                        && nestedQuery.isUseCache()) {
+                    pendingRowNestedQueries.add(new PendingNestedQuery(metaResultObject, property, nestedQuery, key,
+                            targetType, resultLoader));
+                    value = PENDING;
                 } else {
                     value = resultLoader.loadResult();
                 }
@@ -1010,6 +1061,43 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return value;
     }
 
+    /**
+     * 先用一次调用从二级缓存中取出同一个嵌套查询的所有结果，未命中的再逐个查询
+     */
+    private void loadPendingNestedQueries() throws SQLException {
+        if (pendingNestedQueries.isEmpty()) {
+            return;
+        }
+        Map<MappedStatement, Set<CacheKey>> keys = new LinkedHashMap<>();
+        for (PendingNestedQuery pending : pendingNestedQueries) {
+            keys.computeIfAbsent(pending.mappedStatement, k -> new LinkedHashSet<>()).add(pending.key);
+        }
+        Map<CacheKey, List<Object>> cachedResults = new HashMap<>();
+        for (Map.Entry<MappedStatement, Set<CacheKey>> entry : keys.entrySet()) {
+            cachedResults.putAll(executor.queryCached(entry.getKey(), entry.getValue()));
+        }
+        ResultExtractor resultExtractor = new ResultExtractor(configuration, objectFactory);
+        try {
+            for (PendingNestedQuery pending : pendingNestedQueries) {
+                List<Object> cachedResult = cachedResults.get(pending.key);
+                setNestedQueryValue(pending, cachedResult != null
+                        ? resultExtractor.extractObjectFromList(cachedResult, pending.targetType)
+                        : pending.resultLoader.loadResult());
+            }
+        } finally {
+            pendingNestedQueries.clear();
+        }
+    }
+
+    private boolean setNestedQueryValue(PendingNestedQuery pending, Object value) {
+        if (value != null || (configuration.isCallSettersOnNulls() && !pending.metaObject.getSetterType(
+                pending.property).isPrimitive())) {
+            // gcode issue #377, call setter on nulls (value is not 'found')
+            pending.metaObject.setValue(pending.property, value);
+        }
+        return value != null;
+    }
+
     private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType,
                                                   String columnPrefix) throws SQLException {
         if (resultMapping.isCompositeResult()) {
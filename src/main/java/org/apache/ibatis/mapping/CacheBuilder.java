@@ -24,13 +24,30 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStatsCounter;
+import org.apache.ibatis.cache.DefaultWeigher;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.NegativeResultCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.FusedCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.CompressingSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -38,6 +55,9 @@ import org.apache.ibatis.reflection.SystemMetaObject;
  * @author Clinton Begin
  */
 public class CacheBuilder {
+
+  private static final Log log = LogFactory.getLog(CacheBuilder.class);
+
   private final String id;
   private Class<? extends Cache> implementation;
   private final List<Class<? extends Cache>> decorators;
@@ -46,6 +66,20 @@ public class CacheBuilder {
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private boolean singleFlight;
+  private Class<? extends CacheSerializer> serializer;
+  private boolean compress;
+  private Long maxWeightBytes;
+  private Class<? extends Weigher> weigher;
+  private Long expireAfterWrite;
+  private Long expireAfterAccess;
+  private Long expiryJitter;
+  private Long refreshAfterWrite;
+  private Long negativeTtl;
+  private Integer negativeSize;
+  private boolean snapshot;
+  private boolean fused;
+  private CacheStatsCounter statsCounter;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -84,6 +118,83 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder singleFlight(boolean singleFlight) {
+    this.singleFlight = singleFlight;
+    return this;
+  }
+
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
+  public CacheBuilder compress(boolean compress) {
+    this.compress = compress;
+    return this;
+  }
+
+  public CacheBuilder maxWeightBytes(Long maxWeightBytes) {
+    this.maxWeightBytes = maxWeightBytes;
+    return this;
+  }
+
+  public CacheBuilder weigher(Class<? extends Weigher> weigher) {
+    this.weigher = weigher;
+    return this;
+  }
+
+  public CacheBuilder expireAfterWrite(Long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+    return this;
+  }
+
+  public CacheBuilder expireAfterAccess(Long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+    return this;
+  }
+
+  public CacheBuilder expiryJitter(Long expiryJitter) {
+    this.expiryJitter = expiryJitter;
+    return this;
+  }
+
+  public CacheBuilder refreshAfterWrite(Long refreshAfterWrite) {
+    this.refreshAfterWrite = refreshAfterWrite;
+    return this;
+  }
+
+  public CacheBuilder negativeTtl(Long negativeTtl) {
+    this.negativeTtl = negativeTtl;
+    return this;
+  }
+
+  public CacheBuilder negativeSize(Integer negativeSize) {
+    this.negativeSize = negativeSize;
+    return this;
+  }
+
+  public CacheBuilder snapshot(boolean snapshot) {
+    this.snapshot = snapshot;
+    return this;
+  }
+
+  /**
+   * Sets whether the standard combinations of decorators are built as a single {@link FusedCache}.
+   *
+   * @param fused
+   *          true to build a fused cache when possible
+   * @return this builder
+   */
+  public CacheBuilder fused(boolean fused) {
+    this.fused = fused;
+    return this;
+  }
+
+  public CacheBuilder statsCounter(CacheStatsCounter statsCounter) {
+    this.statsCounter = statsCounter;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -91,6 +202,12 @@ public class CacheBuilder {
 
   public Cache build() {
     setDefaultImplementations();
+    if (statsCounter == null) {
+      statsCounter = new CacheStatsCounter();
+    }
+    if (isFusable()) {
+      return setOuterDecorators(newFusedCacheInstance());
+    }
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
     // issue #352, do not apply decorators to custom caches
@@ -99,13 +216,159 @@ public class CacheBuilder {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
       }
-      cache = setStandardDecorators(cache);
+      setSize(cache);
+      if (isWeighted()) {
+        // above the eviction decorator, so the entries it rejects or evicts do not take its room
+        cache = newWeightedCacheInstance(cache);
+      }
+      if (isExpiring()) {
+        // above the eviction decorator, so the expired entries do not take its room
+        cache = newExpiringCacheInstance(cache);
+      }
+      cache = setStandardDecorators(cache, true);
+    } else if (isThreadSafeImplementation(cache)) {
+      // these caches evict and lock by themselves, so only extra decorators need to be synchronized
+      if (OffHeapCache.class.equals(cache.getClass())) {
+        // values are stored off-heap as bytes
+        if (!readWrite) {
+          log.warn("Cache " + id + " is read/write although it is configured read-only, because "
+              + OffHeapCache.class.getSimpleName() + " only stores serialized values.");
+        }
+        readWrite = true;
+        statsCounter.setWeightSource(((OffHeapCache) cache)::getStoredBytes);
+      }
+      boolean synchronizedRequired = false;
+      boolean weightedRequired = false;
+      if (isWeighted()) {
+        MetaObject metaCache = SystemMetaObject.forObject(cache);
+        if (metaCache.hasSetter("maxWeightBytes")) {
+          metaCache.setValue("weigher", newWeigherInstance());
+          metaCache.setValue("maxWeightBytes", maxWeightBytes);
+          statsCounter.setWeightSource(((ConcurrentLruCache) cache)::getTotalWeight);
+        } else {
+          weightedRequired = true;
+        }
+      }
+      for (Class<? extends Cache> decorator : decorators) {
+        if (!LruCache.class.equals(decorator)) {
+          cache = newCacheDecoratorInstance(decorator, cache);
+          setCacheProperties(cache);
+          synchronizedRequired = true;
+        }
+      }
+      setSize(cache);
+      if (weightedRequired) {
+        cache = newWeightedCacheInstance(cache);
+        synchronizedRequired = true;
+      }
+      if (isExpiring()) {
+        cache = newExpiringCacheInstance(cache);
+        synchronizedRequired = true;
+      }
+      if (clearInterval != null) {
+        // the clear timestamp of ScheduledCache is not thread-safe
+        synchronizedRequired = true;
+      }
+      cache = setStandardDecorators(cache, synchronizedRequired);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
+      cache = new LoggingCache(cache, statsCounter);
+    }
+    return cache;
+  }
+
+  private boolean isFusable() {
+    return fused && PerpetualCache.class.equals(implementation) && decorators.size() == 1
+        && (LruCache.class.equals(decorators.get(0)) || FifoCache.class.equals(decorators.get(0))) && !isWeighted()
+        && !isExpiring() && !isCachingNegatives();
+  }
+
+  private Cache newFusedCacheInstance() {
+    FusedCache cache = new FusedCache(id, statsCounter, LruCache.class.equals(decorators.get(0)));
+    setCacheProperties(cache);
+    if (size != null) {
+      cache.setSize(size);
+    }
+    if (clearInterval != null) {
+      cache.setClearInterval(clearInterval);
+    }
+    if (readWrite) {
+      cache.setSerializer(newSerializerInstance());
+    }
+    return cache;
+  }
+
+  private boolean isThreadSafeImplementation(Cache cache) {
+    return ConcurrentLruCache.class.equals(cache.getClass()) || OffHeapCache.class.equals(cache.getClass());
+  }
+
+  private boolean isWeighted() {
+    return maxWeightBytes != null && maxWeightBytes > 0;
+  }
+
+  private Cache newWeightedCacheInstance(Cache base) {
+    WeightedCache cache = new WeightedCache(base);
+    if (base instanceof LruCache) {
+      ((LruCache) base).setEvictionListener(cache::evicted);
+    } else if (base instanceof FifoCache) {
+      ((FifoCache) base).setEvictionListener(cache::evicted);
+    }
+    cache.setWeigher(newWeigherInstance());
+    cache.setMaxWeightBytes(maxWeightBytes);
+    cache.setStatsCounter(statsCounter);
+    statsCounter.setWeightSource(cache::getTotalWeight);
+    return cache;
+  }
+
+  private boolean isExpiring() {
+    return (expireAfterWrite != null && expireAfterWrite > 0) || (expireAfterAccess != null && expireAfterAccess > 0);
+  }
+
+  private Cache newExpiringCacheInstance(Cache base) {
+    ExpiringCache cache = new ExpiringCache(base);
+    cache.setStatsCounter(statsCounter);
+    if (expireAfterWrite != null) {
+      cache.setExpireAfterWrite(expireAfterWrite);
+    }
+    if (expireAfterAccess != null) {
+      cache.setExpireAfterAccess(expireAfterAccess);
+    }
+    if (expiryJitter != null) {
+      cache.setJitter(expiryJitter);
+    }
+    return cache;
+  }
+
+  private boolean isRefreshingAhead() {
+    return refreshAfterWrite != null && refreshAfterWrite > 0;
+  }
+
+  private boolean isCachingNegatives() {
+    return (negativeTtl != null && negativeTtl > 0) || (negativeSize != null && negativeSize > 0);
+  }
+
+  private Cache newNegativeResultCacheInstance(Cache base) {
+    NegativeResultCache cache = new NegativeResultCache(base);
+    cache.setStatsCounter(statsCounter);
+    if (negativeTtl != null) {
+      cache.setNegativeTtl(negativeTtl);
+    }
+    if (negativeSize != null) {
+      cache.setNegativeSize(negativeSize);
     }
     return cache;
   }
 
+  private Weigher newWeigherInstance() {
+    if (weigher == null) {
+      return new DefaultWeigher();
+    }
+    try {
+      return weigher.getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache weigher (" + weigher + "). Cause: " + e, e);
+    }
+  }
+
   private void setDefaultImplementations() {
     if (implementation == null) {
       implementation = PerpetualCache.class;
@@ -115,23 +378,67 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean synchronizedRequired) {
     try {
-      MetaObject metaCache = SystemMetaObject.forObject(cache);
-      if (size != null && metaCache.hasSetter("size")) {
-        metaCache.setValue("size", size);
-      }
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = new SerializedCache(cache, newSerializerInstance());
+      }
+      if (isCachingNegatives()) {
+        // above the serialized cache, so empty results are recognized, and below the logging cache, so their hits count
+        cache = newNegativeResultCacheInstance(cache);
       }
-      cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
-      if (blocking) {
-        cache = new BlockingCache(cache);
+      cache = new LoggingCache(cache, statsCounter);
+      if (synchronizedRequired) {
+        cache = new SynchronizedCache(cache);
+      }
+    } catch (Exception e) {
+      throw new CacheException("Error building standard cache decorators.  Cause: " + e, e);
+    }
+    return setOuterDecorators(cache);
+  }
+
+  private void setSize(Cache cache) {
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (size != null && metaCache.hasSetter("size")) {
+      metaCache.setValue("size", size);
+    }
+  }
+
+  /**
+   * Applies the decorators that go above the lock of the cache.
+   */
+  private Cache setOuterDecorators(Cache cache) {
+    if (isRefreshingAhead() && blocking && !singleFlight) {
+      throw new CacheException("Cache " + id + " cannot refresh ahead while blocking. Use singleFlight instead.");
+    }
+    try {
+      if (snapshot) {
+        // above the synchronized cache, so the entries can be read safely while a snapshot is taken
+        SnapshotCache snapshotCache = new SnapshotCache(cache);
+        snapshotCache.setSerializer(newSerializerInstance());
+        if (expireAfterWrite != null && expireAfterWrite > 0) {
+          snapshotCache.setExpireAfterWrite(expireAfterWrite);
+        }
+        cache = snapshotCache;
+      }
+      if (isRefreshingAhead()) {
+        // below the blocking cache, so refreshed values are put without holding a lock
+        cache = new RefreshAheadCache(cache);
+        ((RefreshAheadCache) cache).setRefreshAfterWrite(refreshAfterWrite);
+      }
+      if (blocking || singleFlight) {
+        BlockingCache blockingCache = new BlockingCache(cache);
+        if (singleFlight) {
+          blockingCache.setSingleFlight(true);
+          if (readWrite) {
+            blockingCache.setSerializer(newSerializerInstance());
+          }
+        }
+        cache = blockingCache;
       }
       return cache;
     } catch (Exception e) {
@@ -139,9 +446,26 @@ public class CacheBuilder {
     }
   }
 
+  private CacheSerializer newSerializerInstance() {
+    CacheSerializer instance;
+    if (serializer == null) {
+      instance = new JavaSerializer();
+    } else {
+      try {
+        instance = serializer.getDeclaredConstructor().newInstance();
+      } catch (Exception e) {
+        throw new CacheException("Could not instantiate cache serializer (" + serializer + "). Cause: " + e, e);
+      }
+    }
+    return compress ? new CompressingSerializer(instance) : instance;
+  }
+
   private void setCacheProperties(Cache cache) {
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (metaCache.hasSetter("statsCounter") && metaCache.getSetterType("statsCounter") == CacheStatsCounter.class) {
+      metaCache.setValue("statsCounter", statsCounter);
+    }
     if (properties != null) {
-      MetaObject metaCache = SystemMetaObject.forObject(cache);
       for (Map.Entry<Object, Object> entry : properties.entrySet()) {
         String name = (String) entry.getKey();
         String value = (String) entry.getValue();
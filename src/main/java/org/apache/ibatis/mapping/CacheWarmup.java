@@ -0,0 +1,47 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+/**
+ * A query run when the {@link org.apache.ibatis.session.SqlSessionFactory} is built, to fill the second level cache of
+ * its statement before the first requests arrive.
+ *
+ * @see org.apache.ibatis.annotations.Warmup
+ */
+public class CacheWarmup {
+
+  private final String statementId;
+  private final Object parameter;
+
+  public CacheWarmup(String statementId, Object parameter) {
+    this.statementId = statementId;
+    this.parameter = parameter;
+  }
+
+  public String getStatementId() {
+    return statementId;
+  }
+
+  public Object getParameter() {
+    return parameter;
+  }
+
+  @Override
+  public String toString() {
+    return statementId + "(" + parameter + ")";
+  }
+
+}
@@ -18,6 +18,7 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -58,6 +59,8 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private Set<String> readTables;
+  private Set<String> writeTables;
 
   MappedStatement() {
     // constructor disabled
@@ -190,6 +193,16 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder readTables(Set<String> readTables) {
+      mappedStatement.readTables = readTables;
+      return this;
+    }
+
+    public Builder writeTables(Set<String> writeTables) {
+      mappedStatement.writeTables = writeTables;
+      return this;
+    }
+
     public MappedStatement build() {
       assert mappedStatement.configuration != null;
       assert mappedStatement.id != null;
@@ -303,6 +316,24 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Gets the tables this statement reads from, either declared or found in its static SQL.
+   *
+   * @return the table names, or {@code null} if unknown
+   */
+  public Set<String> getReadTables() {
+    return readTables;
+  }
+
+  /**
+   * Gets the tables this statement writes to, either declared or found in its static SQL.
+   *
+   * @return the table names, or {@code null} if unknown
+   */
+  public Set<String> getWriteTables() {
+    return writeTables;
+  }
+
   public BoundSql getBoundSql(Object parameterObject) {
     /**
      * {@link DynamicSqlSource#getBoundSql(Object)}
@@ -0,0 +1,137 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the tables read or written by an SQL statement.
+ * <p>
+ * This is a lightweight scan of the most common statement shapes rather than a full SQL parser. Table names are lower
+ * cased and stripped of their quotes and schema. When a statement cannot be understood, for example a stored procedure
+ * call or a select without a from clause, {@code null} is returned so that callers can fall back to a safe default.
+ */
+public final class TableNameParser {
+
+  private static final String NAME = "(?:[\\w$]+|\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\])";
+  private static final String QUALIFIED_NAME = NAME + "(?:\\s*\\.\\s*" + NAME + ")*";
+  private static final String ALIAS = "(?:\\s+(?:as\\s+)?(?!(?:where|join|inner|left|right|full|cross|outer|on|using|group|order"
+      + "|having|limit|offset|union|intersect|except|for|natural|set|values|select|fetch|window|lateral)\\b)" + NAME + ")?";
+
+  private static final Pattern COMMENT = Pattern.compile("--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+  private static final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern FROM = Pattern.compile(
+      "\\b(?:from|join|using)\\s+(" + QUALIFIED_NAME + ALIAS + "(?:\\s*,\\s*" + QUALIFIED_NAME + ALIAS + ")*)");
+  private static final Pattern TABLE = Pattern.compile("(?:^|,)\\s*(" + QUALIFIED_NAME + ")");
+  private static final Pattern WRITE = Pattern.compile("^\\s*(?:insert\\s+(?:ignore\\s+)?into|replace\\s+into|merge\\s+into"
+      + "|update(?:\\s+ignore)?|delete\\s+from|truncate(?:\\s+table)?)\\s+(" + QUALIFIED_NAME + ")");
+  private static final Pattern MULTI_TABLE = Pattern.compile(
+      "^" + ALIAS + "\\s*(?:,|(?:join|inner|left|right|full|cross|natural|straight_join)\\b)");
+  private static final Pattern CTE = Pattern.compile("^\\s*with\\b");
+
+  private TableNameParser() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Returns the tables an SQL statement reads from.
+   *
+   * @param sql
+   *          the SQL statement
+   * @return the table names, or {@code null} if they could not be found
+   */
+  public static Set<String> parseReadTables(String sql) {
+    String normalized = normalize(sql);
+    Set<String> tables = new LinkedHashSet<>();
+    Matcher from = FROM.matcher(normalized);
+    while (from.find()) {
+      Matcher table = TABLE.matcher(from.group(1));
+      while (table.find()) {
+        tables.add(unqualify(table.group(1)));
+      }
+    }
+    Matcher write = WRITE.matcher(normalized);
+    if (write.find()) {
+      tables.add(unqualify(write.group(1)));
+    }
+    return tables.isEmpty() ? null : Collections.unmodifiableSet(tables);
+  }
+
+  /**
+   * Returns the table an insert, update, delete, merge or truncate statement writes to.
+   *
+   * @param sql
+   *          the SQL statement
+   * @return the table names, or {@code null} if they could not be found
+   */
+  public static Set<String> parseWriteTables(String sql) {
+    String normalized = normalize(sql);
+    if (CTE.matcher(normalized).find()) {
+      return null;
+    }
+    Matcher write = WRITE.matcher(normalized);
+    if (!write.find()) {
+      return null;
+    }
+    if (MULTI_TABLE.matcher(normalized).region(write.end(), normalized.length()).find()) {
+      // a multi-table update or delete may write to any of the joined tables
+      return null;
+    }
+    return Collections.singleton(unqualify(write.group(1)));
+  }
+
+  /**
+   * Splits a comma separated list of declared table names.
+   *
+   * @param tables
+   *          the table names
+   * @return the normalized table names, or {@code null} if none were declared
+   */
+  public static Set<String> parseDeclaredTables(String tables) {
+    if (tables == null || tables.trim().isEmpty()) {
+      return null;
+    }
+    Set<String> result = new LinkedHashSet<>();
+    for (String table : tables.split(",")) {
+      if (!table.trim().isEmpty()) {
+        result.add(unqualify(table.trim().toLowerCase(Locale.ENGLISH)));
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  private static String normalize(String sql) {
+    String result = COMMENT.matcher(sql).replaceAll(" ");
+    result = LITERAL.matcher(result).replaceAll("''");
+    return result.toLowerCase(Locale.ENGLISH);
+  }
+
+  private static String unqualify(String name) {
+    String[] parts = name.split("\\s*\\.\\s*");
+    String last = parts[parts.length - 1];
+    char first = last.charAt(0);
+    if (first == '"' || first == '`' || first == '[') {
+      last = last.substring(1, last.length() - 1);
+    }
+    return last;
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * Specifies how the keys of the local and second level caches are built.
+ */
+public enum CacheKeyMode {
+
+  /**
+   * Keeps every component of the key, such as the SQL and the parameter values.
+   */
+  FULL,
+
+  /**
+   * Hashes the components into a 128-bit fingerprint and keeps only the components that cannot be hashed.
+   */
+  COMPACT,
+
+  /**
+   * Like {@link #COMPACT}, but also keeps every component to print the key and to check fingerprint collisions.
+   */
+  COMPACT_CHECKED
+}
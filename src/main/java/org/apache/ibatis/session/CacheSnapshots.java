@@ -0,0 +1,431 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheDependencyRegistry;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CompactCacheKey;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * Saves the second level caches of a configuration to a file, and restores them from it.
+ * <p>
+ * For every cache the file holds its id, a hash of the statements that use it, and the serialized keys and values of
+ * its entries with the time they were written. The file is memory mapped when it is restored: the keys are read right away, the values only when they
+ * are read from the cache. The entries of a cache whose statements changed since the file was saved are discarded.
+ * <p>
+ * A single shutdown hook saves every snapshot file once, from the configuration last built with it. The configurations
+ * are only weakly referenced, so a factory that is no longer used is neither kept alive nor saved.
+ */
+final class CacheSnapshots {
+
+  private static final Log log = LogFactory.getLog(CacheSnapshots.class);
+  private static final int MAGIC = 0x4d424353;
+  private static final int FORMAT_VERSION = 2;
+  private static final CacheSerializer KEY_SERIALIZER = new JavaSerializer();
+  private static final String[] DESCRIBED_PACKAGES = { "org.apache.ibatis.mapping.", "org.apache.ibatis.scripting.",
+      "org.apache.ibatis.builder." };
+  private static final Map<Path, WeakReference<Configuration>> savedOnShutdown = new HashMap<>();
+  private static final Map<Path, Object> fileLocks = new ConcurrentHashMap<>();
+  private static Thread shutdownHook;
+
+  private CacheSnapshots() {
+    // Prevent Instantiation
+  }
+
+  static int load(Configuration configuration) {
+    Path file = Paths.get(configuration.getCacheSnapshotFile());
+    if (!Files.isRegularFile(file)) {
+      return 0;
+    }
+    Map<String, Cache> caches = getCaches(configuration);
+    int restoredEntries = 0;
+    try {
+      ByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        log.warn("Ignored the cache snapshot " + file + " of an unknown format");
+        return 0;
+      }
+      while (buffer.hasRemaining()) {
+        String id = readString(buffer);
+        String version = readString(buffer);
+        Cache cache = caches.get(id);
+        SnapshotCache snapshotCache = cache == null ? null : findSnapshotCache(cache);
+        boolean current = snapshotCache != null && version.equals(version(configuration, cache));
+        if (!current && log.isDebugEnabled()) {
+          log.debug("Discarded the snapshot of cache " + id + " whose statements changed");
+        }
+        if (current && configuration.isTableBasedCacheInvalidation()) {
+          // restored entries are served as hits, so the tables they were read from are never recorded on a miss
+          registerDependencies(configuration, cache);
+        }
+        int keyLength;
+        while ((keyLength = buffer.getInt()) >= 0) {
+          ByteBuffer key = slice(buffer, keyLength);
+          ByteBuffer value = slice(buffer, buffer.getInt());
+          long writtenAt = buffer.getLong();
+          if (current) {
+            try {
+              if (snapshotCache.restore(KEY_SERIALIZER.deserialize(toBytes(key)), value, writtenAt)) {
+                restoredEntries++;
+              }
+            } catch (CacheException e) {
+              log.debug("Skipped an entry of cache " + id + " whose key cannot be restored. Cause: " + e);
+            }
+          }
+        }
+      }
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      log.warn("Could not restore all caches from " + file + ". Cause: " + e);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Restored " + restoredEntries + " cache entries from " + file);
+    }
+    return restoredEntries;
+  }
+
+  /**
+   * Saves the caches of a configuration when the JVM stops, instead of the configuration built before with the same
+   * file.
+   */
+  static synchronized void saveOnShutdown(Configuration configuration) {
+    savedOnShutdown.put(getFile(configuration), new WeakReference<>(configuration));
+    if (shutdownHook == null) {
+      shutdownHook = new Thread(CacheSnapshots::saveAll, "mybatis-cache-snapshot");
+      Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+  }
+
+  private static void saveAll() {
+    List<Configuration> configurations = new ArrayList<>();
+    synchronized (CacheSnapshots.class) {
+      for (WeakReference<Configuration> reference : savedOnShutdown.values()) {
+        Configuration configuration = reference.get();
+        if (configuration != null) {
+          configurations.add(configuration);
+        }
+      }
+    }
+    for (Configuration configuration : configurations) {
+      save(configuration);
+    }
+  }
+
+  static int save(Configuration configuration) {
+    Path file = getFile(configuration);
+    // factories sharing the file take turns, so the last one saved wins as a whole
+    synchronized (fileLocks.computeIfAbsent(file, key -> new Object())) {
+      return save(configuration, file);
+    }
+  }
+
+  private static int save(Configuration configuration, Path file) {
+    Path temp;
+    try {
+      temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    } catch (IOException e) {
+      log.warn("Could not save the caches to " + file + ". Cause: " + e);
+      return 0;
+    }
+    AtomicInteger savedEntries = new AtomicInteger();
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        for (Cache cache : getCaches(configuration).values()) {
+          SnapshotCache snapshotCache = findSnapshotCache(cache);
+          if (snapshotCache == null) {
+            continue;
+          }
+          writeString(out, cache.getId());
+          writeString(out, version(configuration, cache));
+          snapshotCache.snapshot((key, value, writtenAt) -> {
+            if (key instanceof CompactCacheKey) {
+              // its fingerprint is keyed per JVM, so it would never match again
+              return;
+            }
+            byte[] keyBytes;
+            try {
+              keyBytes = KEY_SERIALIZER.serialize(key);
+            } catch (CacheException e) {
+              return;
+            }
+            try {
+              out.writeInt(keyBytes.length);
+              out.write(keyBytes);
+              out.writeInt(value.length);
+              out.write(value);
+              out.writeLong(writtenAt);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            savedEntries.incrementAndGet();
+          });
+          out.writeInt(-1);
+        }
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Could not save the caches to " + file + ". Cause: " + e);
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException ignored) {
+        // the next save overwrites it
+      }
+      return 0;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Saved " + savedEntries + " cache entries to " + file);
+    }
+    return savedEntries.get();
+  }
+
+  private static Path getFile(Configuration configuration) {
+    return Paths.get(configuration.getCacheSnapshotFile()).toAbsolutePath().normalize();
+  }
+
+  private static Map<String, Cache> getCaches(Configuration configuration) {
+    Map<String, Cache> caches = new LinkedHashMap<>();
+    // the values also hold the entries of the short names
+    for (Object value : (Collection<?>) configuration.getCaches()) {
+      if (value instanceof Cache) {
+        caches.putIfAbsent(((Cache) value).getId(), (Cache) value);
+      }
+    }
+    return caches;
+  }
+
+  private static SnapshotCache findSnapshotCache(Cache cache) {
+    // only the blocking and refresh-ahead decorators are above the snapshot decorator
+    while (!(cache instanceof SnapshotCache)) {
+      if (cache instanceof BlockingCache) {
+        cache = ((BlockingCache) cache).getDelegate();
+      } else if (cache instanceof RefreshAheadCache) {
+        cache = ((RefreshAheadCache) cache).getDelegate();
+      } else {
+        return null;
+      }
+    }
+    return (SnapshotCache) cache;
+  }
+
+  private static Map<String, MappedStatement> getStatements(Configuration configuration, Cache cache) {
+    Map<String, MappedStatement> statements = new TreeMap<>();
+    for (Object value : (Collection<?>) configuration.getMappedStatements()) {
+      if (value instanceof MappedStatement && ((MappedStatement) value).getCache() == cache) {
+        statements.put(((MappedStatement) value).getId(), (MappedStatement) value);
+      }
+    }
+    return statements;
+  }
+
+  private static void registerDependencies(Configuration configuration, Cache cache) {
+    CacheDependencyRegistry registry = configuration.getCacheDependencyRegistry();
+    for (MappedStatement statement : getStatements(configuration, cache).values()) {
+      if (statement.getSqlCommandType() != SqlCommandType.SELECT || !statement.isUseCache()) {
+        continue;
+      }
+      Set<String> tables = statement.getReadTables();
+      if (tables == null) {
+        registry.addUntrackedCache(cache);
+      } else {
+        registry.addDependencies(cache, tables);
+      }
+    }
+  }
+
+  private static String version(Configuration configuration, Cache cache) {
+    Map<String, MappedStatement> statements = getStatements(configuration, cache);
+    StringBuilder description = new StringBuilder();
+    Set<Object> described = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (MappedStatement statement : statements.values()) {
+      describe(statement, description, described);
+      description.append('\n');
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.toString().getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new CacheException("Could not hash the statements of cache " + cache.getId() + ". Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Describes the statements, result maps and SQL sources field by field, so that any change to a mapper changes the
+   * description. Configurations, caches and other objects are only described by their type.
+   */
+  private static void describe(Object value, StringBuilder out, Set<Object> described) {
+    if (value == null) {
+      out.append("null");
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum || value instanceof Method) {
+      out.append(value);
+    } else if (value instanceof Class) {
+      out.append(((Class<?>) value).getName());
+    } else if (type.isArray()) {
+      out.append('[');
+      for (int i = 0; i < Array.getLength(value); i++) {
+        describe(Array.get(value, i), out, described);
+        out.append(',');
+      }
+      out.append(']');
+    } else if (value instanceof Collection) {
+      out.append('[');
+      for (Object element : (Collection<?>) value) {
+        describe(element, out, described);
+        out.append(',');
+      }
+      out.append(']');
+    } else if (value instanceof Map) {
+      out.append('{');
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        describe(entry.getKey(), out, described);
+        out.append('=');
+        describe(entry.getValue(), out, described);
+        out.append(',');
+      }
+      out.append('}');
+    } else if (isDescribed(type)) {
+      if (!described.add(value)) {
+        out.append("^");
+        return;
+      }
+      out.append(type.getName()).append('{');
+      for (Field field : getFields(type)) {
+        out.append(field.getName()).append('=');
+        try {
+          field.setAccessible(true);
+          describe(field.get(value), out, described);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+          out.append('?');
+        }
+        out.append(',');
+      }
+      out.append('}');
+    } else {
+      // the names of lambdas change between runs
+      out.append(type.isSynthetic() ? "lambda" : type.getName());
+    }
+  }
+
+  private static boolean isDescribed(Class<?> type) {
+    if (type.isSynthetic() || Configuration.class.isAssignableFrom(type) || Cache.class.isAssignableFrom(type)) {
+      return false;
+    }
+    for (String describedPackage : DESCRIBED_PACKAGES) {
+      if (type.getName().startsWith(describedPackage)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<Field> getFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+          fields.add(field);
+        }
+      }
+    }
+    fields.sort(Comparator.comparing(Field::getName).thenComparing(field -> field.getDeclaringClass().getName()));
+    return fields;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int length) {
+    ByteBuffer slice = buffer.slice();
+    ((Buffer) slice).limit(length);
+    ((Buffer) buffer).position(buffer.position() + length);
+    return slice;
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    return new String(toBytes(slice(buffer, buffer.getInt())), StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.CacheWarmup;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * Runs the cache warm-up queries of a configuration in parallel, each in its own session.
+ */
+final class CacheWarmer {
+
+  private static final Log log = LogFactory.getLog(CacheWarmer.class);
+
+  private CacheWarmer() {
+    // Prevent Instantiation
+  }
+
+  static CacheWarmupReport warmUp(SqlSessionFactory sqlSessionFactory) {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    List<CacheWarmup> warmups = configuration.getCacheWarmups();
+    long start = System.nanoTime();
+    Map<String, Integer> loadedEntries = new TreeMap<>();
+    List<String> failures = new ArrayList<>();
+    AtomicInteger count = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(configuration.getCacheWarmupThreads(), warmups.size())), runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-cache-warmup-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (CacheWarmup warmup : warmups) {
+        results.add(executor.submit(() -> run(sqlSessionFactory, warmup)));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        try {
+          loadedEntries.merge(results.get(i).get(), 1, Integer::sum);
+        } catch (ExecutionException e) {
+          String failure = warmups.get(i) + ": " + e.getCause();
+          log.warn("Could not warm up cache with " + failure);
+          failures.add(failure);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failures.add("Interrupted");
+    } finally {
+      executor.shutdownNow();
+    }
+    CacheWarmupReport report = new CacheWarmupReport((System.nanoTime() - start) / 1000000, loadedEntries, failures);
+    if (log.isDebugEnabled()) {
+      log.debug(report.toString());
+    }
+    return report;
+  }
+
+  private static String run(SqlSessionFactory sqlSessionFactory, CacheWarmup warmup) {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement(warmup.getStatementId());
+    Cache cache = ms.getCache();
+    if (cache == null || !ms.isUseCache() || ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      throw new CacheException("Statement " + ms.getId() + " is not a cached select");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.selectList(ms.getId(), warmup.getParameter());
+      // entries are put into the second level cache on commit
+      sqlSession.commit();
+    }
+    return cache.getId();
+  }
+
+}
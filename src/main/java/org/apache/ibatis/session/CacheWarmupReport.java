@@ -0,0 +1,75 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of the cache warm-up run when a {@link SqlSessionFactory} is built.
+ *
+ * @see Configuration#getCacheWarmupReport()
+ */
+public class CacheWarmupReport {
+
+  private final long durationMillis;
+  private final Map<String, Integer> loadedEntries;
+  private final List<String> failures;
+
+  public CacheWarmupReport(long durationMillis, Map<String, Integer> loadedEntries, List<String> failures) {
+    this.durationMillis = durationMillis;
+    this.loadedEntries = Collections.unmodifiableMap(loadedEntries);
+    this.failures = Collections.unmodifiableList(failures);
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /**
+   * Gets the number of entries loaded into every warmed up cache.
+   *
+   * @return the number of entries by cache id
+   */
+  public Map<String, Integer> getLoadedEntries() {
+    return loadedEntries;
+  }
+
+  public int getTotalLoadedEntries() {
+    int total = 0;
+    for (Integer count : loadedEntries.values()) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Gets the warm-up queries that could not be run, with the cause.
+   *
+   * @return the failures
+   */
+  public List<String> getFailures() {
+    return failures;
+  }
+
+  @Override
+  public String toString() {
+    return "Cache warm-up loaded " + getTotalLoadedEntries() + " entries into " + loadedEntries.size() + " caches in "
+        + durationMillis + " ms" + (failures.isEmpty() ? "" : ", " + failures.size() + " queries failed");
+  }
+
+}
@@ -22,11 +22,30 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheDependencyRegistry;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheRefreshExecutor;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheStatsCounter;
+import org.apache.ibatis.cache.CacheStatsMonitor;
+import org.apache.ibatis.cache.CacheVersions;
+import org.apache.ibatis.cache.CompactCacheKey;
+import org.apache.ibatis.cache.DefaultWeigher;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.MemoryPressureCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidation;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.LocalCacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.SocketCacheInvalidationBus;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -74,7 +93,9 @@ import org.apache.ibatis.type.TypeAliasRegistry;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
+import javax.management.ObjectName;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 /**
@@ -98,12 +119,21 @@ public class Configuration {
     protected boolean shrinkWhitespacesInSql;
     protected boolean nullableOnForEach;
     protected boolean argNameBasedConstructorAutoMapping;
+    protected boolean tableBasedCacheInvalidation;
+    protected boolean tableBasedLocalCacheInvalidation;
+    protected boolean cacheStatsJmxEnabled;
+    protected boolean versionedCacheEnabled;
+    protected boolean fusedCacheEnabled;
 
     protected String logPrefix;
     protected Class<? extends Log> logImpl;
     protected Class<? extends VFS> vfsImpl;
     protected Class<?> defaultSqlProviderType;
     protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+    protected int localCacheMaxSize;
+    protected long localCacheMaxWeightBytes;
+    protected Weigher localCacheWeigher = new DefaultWeigher();
+    protected CacheKeyMode cacheKeyMode = CacheKeyMode.FULL;
     protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
     protected Set<String> lazyLoadTriggerMethods = new HashSet<>(
             Arrays.asList("equals", "clone", "hashCode", "toString"));
@@ -121,6 +151,13 @@ public class Configuration {
 
     protected boolean lazyLoadingEnabled = false;
     protected ProxyFactory proxyFactory = new JavassistProxyFactory(); // #224 Using internal Javassist instead of OGNL
+    protected CacheRefreshExecutor cacheRefreshExecutor;
+    protected CacheInvalidationBus cacheInvalidationBus;
+    protected int cacheWarmupThreads = 4;
+    protected final List<CacheWarmup> cacheWarmups = new ArrayList<>();
+    protected CacheWarmupReport cacheWarmupReport;
+    protected String cacheSnapshotFile;
+    protected final CacheVersions cacheVersions = new CacheVersions();
 
     protected String databaseId;
     /**
@@ -141,6 +178,7 @@ public class Configuration {
     protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
     // 语言驱动注册器
     protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+    protected final CacheDependencyRegistry cacheDependencyRegistry = new CacheDependencyRegistry();
 
     // TODOHAITAO: 2023/1/11  注：下面用的类型是 StrictMap ，这个的特点是put方法，会校验当前key是否存在了，存在就报错，也就是为了防止重复添加
     // 记录 insert | update | delete | select 语句的
@@ -149,6 +187,8 @@ public class Configuration {
             (savedValue, targetValue) -> ". please check " + savedValue.getResource() + " and " + targetValue.getResource());
     // 记录 Cache 实例的，用来做二级缓存的
     protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+    protected final Map<String, CacheStatsCounter> cacheStatsCounters = new ConcurrentHashMap<>();
+    protected final Map<String, ObjectName> cacheStatsMBeanNames = new ConcurrentHashMap<>();
     /**
      * 记录
      */
@@ -195,10 +235,19 @@ public class Configuration {
         typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
         typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+        typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentLruCache.class);
+        typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
         typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
         typeAliasRegistry.registerAlias("LRU", LruCache.class);
         typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
         typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+        typeAliasRegistry.registerAlias("PRESSURE", MemoryPressureCache.class);
+
+        typeAliasRegistry.registerAlias("JAVA_SERIALIZER", JavaSerializer.class);
+        typeAliasRegistry.registerAlias("COMPACT_SERIALIZER", CompactSerializer.class);
+
+        typeAliasRegistry.registerAlias("LOCAL", LocalCacheInvalidationBus.class);
+        typeAliasRegistry.registerAlias("SOCKET", SocketCacheInvalidationBus.class);
 
         typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -334,6 +383,199 @@ public class Configuration {
         this.argNameBasedConstructorAutoMapping = argNameBasedConstructorAutoMapping;
     }
 
+    public boolean isTableBasedCacheInvalidation() {
+        return tableBasedCacheInvalidation;
+    }
+
+    /**
+     * Sets whether a write clears only the second level caches that depend on the tables it writes to, instead of
+     * the cache of its own namespace.
+     *
+     * @param tableBasedCacheInvalidation If table based, set to {@code true}
+     */
+    public void setTableBasedCacheInvalidation(boolean tableBasedCacheInvalidation) {
+        this.tableBasedCacheInvalidation = tableBasedCacheInvalidation;
+    }
+
+    public boolean isTableBasedLocalCacheInvalidation() {
+        return tableBasedLocalCacheInvalidation;
+    }
+
+    /**
+     * Sets whether a write removes only the local cache entries read from the tables it writes to, instead of clearing
+     * the whole local cache of the session.
+     *
+     * @param tableBasedLocalCacheInvalidation If table based, set to {@code true}
+     */
+    public void setTableBasedLocalCacheInvalidation(boolean tableBasedLocalCacheInvalidation) {
+        this.tableBasedLocalCacheInvalidation = tableBasedLocalCacheInvalidation;
+    }
+
+    public boolean isCacheStatsJmxEnabled() {
+        return cacheStatsJmxEnabled;
+    }
+
+    /**
+     * Sets whether the statistics of every second level cache are published to the platform MBean server as it is
+     * added.
+     *
+     * @param cacheStatsJmxEnabled If published, set to {@code true}
+     */
+    public void setCacheStatsJmxEnabled(boolean cacheStatsJmxEnabled) {
+        this.cacheStatsJmxEnabled = cacheStatsJmxEnabled;
+    }
+
+    public boolean isVersionedCacheEnabled() {
+        return versionedCacheEnabled;
+    }
+
+    /**
+     * Sets whether a transaction keeps reading the second level caches it cleared, seeing only the entries it loaded
+     * itself, and drops what it loaded when another transaction cleared the cache in the meantime.
+     *
+     * @param versionedCacheEnabled If versioned, set to {@code true}
+     */
+    public void setVersionedCacheEnabled(boolean versionedCacheEnabled) {
+        this.versionedCacheEnabled = versionedCacheEnabled;
+    }
+
+    public boolean isFusedCacheEnabled() {
+        return fusedCacheEnabled;
+    }
+
+    /**
+     * Sets whether second level caches that only use the standard decorators are built as a single
+     * {@link org.apache.ibatis.cache.impl.FusedCache}.
+     *
+     * @param fusedCacheEnabled If fused, set to {@code true}
+     */
+    public void setFusedCacheEnabled(boolean fusedCacheEnabled) {
+        this.fusedCacheEnabled = fusedCacheEnabled;
+    }
+
+    public CacheVersions getCacheVersions() {
+        return cacheVersions;
+    }
+
+    public CacheDependencyRegistry getCacheDependencyRegistry() {
+        return cacheDependencyRegistry;
+    }
+
+    public CacheRefreshExecutor getCacheRefreshExecutor() {
+        return cacheRefreshExecutor;
+    }
+
+    /**
+     * Sets the executor that reloads the entries of refresh-ahead caches in the background.
+     *
+     * @param cacheRefreshExecutor the executor, or {@code null} to use a shared pool of daemon threads
+     */
+    public void setCacheRefreshExecutor(CacheRefreshExecutor cacheRefreshExecutor) {
+        this.cacheRefreshExecutor = cacheRefreshExecutor;
+    }
+
+    public CacheInvalidationBus getCacheInvalidationBus() {
+        return cacheInvalidationBus;
+    }
+
+    /**
+     * Sets the bus that carries second level cache invalidations between the nodes of a cluster. The caches of this
+     * configuration are invalidated by the other nodes from then on, and sessions opened afterwards publish theirs.
+     *
+     * @param cacheInvalidationBus the bus
+     */
+    public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        if (cacheInvalidationBus != null) {
+            cacheInvalidationBus.subscribe(this::invalidateCaches);
+        }
+    }
+
+    public int getCacheWarmupThreads() {
+        return cacheWarmupThreads;
+    }
+
+    /**
+     * Sets the number of threads that run the cache warm-up queries when the SqlSessionFactory is built.
+     *
+     * @param cacheWarmupThreads the number of threads
+     */
+    public void setCacheWarmupThreads(int cacheWarmupThreads) {
+        this.cacheWarmupThreads = cacheWarmupThreads;
+    }
+
+    public void addCacheWarmup(CacheWarmup cacheWarmup) {
+        cacheWarmups.add(cacheWarmup);
+    }
+
+    public List<CacheWarmup> getCacheWarmups() {
+        return Collections.unmodifiableList(cacheWarmups);
+    }
+
+    /**
+     * Gets the outcome of the cache warm-up run when the SqlSessionFactory was built.
+     *
+     * @return the report, or {@code null} if no warm-up query was declared
+     */
+    public CacheWarmupReport getCacheWarmupReport() {
+        return cacheWarmupReport;
+    }
+
+    public void setCacheWarmupReport(CacheWarmupReport cacheWarmupReport) {
+        this.cacheWarmupReport = cacheWarmupReport;
+    }
+
+    public String getCacheSnapshotFile() {
+        return cacheSnapshotFile;
+    }
+
+    /**
+     * Sets the file the second level caches are saved to when the JVM stops, and restored from when the
+     * SqlSessionFactory is built. Only the caches of the mappers added afterwards are saved. When several factories
+     * are built with the same file, only the last one is saved when the JVM stops.
+     *
+     * @param cacheSnapshotFile the path of the file, or {@code null} to not keep the caches
+     */
+    public void setCacheSnapshotFile(String cacheSnapshotFile) {
+        this.cacheSnapshotFile = cacheSnapshotFile;
+    }
+
+    /**
+     * Saves the entries of the second level caches to the cache snapshot file now.
+     *
+     * @return the number of entries saved
+     */
+    public int saveCacheSnapshot() {
+        return CacheSnapshots.save(this);
+    }
+
+    /**
+     * Applies invalidations published by another node to the caches of this configuration.
+     *
+     * @param invalidations the invalidations
+     */
+    public void invalidateCaches(List<CacheInvalidation> invalidations) {
+        for (CacheInvalidation invalidation : invalidations) {
+            switch (invalidation.getType()) {
+                case NAMESPACE:
+                    if (hasCache(invalidation.getCacheId())) {
+                        cacheVersions.clear(getCache(invalidation.getCacheId()));
+                    }
+                    break;
+                case TABLES:
+                    for (Cache cache : cacheDependencyRegistry.getDependentCaches(invalidation.getTables())) {
+                        cacheVersions.clear(cache);
+                    }
+                    break;
+                default:
+                    if (hasCache(invalidation.getCacheId())) {
+                        getCache(invalidation.getCacheId()).removeObject(invalidation.getKey());
+                    }
+                    break;
+            }
+        }
+    }
+
     public String getDatabaseId() {
         return databaseId;
     }
@@ -544,6 +786,35 @@ public class Configuration {
         this.useColumnLabel = useColumnLabel;
     }
 
+    public CacheKeyMode getCacheKeyMode() {
+        return cacheKeyMode;
+    }
+
+    /**
+     * Sets how the keys of the local and second level caches are built.
+     *
+     * @param cacheKeyMode the cache key mode
+     */
+    public void setCacheKeyMode(CacheKeyMode cacheKeyMode) {
+        this.cacheKeyMode = cacheKeyMode;
+    }
+
+    /**
+     * Creates an empty key for the local and second level caches, as configured by the cache key mode.
+     *
+     * @return the cache key
+     */
+    public CacheKey newCacheKey() {
+        switch (cacheKeyMode) {
+            case COMPACT:
+                return new CompactCacheKey();
+            case COMPACT_CHECKED:
+                return new CompactCacheKey(true);
+            default:
+                return new CacheKey();
+        }
+    }
+
     public LocalCacheScope getLocalCacheScope() {
         return localCacheScope;
     }
@@ -552,6 +823,40 @@ public class Configuration {
         this.localCacheScope = localCacheScope;
     }
 
+    public int getLocalCacheMaxSize() {
+        return localCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum number of result lists kept by the local cache of a session, 0 for no limit.
+     *
+     * @param localCacheMaxSize the maximum number of entries
+     */
+    public void setLocalCacheMaxSize(int localCacheMaxSize) {
+        this.localCacheMaxSize = localCacheMaxSize;
+    }
+
+    public long getLocalCacheMaxWeightBytes() {
+        return localCacheMaxWeightBytes;
+    }
+
+    /**
+     * Sets the maximum estimated size in bytes of the result lists kept by the local cache of a session, 0 for no limit.
+     *
+     * @param localCacheMaxWeightBytes the maximum weight
+     */
+    public void setLocalCacheMaxWeightBytes(long localCacheMaxWeightBytes) {
+        this.localCacheMaxWeightBytes = localCacheMaxWeightBytes;
+    }
+
+    public Weigher getLocalCacheWeigher() {
+        return localCacheWeigher;
+    }
+
+    public void setLocalCacheWeigher(Weigher localCacheWeigher) {
+        this.localCacheWeigher = localCacheWeigher;
+    }
+
     public JdbcType getJdbcTypeForNull() {
         return jdbcTypeForNull;
     }
@@ -728,7 +1033,8 @@ public class Configuration {
         // 开启了二级缓存，默认是true的
         if (cacheEnabled) {
             // 使用 CachingExecutor 装饰 executor
-            executor = new CachingExecutor(executor);
+            executor = new CachingExecutor(executor, cacheInvalidationBus,
+                    versionedCacheEnabled ? cacheVersions : null);
         }
         // 应用插件
         executor = (Executor) interceptorChain.pluginAll(executor);
@@ -756,7 +1062,62 @@ public class Configuration {
     }
 
     public void addCache(Cache cache) {
+        addCache(cache, null);
+    }
+
+    public void addCache(Cache cache, CacheStatsCounter statsCounter) {
         caches.put(cache.getId(), cache);
+        if (statsCounter != null) {
+            cacheStatsCounters.put(cache.getId(), statsCounter);
+        }
+        if (cacheStatsJmxEnabled) {
+            ObjectName name = CacheStatsMonitor.register(this, cache.getId());
+            if (name != null) {
+                cacheStatsMBeanNames.put(cache.getId(), name);
+            }
+        }
+    }
+
+    public CacheStatsCounter getCacheStatsCounter(String id) {
+        return cacheStatsCounters.get(id);
+    }
+
+    /**
+     * Takes a snapshot of the statistics of a second level cache. Caches added without counters only report their
+     * size.
+     *
+     * @param id the cache id
+     * @return the statistics
+     */
+    public CacheStats getCacheStats(String id) {
+        Cache cache = caches.get(id);
+        CacheStatsCounter statsCounter = cacheStatsCounters.get(cache.getId());
+        if (statsCounter == null) {
+            return new CacheStats(0, 0, 0, 0, 0, 0, 0, cache.getSize(), -1);
+        }
+        return statsCounter.snapshot(cache.getSize());
+    }
+
+    public Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new TreeMap<>();
+        // the values also hold the entries of the short names
+        for (Object value : (Collection<?>) caches.values()) {
+            if (value instanceof Cache) {
+                String id = ((Cache) value).getId();
+                stats.put(id, getCacheStats(id));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Removes the statistics of all caches of this configuration from the platform MBean server.
+     */
+    public void unregisterCacheStatsMBeans() {
+        for (ObjectName name : cacheStatsMBeanNames.values()) {
+            CacheStatsMonitor.unregister(name);
+        }
+        cacheStatsMBeanNames.clear();
     }
 
     public Collection<String> getCacheNames() {
@@ -105,7 +105,16 @@ public class SqlSessionFactoryBuilder {
   }
 
   public SqlSessionFactory build(Configuration config) {
-    return new DefaultSqlSessionFactory(config);
+    SqlSessionFactory sqlSessionFactory = new DefaultSqlSessionFactory(config);
+    if (config.getCacheSnapshotFile() != null) {
+      // restored before the warm-up, whose queries may then be served by the snapshot
+      CacheSnapshots.load(config);
+      CacheSnapshots.saveOnShutdown(config);
+    }
+    if (!config.getCacheWarmups().isEmpty() && config.getEnvironment() != null) {
+      config.setCacheWarmupReport(CacheWarmer.warmUp(sqlSessionFactory));
+    }
+    return sqlSessionFactory;
   }
 
 }
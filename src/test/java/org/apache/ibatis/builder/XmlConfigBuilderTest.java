@@ -54,6 +54,7 @@ import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.CacheKeyMode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
@@ -92,6 +93,9 @@ class XmlConfigBuilderTest {
       assertThat(config.isMapUnderscoreToCamelCase()).isFalse();
       assertThat(config.isSafeRowBoundsEnabled()).isFalse();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.SESSION);
+      assertThat(config.getLocalCacheMaxSize()).isZero();
+      assertThat(config.getLocalCacheMaxWeightBytes()).isZero();
+      assertThat(config.getCacheKeyMode()).isEqualTo(CacheKeyMode.FULL);
       assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.OTHER);
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString")));
       assertThat(config.isSafeResultHandlerEnabled()).isTrue();
@@ -105,6 +109,13 @@ class XmlConfigBuilderTest {
       assertThat(config.isArgNameBasedConstructorAutoMapping()).isFalse();
       assertThat(config.getDefaultSqlProviderType()).isNull();
       assertThat(config.isNullableOnForEach()).isFalse();
+      assertThat(config.isTableBasedCacheInvalidation()).isFalse();
+      assertThat(config.isTableBasedLocalCacheInvalidation()).isFalse();
+      assertThat(config.getCacheWarmupThreads()).isEqualTo(4);
+      assertThat(config.getCacheSnapshotFile()).isNull();
+      assertThat(config.isCacheStatsJmxEnabled()).isFalse();
+      assertThat(config.isVersionedCacheEnabled()).isFalse();
+      assertThat(config.isFusedCacheEnabled()).isFalse();
     }
   }
 
@@ -191,6 +202,9 @@ class XmlConfigBuilderTest {
       assertThat(config.isMapUnderscoreToCamelCase()).isTrue();
       assertThat(config.isSafeRowBoundsEnabled()).isTrue();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.STATEMENT);
+      assertThat(config.getLocalCacheMaxSize()).isEqualTo(1000);
+      assertThat(config.getLocalCacheMaxWeightBytes()).isEqualTo(16777216L);
+      assertThat(config.getCacheKeyMode()).isEqualTo(CacheKeyMode.COMPACT);
       assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.NULL);
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString", "xxx")));
       assertThat(config.isSafeResultHandlerEnabled()).isFalse();
@@ -204,6 +218,13 @@ class XmlConfigBuilderTest {
       assertThat(config.isArgNameBasedConstructorAutoMapping()).isTrue();
       assertThat(config.getDefaultSqlProviderType().getName()).isEqualTo(MySqlProvider.class.getName());
       assertThat(config.isNullableOnForEach()).isTrue();
+      assertThat(config.isTableBasedCacheInvalidation()).isTrue();
+      assertThat(config.isTableBasedLocalCacheInvalidation()).isTrue();
+      assertThat(config.getCacheWarmupThreads()).isEqualTo(8);
+      assertThat(config.getCacheSnapshotFile()).isEqualTo("target/caches.snapshot");
+      assertThat(config.isCacheStatsJmxEnabled()).isTrue();
+      assertThat(config.isVersionedCacheEnabled()).isTrue();
+      assertThat(config.isFusedCacheEnabled()).isTrue();
 
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor")).isEqualTo(Author.class);
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blog")).isEqualTo(Blog.class);
@@ -0,0 +1,163 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  @Test
+  void shouldShareOneLoadBetweenConcurrentMisses() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setSingleFlight(true);
+    cache.setSerializer(new JavaSerializer());
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Object>> futures = new ArrayList<>();
+      futures.add(executor.submit(() -> cache.getObject("key", () -> {
+        loads.incrementAndGet();
+        loading.countDown();
+        await(release);
+        return new ArrayList<>(Collections.singletonList("value"));
+      })));
+      loading.await(5, TimeUnit.SECONDS);
+      for (int i = 0; i < 3; i++) {
+        futures.add(executor.submit(() -> cache.getObject("key", () -> {
+          loads.incrementAndGet();
+          return new ArrayList<>(Collections.singletonList("other"));
+        })));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      Object first = futures.get(0).get(5, TimeUnit.SECONDS);
+      for (Future<Object> future : futures) {
+        Object value = future.get(5, TimeUnit.SECONDS);
+        assertEquals(first, value);
+        if (future != futures.get(0)) {
+          assertNotSame(first, value);
+        }
+      }
+      assertEquals(1, loads.get());
+      // nothing is cached until the loaded value is put
+      assertNull(cache.getObject("key"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldLoadAgainWhenSharedLoadFails() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setSingleFlight(true);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Object> failing = executor.submit(() -> cache.getObject("key", () -> {
+        loading.countDown();
+        await(release);
+        throw new java.sql.SQLException("failed");
+      }));
+      loading.await(5, TimeUnit.SECONDS);
+      Future<Object> waiting = executor.submit(() -> cache.getObject("key", () -> "value"));
+      Thread.sleep(100);
+      release.countDown();
+      assertEquals("value", waiting.get(5, TimeUnit.SECONDS));
+      assertThrows(Exception.class, () -> failing.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldNotHoldLockUntilCommit() throws Exception {
+    Cache cache = new CacheBuilder("default").singleFlight(true).build();
+    TransactionalCache first = new TransactionalCache(cache);
+    TransactionalCache second = new TransactionalCache(cache);
+    assertEquals("first", first.getObject("key", () -> "first"));
+    // a miss in a pending transaction does not block the other one
+    assertEquals("second", second.getObject("key", () -> "second"));
+    first.commit();
+    assertEquals("first", second.getObject("key", () -> "third"));
+  }
+
+  @Test
+  void shouldNotShareLoadAfterPendingClear() throws Exception {
+    Cache cache = new CacheBuilder("default").singleFlight(true).build();
+    cache.putObject("key", "cached");
+    TransactionalCache transactionalCache = new TransactionalCache(cache);
+    transactionalCache.clear();
+    assertEquals("loaded", transactionalCache.getObject("key", () -> "loaded"));
+    transactionalCache.commit();
+    assertEquals("loaded", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldNotShareLoadOfTransactionWithPendingWrites() throws Exception {
+    Cache cache = new CacheBuilder("default").singleFlight(true).build();
+    TransactionalCacheManager writing = new TransactionalCacheManager();
+    TransactionalCacheManager reading = new TransactionalCacheManager();
+    CacheKey key = new CacheKey(new Object[] { "select" });
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      writing.addPendingWrites();
+      Future<Object> uncommitted = executor.submit(() -> writing.getObject(cache, key, () -> {
+        loading.countDown();
+        await(release);
+        return "uncommitted";
+      }));
+      loading.await(5, TimeUnit.SECONDS);
+      // the other transaction neither waits for nor gets the uncommitted value
+      assertEquals("committed", reading.getObject(cache, key, () -> "committed"));
+      release.countDown();
+      assertEquals("uncommitted", uncommitted.get(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.NegativeResultCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class BulkCacheTest {
+
+  @Test
+  void shouldPutAndGetSeveralObjects() {
+    LoggingCache loggingCache = new LoggingCache(new SerializedCache(new PerpetualCache("default")));
+    Cache cache = new SynchronizedCache(loggingCache);
+    Map<Object, Object> objects = new HashMap<>();
+    objects.put(1, "one");
+    objects.put(2, "two");
+    cache.putObjects(objects);
+    assertEquals(2, cache.getSize());
+    Map<Object, Object> found = cache.getObjects(Arrays.asList(1, 2, 3));
+    assertEquals(objects, found);
+    assertNotSame(objects.get(1), found.get(1));
+    assertEquals(2, loggingCache.getStats().getHitCount());
+    assertEquals(1, loggingCache.getStats().getMissCount());
+  }
+
+  @Test
+  void shouldKeepEmptyResultsApartInBulk() {
+    Cache delegate = new PerpetualCache("default");
+    NegativeResultCache cache = new NegativeResultCache(delegate);
+    Map<Object, Object> objects = new HashMap<>();
+    objects.put(1, new ArrayList<>());
+    objects.put(2, Collections.singletonList(2));
+    cache.putObjects(objects);
+    assertEquals(1, delegate.getSize());
+    assertEquals(1, cache.getNegativeCount());
+    assertEquals(objects, cache.getObjects(Arrays.asList(1, 2, 3)));
+  }
+
+  @Test
+  void shouldFlushTransactionalEntriesInOneCall() {
+    CountingCache delegate = new CountingCache();
+    TransactionalCache cache = new TransactionalCache(delegate);
+    cache.putObject(1, "one");
+    cache.putObject(2, "two");
+    assertNull(cache.getObject(3));
+    cache.commit();
+    assertEquals(1, delegate.bulkWrites);
+    assertEquals(3, delegate.getSize());
+    assertEquals("one", delegate.getObject(1));
+    assertNull(delegate.getObject(3));
+  }
+
+  @Test
+  void shouldNotAskAgainForKeysMissedInBulk() {
+    CountingCache delegate = new CountingCache();
+    delegate.putObject(1, "one");
+    TransactionalCache cache = new TransactionalCache(delegate);
+    assertEquals(Collections.singletonMap(1, "one"), cache.getObjects(Arrays.asList(1, 2)));
+    assertEquals(1, delegate.bulkReads);
+    int reads = delegate.singleReads;
+    assertNull(cache.getObject(2));
+    assertEquals(reads, delegate.singleReads);
+    cache.putObject(2, "two");
+    cache.commit();
+    assertEquals("two", delegate.getObject(2));
+  }
+
+  private static class CountingCache extends PerpetualCache {
+    private int singleReads;
+    private int bulkReads;
+    private int bulkWrites;
+
+    CountingCache() {
+      super("counting");
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      singleReads++;
+      return super.getObject(key);
+    }
+
+    @Override
+    public Map<Object, Object> getObjects(Collection<?> keys) {
+      bulkReads++;
+      return super.getObjects(keys);
+    }
+
+    @Override
+    public void putObjects(Map<?, ?> objects) {
+      bulkWrites++;
+      super.putObjects(objects);
+    }
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.invalidation.CacheInvalidation;
+import org.apache.ibatis.cache.invalidation.LocalCacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.SocketCacheInvalidationBus;
+import org.apache.ibatis.domain.blog.Author;
+import org.junit.jupiter.api.Test;
+
+class CacheInvalidationBusTest {
+
+  @Test
+  void shouldCoalesceInvalidations() {
+    LocalCacheInvalidationBus publisher = newLocalBus("coalesce", 60000);
+    LocalCacheInvalidationBus subscriber = newLocalBus("coalesce", 60000);
+    List<List<CacheInvalidation>> published = new ArrayList<>();
+    List<List<CacheInvalidation>> received = new ArrayList<>();
+    publisher.subscribe(published::add);
+    subscriber.subscribe(received::add);
+    try {
+      publisher.publish(CacheInvalidation.key("a", "k1"));
+      publisher.publish(CacheInvalidation.namespace("a"));
+      publisher.publish(CacheInvalidation.namespace("a"));
+      publisher.publish(CacheInvalidation.tables(Collections.singleton("person")));
+      publisher.publish(CacheInvalidation.tables(Arrays.asList("pet", "person")));
+      publisher.publish(CacheInvalidation.key("b", "k2"));
+      publisher.publish(CacheInvalidation.key("b", "k2"));
+      assertTrue(received.isEmpty());
+      publisher.flush();
+      assertEquals(Collections.singletonList(Arrays.asList(CacheInvalidation.namespace("a"),
+          CacheInvalidation.tables(Arrays.asList("person", "pet")), CacheInvalidation.key("b", "k2"))), received);
+      // a node does not receive its own invalidations
+      assertTrue(published.isEmpty());
+    } finally {
+      publisher.close();
+      subscriber.close();
+    }
+  }
+
+  @Test
+  void shouldSendFullBatches() {
+    LocalCacheInvalidationBus publisher = newLocalBus("batches", 60000);
+    LocalCacheInvalidationBus subscriber = newLocalBus("batches", 60000);
+    publisher.setMaxBatchSize(2);
+    List<List<CacheInvalidation>> received = new ArrayList<>();
+    subscriber.subscribe(received::add);
+    try {
+      publisher.publish(CacheInvalidation.namespace("a"));
+      assertTrue(received.isEmpty());
+      publisher.publish(CacheInvalidation.namespace("b"));
+      assertEquals(1, received.size());
+      publisher.publish(CacheInvalidation.namespace("c"));
+      publisher.close();
+      assertEquals(Collections.singletonList(CacheInvalidation.namespace("c")), received.get(1));
+    } finally {
+      subscriber.close();
+    }
+  }
+
+  @Test
+  void shouldSendAfterBatchDelay() throws Exception {
+    LocalCacheInvalidationBus publisher = newLocalBus("delay", 10);
+    LocalCacheInvalidationBus subscriber = newLocalBus("delay", 10);
+    BlockingQueue<List<CacheInvalidation>> received = new LinkedBlockingQueue<>();
+    subscriber.subscribe(received::add);
+    try {
+      publisher.publish(CacheInvalidation.namespace("a"));
+      publisher.publish(CacheInvalidation.namespace("b"));
+      assertEquals(Arrays.asList(CacheInvalidation.namespace("a"), CacheInvalidation.namespace("b")),
+          received.poll(5, TimeUnit.SECONDS));
+    } finally {
+      publisher.close();
+      subscriber.close();
+    }
+  }
+
+  @Test
+  void shouldSendOverLoopbackSockets() throws Exception {
+    SocketCacheInvalidationBus node1 = new SocketCacheInvalidationBus();
+    SocketCacheInvalidationBus node2 = new SocketCacheInvalidationBus();
+    node1.setBatchDelay(0);
+    BlockingQueue<List<CacheInvalidation>> received = new LinkedBlockingQueue<>();
+    node1.subscribe(invalidations -> fail("Received own invalidations"));
+    node2.subscribe(received::add);
+    node1.setPeers(node1.getLocalPort() + "," + node2.getLocalPort());
+    try {
+      CacheKey key = new CacheKey(new Object[] { "select", 1, new java.sql.Date(0) });
+      node1.publish(CacheInvalidation.key("a", key));
+      assertEquals(Collections.singletonList(CacheInvalidation.key("a", key)), received.poll(5, TimeUnit.SECONDS));
+      // keys holding other than JDK value types would be rejected by the receiver, so their whole cache is cleared
+      node1.publish(CacheInvalidation.key("a", new CacheKey(new Object[] { new Author(1) })));
+      assertEquals(Collections.singletonList(CacheInvalidation.namespace("a")), received.poll(5, TimeUnit.SECONDS));
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldKeepOtherInvalidationsOfBatchWithKeyNotAllowed() throws Exception {
+    SocketCacheInvalidationBus node1 = new SocketCacheInvalidationBus();
+    SocketCacheInvalidationBus node2 = new SocketCacheInvalidationBus();
+    node1.setBatchDelay(60000);
+    BlockingQueue<List<CacheInvalidation>> received = new LinkedBlockingQueue<>();
+    node2.subscribe(received::add);
+    node1.setPeers(String.valueOf(node2.getLocalPort()));
+    try {
+      CacheKey key = new CacheKey(new Object[] { "select", 1 });
+      node1.publish(CacheInvalidation.key("a", new CacheKey(new Object[] { new Author(1) })));
+      node1.publish(CacheInvalidation.key("b", key));
+      node1.publish(CacheInvalidation.tables(Collections.singleton("person")));
+      node1.flush();
+      assertEquals(
+          new HashSet<>(Arrays.asList(CacheInvalidation.namespace("a"), CacheInvalidation.key("b", key),
+              CacheInvalidation.tables(Collections.singleton("person")))),
+          new HashSet<>(received.poll(5, TimeUnit.SECONDS)));
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldInvalidateWholeCacheOfCompactKey() {
+    CompactCacheKey key = new CompactCacheKey();
+    key.update("select");
+    assertEquals(CacheInvalidation.namespace("a"), CacheInvalidation.key("a", key));
+  }
+
+  private static LocalCacheInvalidationBus newLocalBus(String channel, long batchDelay) {
+    LocalCacheInvalidationBus bus = new LocalCacheInvalidationBus();
+    bus.setChannel(channel);
+    bus.setBatchDelay(batchDelay);
+    return bus;
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CacheStatsTest {
+
+  @Test
+  void shouldCountHitsMissesPutsAndEvictions() {
+    CacheStatsCounter counter = new CacheStatsCounter();
+    Cache cache = new CacheBuilder("default").size(2).statsCounter(counter).build();
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, i);
+    }
+    assertNull(cache.getObject(0));
+    assertEquals(2, cache.getObject(2));
+    CacheStats stats = counter.snapshot(cache.getSize());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(0.5, stats.getHitRatio());
+    assertEquals(3, stats.getPutCount());
+    assertEquals(1, stats.getEvictionCount());
+    assertEquals(2, stats.getSize());
+    assertEquals(-1, stats.getWeight());
+  }
+
+  @Test
+  void shouldCountEvictionsOfOtherPolicies() throws Exception {
+    CacheStatsCounter counter = new CacheStatsCounter();
+    Cache cache = new CacheBuilder("default").addDecorator(FifoCache.class).size(1).statsCounter(counter).build();
+    cache.putObject(1, 1);
+    cache.putObject(2, 2);
+    assertEquals(1, counter.snapshot(0).getEvictionCount());
+
+    counter = new CacheStatsCounter();
+    cache = new CacheBuilder("default").implementation(ConcurrentLruCache.class).size(1).statsCounter(counter).build();
+    cache.putObject(1, 1);
+    cache.putObject(2, 2);
+    assertEquals(1, counter.snapshot(0).getEvictionCount());
+
+    counter = new CacheStatsCounter();
+    ExpiringCache expiring = new ExpiringCache(new PerpetualCache("default"));
+    expiring.setExpireAfterWrite(1);
+    expiring.setStatsCounter(counter);
+    expiring.putObject(1, 1);
+    Thread.sleep(10);
+    assertNull(expiring.getObject(1));
+    assertEquals(1, counter.snapshot(0).getEvictionCount());
+  }
+
+  @Test
+  void shouldReportWeight() {
+    CacheStatsCounter counter = new CacheStatsCounter();
+    Cache cache = new CacheBuilder("default").maxWeightBytes(1024L * 1024).statsCounter(counter).build();
+    cache.putObject(1, "value");
+    assertTrue(counter.snapshot(cache.getSize()).getWeight() > 0);
+    cache.clear();
+    assertEquals(0, counter.snapshot(cache.getSize()).getWeight());
+  }
+
+  @Test
+  void shouldPublishStatsToJmx() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setCacheStatsJmxEnabled(true);
+    CacheStatsCounter counter = new CacheStatsCounter();
+    Cache cache = new CacheBuilder("org.example.FooMapper").statsCounter(counter).build();
+    configuration.addCache(cache, counter);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      cache.putObject(1, 1);
+      cache.getObject(1);
+      Set<ObjectName> names = server.queryNames(new ObjectName("org.apache.ibatis:type=CacheStats,*"), null);
+      ObjectName name = names.stream()
+          .filter(n -> "org.example.FooMapper".equals(ObjectName.unquote(n.getKeyProperty("id")))).findFirst()
+          .orElseThrow(AssertionError::new);
+      assertEquals(1L, server.getAttribute(name, "HitCount"));
+      assertEquals(1, server.getAttribute(name, "Size"));
+      assertEquals(1, configuration.getCacheStats().size());
+    } finally {
+      configuration.unregisterCacheStatsMBeans();
+    }
+    assertTrue(server.queryNames(new ObjectName("org.apache.ibatis:type=CacheStats,*"), null).stream()
+        .noneMatch(n -> "org.example.FooMapper".equals(ObjectName.unquote(n.getKeyProperty("id")))));
+  }
+
+}
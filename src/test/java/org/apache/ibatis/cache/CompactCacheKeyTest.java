@@ -0,0 +1,148 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Date;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.CacheKeyMode;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompactCacheKeyTest {
+
+  private static final String LONG_SQL = "select id, username, password, email, bio, favourite_section from author"
+      + " where id = ? and username = ?";
+
+  @Test
+  void shouldBeEqualForEqualComponents() {
+    CacheKey key1 = newKey("ns.select", 0, Integer.MAX_VALUE, LONG_SQL, 1, "hello", null, new Date(1000L),
+        new BigDecimal("1.50"), LocalDate.of(2020, 1, 2), Section.NEWS, new byte[] { 1, 2, 3 },
+        new Object[] { 1, "a" });
+    CacheKey key2 = newKey("ns.select", 0, Integer.MAX_VALUE, new String(LONG_SQL), 1, "hello", null,
+        new Date(1000L), new BigDecimal("1.50"), LocalDate.of(2020, 1, 2), Section.NEWS, new byte[] { 1, 2, 3 },
+        new Object[] { 1, "a" });
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+    assertEquals(13, key1.getUpdateCount());
+  }
+
+  @Test
+  void shouldNotBeEqualForDifferentComponents() {
+    assertNotEquals(newKey(1, "hello"), newKey(1, "hellp"));
+    assertNotEquals(newKey(1, "hello"), newKey("hello", 1));
+    assertNotEquals(newKey(1), newKey(1L));
+    assertNotEquals(newKey(new BigDecimal("1.5")), newKey(new BigDecimal("1.50")));
+    assertNotEquals(newKey(new Date(1000L)), newKey(new Timestamp(1000L)));
+    assertNotEquals(newKey("a", "bc"), newKey("ab", "c"));
+    assertNotEquals(newKey((Object) null), newKey());
+    assertNotEquals(newKey(LONG_SQL), newKey(LONG_SQL + " "));
+    assertNotEquals(newKey(new byte[] { 1, 2 }), newKey(new byte[] { 1, 2, 0 }));
+  }
+
+  @Test
+  void shouldCompareOtherObjectsWithEquals() {
+    Author author1 = new Author(1, "user", "pass", "user@example.com", "bio", Section.NEWS);
+    Author author2 = new Author(1, "user", "pass", "user@example.com", "bio", Section.NEWS);
+    Author author3 = new Author(2, "user", "pass", "user@example.com", "bio", Section.NEWS);
+    assertEquals(newKey(LONG_SQL, author1), newKey(LONG_SQL, author2));
+    assertNotEquals(newKey(LONG_SQL, author1), newKey(LONG_SQL, author3));
+    // an array holding other objects is compared element by element
+    assertEquals(newKey((Object) new Object[] { author1 }), newKey((Object) new Object[] { author2 }));
+  }
+
+  @Test
+  void shouldNotRetainHashedComponents() {
+    CompactCacheKey key = new CompactCacheKey();
+    key.update(LONG_SQL);
+    key.update(1);
+    assertEquals(String.format("%016x%016x", key.getFingerprintHigh(), key.getFingerprintLow()) + ":2",
+        key.toString());
+    CompactCacheKey checked = new CompactCacheKey(true);
+    checked.update(LONG_SQL);
+    checked.update(1);
+    assertTrue(checked.toString().endsWith(":2:" + LONG_SQL + ":1"));
+    assertEquals(key, checked);
+  }
+
+  @Test
+  void shouldNotBeEqualToFullKey() {
+    CacheKey full = new CacheKey(new Object[] { 1 });
+    CacheKey compact = newKey(1);
+    assertNotEquals(full, compact);
+    assertNotEquals(compact, full);
+    assertNotEquals(new CacheKey(), new CompactCacheKey());
+  }
+
+  @Test
+  void shouldBeClonedAndSerialized() throws Exception {
+    CompactCacheKey key = new CompactCacheKey();
+    key.update(LONG_SQL);
+    CacheKey clone = key.clone();
+    clone.update(1);
+    key.update(1);
+    assertEquals(key, clone);
+    clone.update(2);
+    assertNotEquals(key, clone);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(key);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(key, in.readObject());
+    }
+  }
+
+  @Test
+  void shouldBeCreatedByConfiguration() {
+    Configuration configuration = new Configuration();
+    assertEquals(CacheKey.class, configuration.newCacheKey().getClass());
+    configuration.setCacheKeyMode(CacheKeyMode.COMPACT);
+    assertEquals(CompactCacheKey.class, configuration.newCacheKey().getClass());
+  }
+
+  @Test
+  void shouldHashSqlLikeAnyOtherString() {
+    for (String sql : new String[] { LONG_SQL, "select 1" }) {
+      CacheKey key = new CompactCacheKey(true);
+      key.update("ns.select");
+      key.updateSql(sql);
+      key.update(LONG_SQL);
+      assertEquals(newKey("ns.select", sql, LONG_SQL), key);
+      assertEquals(3, key.getUpdateCount());
+    }
+  }
+
+  private static CacheKey newKey(Object... components) {
+    CacheKey key = new CompactCacheKey();
+    key.updateAll(components);
+    return key;
+  }
+
+}
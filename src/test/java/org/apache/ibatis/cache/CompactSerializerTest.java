@@ -0,0 +1,180 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.cache.serializer.CompressingSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class CompactSerializerTest {
+
+  private final CacheSerializer serializer = new CompactSerializer();
+
+  @Test
+  void shouldCopyListOfBeans() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "pass", "user" + i + "@example.com", null, Section.NEWS));
+    }
+    @SuppressWarnings("unchecked")
+    List<Author> copy = (List<Author>) serializer.deserialize(serializer.serialize(authors));
+    assertEquals(authors, copy);
+    assertNotSame(authors.get(0), copy.get(0));
+    assertTrue(serializer.serialize(authors).length < new JavaSerializer().serialize(authors).length);
+  }
+
+  @Test
+  void shouldCopySimpleValues() {
+    Map<String, Object> row = new HashMap<>();
+    row.put("string", "value");
+    row.put("integer", 1);
+    row.put("long", 2L);
+    row.put("decimal", new BigDecimal("3.14"));
+    row.put("date", new Date(1000L));
+    row.put("sqlDate", new java.sql.Date(2000L));
+    Timestamp timestamp = new Timestamp(3000L);
+    timestamp.setNanos(123456789);
+    row.put("timestamp", timestamp);
+    row.put("bytes", new byte[] { 1, 2, 3 });
+    row.put("flag", Boolean.TRUE);
+    row.put("nothing", null);
+    row.put("uuid", UUID.randomUUID());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) serializer.deserialize(serializer.serialize(row));
+    assertArrayEquals((byte[]) row.remove("bytes"), (byte[]) copy.remove("bytes"));
+    assertEquals(row, copy);
+    assertEquals(java.sql.Date.class, copy.get("sqlDate").getClass());
+  }
+
+  @Test
+  void shouldKeepSharedReferencesAndCycles() {
+    Node parent = new Node();
+    parent.setName("parent");
+    Node child = new Node();
+    child.setName("child");
+    child.setParent(parent);
+    parent.getChildren().add(child);
+    List<Node> nodes = new ArrayList<>();
+    nodes.add(parent);
+    nodes.add(child);
+    @SuppressWarnings("unchecked")
+    List<Node> copy = (List<Node>) serializer.deserialize(serializer.serialize(nodes));
+    Node parentCopy = copy.get(0);
+    Node childCopy = copy.get(1);
+    assertEquals("parent", parentCopy.getName());
+    assertSame(childCopy, parentCopy.getChildren().get(0));
+    assertSame(parentCopy, childCopy.getParent());
+  }
+
+  @Test
+  void shouldFallBackToJavaSerializationForNonBeans() {
+    Immutable value = new Immutable("value");
+    Immutable copy = (Immutable) serializer.deserialize(serializer.serialize(value));
+    assertEquals("value", copy.value);
+    assertNotSame(value, copy);
+  }
+
+  @Test
+  void shouldCompressLargePayloads() {
+    CacheSerializer compressing = new CompressingSerializer(serializer, 16);
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add("repeated value");
+    }
+    byte[] bytes = compressing.serialize(values);
+    assertTrue(bytes.length < serializer.serialize(values).length);
+    assertEquals(values, compressing.deserialize(bytes));
+    assertEquals("small", compressing.deserialize(compressing.serialize("small")));
+  }
+
+  @Test
+  void shouldUseConfiguredSerializerInReadWriteCache() {
+    Cache cache = new CacheBuilder("default").serializer(CompactSerializer.class).compress(true).readWrite(true)
+        .build();
+    Author author = new Author(1, "user", "pass", "user@example.com", "bio", Section.IMAGES);
+    cache.putObject(1, author);
+    assertEquals(author, cache.getObject(1));
+    assertNotSame(author, cache.getObject(1));
+  }
+
+  @Test
+  void shouldSerializeWithSerializedCacheDecorator() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), serializer);
+    cache.putObject(1, "value");
+    assertEquals("value", cache.getObject(1));
+    assertThrows(CacheException.class, () -> cache.putObject(2, new Object()));
+  }
+
+  public static class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private Node parent;
+    private List<Node> children = new ArrayList<>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+  }
+
+  static class Immutable implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String value;
+
+    Immutable(String value) {
+      this.value = value;
+    }
+  }
+
+}
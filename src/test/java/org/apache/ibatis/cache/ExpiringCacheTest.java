@@ -0,0 +1,120 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void shouldExpireEntriesAfterWrite() {
+    ExpiringCache cache = newExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterWrite(50);
+    cache.putObject(0, 0);
+    now.addAndGet(10);
+    cache.putObject(1, 1);
+    assertEquals(0, cache.getObject(0));
+    now.addAndGet(40);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+  }
+
+  @Test
+  void shouldExpireEntriesNotAccessed() {
+    ExpiringCache cache = newExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterAccess(100);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    for (int i = 0; i < 4; i++) {
+      now.addAndGet(40);
+      assertEquals(0, cache.getObject(0));
+    }
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldRemoveExpiredEntriesWhenWriting() {
+    Cache delegate = new PerpetualCache("default");
+    ExpiringCache cache = newExpiringCache(delegate);
+    cache.setExpireAfterWrite(20);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    now.addAndGet(30);
+    cache.putObject(5, 5);
+    assertEquals(1, delegate.getSize());
+  }
+
+  @Test
+  void shouldSpreadExpirationsWithJitter() {
+    ExpiringCache cache = newExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterWrite(1);
+    cache.setJitter(60000);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    now.addAndGet(10);
+    int cached = 0;
+    for (int i = 0; i < 100; i++) {
+      if (cache.getObject(i) != null) {
+        cached++;
+      }
+    }
+    assertTrue(cached > 90);
+  }
+
+  @Test
+  void shouldFreeRoomOfEvictionDecoratorWhenExpiring() throws Exception {
+    CacheStatsCounter statsCounter = new CacheStatsCounter();
+    Cache cache = new CacheBuilder("default").size(2).expireAfterWrite(500L).statsCounter(statsCounter).build();
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    Thread.sleep(600);
+    cache.putObject(2, 2);
+    cache.putObject(3, 3);
+    // only the expired entries were evicted, the least recently used one was not
+    assertEquals(2, statsCounter.snapshot(0).getEvictionCount());
+    assertEquals(2, cache.getObject(2));
+    assertEquals(3, cache.getObject(3));
+  }
+
+  @Test
+  void shouldBuildExpiringCache() throws Exception {
+    Cache cache = new CacheBuilder("default").expireAfterWrite(500L).build();
+    assertTrue(cache instanceof SynchronizedCache);
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    Thread.sleep(600);
+    assertNull(cache.getObject(0));
+  }
+
+  private ExpiringCache newExpiringCache(Cache delegate) {
+    ExpiringCache cache = new ExpiringCache(delegate);
+    cache.setClock(now::get);
+    return cache;
+  }
+
+}
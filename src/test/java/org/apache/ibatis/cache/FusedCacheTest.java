@@ -0,0 +1,123 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.FusedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class FusedCacheTest {
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntry() {
+    CacheStatsCounter statsCounter = new CacheStatsCounter();
+    FusedCache cache = new FusedCache("default", statsCounter, true);
+    cache.setSize(2);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(2, 2);
+    assertEquals(0, cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertEquals(2, cache.getSize());
+    assertEquals(1, statsCounter.snapshot(0).getEvictionCount());
+  }
+
+  @Test
+  void shouldEvictOldestEntry() {
+    FusedCache cache = new FusedCache("default", new CacheStatsCounter(), false);
+    cache.setSize(2);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(2, 2);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+  }
+
+  @Test
+  void shouldReturnCopiesWhenSerializing() {
+    FusedCache cache = new FusedCache("default", new CacheStatsCounter(), true);
+    cache.setSerializer(new JavaSerializer());
+    List<String> value = new ArrayList<>(Collections.singletonList("a"));
+    cache.putObject(0, value);
+    assertEquals(value, cache.getObject(0));
+    assertNotSame(value, cache.getObject(0));
+    assertNotSame(cache.getObject(0), cache.getObject(0));
+    assertThrows(CacheException.class, () -> cache.putObject(1, new Object()));
+    assertEquals(Collections.singletonMap(0, value), cache.getObjects(Arrays.asList(0, 1)));
+  }
+
+  @Test
+  void shouldClearAfterInterval() throws Exception {
+    FusedCache cache = new FusedCache("default", new CacheStatsCounter(), true);
+    cache.setClearInterval(20);
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    Thread.sleep(30);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldCountHitsMissesAndPuts() {
+    CacheStatsCounter statsCounter = new CacheStatsCounter();
+    FusedCache cache = new FusedCache("default", statsCounter, true);
+    cache.putObject(0, 0);
+    cache.getObject(0);
+    cache.getObject(1);
+    CacheStats stats = statsCounter.snapshot(cache.getSize());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(1, stats.getPutCount());
+  }
+
+  @Test
+  void shouldEqualCachesWithSameId() {
+    FusedCache cache = new FusedCache("test_cache", new CacheStatsCounter(), true);
+    assertEquals(new PerpetualCache("test_cache"), cache);
+    assertEquals(cache, new PerpetualCache("test_cache"));
+    assertEquals(new PerpetualCache("test_cache").hashCode(), cache.hashCode());
+  }
+
+  @Test
+  void shouldBeBuiltForStandardCombinations() {
+    assertTrue(new CacheBuilder("default").fused(true).readWrite(true).clearInterval(1000L).build() instanceof FusedCache);
+    assertTrue(new CacheBuilder("default").fused(true).addDecorator(FifoCache.class).build() instanceof FusedCache);
+    Cache blocking = new CacheBuilder("default").fused(true).blocking(true).build();
+    assertTrue(((BlockingCache) blocking).getDelegate() instanceof FusedCache);
+  }
+
+  @Test
+  void shouldKeepDecoratorsForOtherCombinations() {
+    assertTrue(new CacheBuilder("default").build() instanceof SynchronizedCache);
+    assertTrue(new CacheBuilder("default").fused(true).expireAfterWrite(1000L).build() instanceof SynchronizedCache);
+    assertTrue(new CacheBuilder("default").fused(true).addDecorator(FifoCache.class).addDecorator(FifoCache.class)
+        .build() instanceof SynchronizedCache);
+  }
+
+}
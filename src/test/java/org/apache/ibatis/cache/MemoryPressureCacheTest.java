@@ -0,0 +1,92 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.MemoryPressureCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class MemoryPressureCacheTest {
+
+  @Test
+  void shouldEvictLeastRecentlyUsedFraction() {
+    MemoryPressureCache cache = new MemoryPressureCache(new PerpetualCache("default"));
+    for (int i = 0; i < 8; i++) {
+      cache.putObject(i, i);
+    }
+    cache.getObject(0);
+    assertEquals(2, cache.evict());
+    assertEquals(6, cache.getSize());
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertNotNull(cache.getObject(3));
+  }
+
+  @Test
+  void shouldKeepEntriesWithoutPressure() {
+    MemoryPressureCache cache = new MemoryPressureCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5000, cache.getSize());
+  }
+
+  @Test
+  void shouldBeBuiltAsEvictionPolicy() {
+    Properties props = new Properties();
+    props.setProperty("evictionFraction", "0.5");
+    CacheStatsCounter statsCounter = new CacheStatsCounter();
+    Cache cache = new CacheBuilder("default").addDecorator(MemoryPressureCache.class).size(4).properties(props)
+        .statsCounter(statsCounter).build();
+    for (int i = 0; i < 6; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(4, cache.getSize());
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertEquals(2, statsCounter.snapshot(0).getEvictionCount());
+  }
+
+  @Test
+  void shouldSetThresholdOnOldGenerationPools() {
+    MemoryPressureCache cache = new MemoryPressureCache(new PerpetualCache("default"));
+    cache.setUsageThreshold(0.5);
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+          && pool.isCollectionUsageThresholdSupported() && pool.getUsage().getMax() > 0) {
+        assertEquals((long) (pool.getUsage().getMax() * 0.5), pool.getCollectionUsageThreshold());
+      }
+    }
+    cache.setUsageThreshold(0.8);
+  }
+
+  @Test
+  void shouldRejectInvalidFractions() {
+    MemoryPressureCache cache = new MemoryPressureCache(new PerpetualCache("default"));
+    assertThrows(IllegalArgumentException.class, () -> cache.setUsageThreshold(0));
+    assertThrows(IllegalArgumentException.class, () -> cache.setEvictionFraction(1.5));
+  }
+
+}
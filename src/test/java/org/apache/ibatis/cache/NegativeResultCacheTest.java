@@ -0,0 +1,122 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.NegativeResultCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class NegativeResultCacheTest {
+
+  @Test
+  void shouldKeepEmptyResultsApart() {
+    Cache delegate = new PerpetualCache("default");
+    NegativeResultCache cache = new NegativeResultCache(delegate);
+    cache.putObject(0, new ArrayList<>());
+    cache.putObject(1, Collections.singletonList(1));
+    assertEquals(1, delegate.getSize());
+    assertEquals(1, cache.getNegativeCount());
+    assertEquals(2, cache.getSize());
+    assertEquals(Collections.emptyList(), cache.getObject(0));
+    assertEquals(Collections.singletonList(1), cache.getObject(1));
+  }
+
+  @Test
+  void shouldReturnNewEmptyListOnEveryHit() {
+    NegativeResultCache cache = new NegativeResultCache(new PerpetualCache("default"));
+    cache.putObject(0, new ArrayList<>());
+    @SuppressWarnings("unchecked")
+    List<Object> first = (List<Object>) cache.getObject(0);
+    first.add("changed");
+    assertEquals(Collections.emptyList(), cache.getObject(0));
+  }
+
+  @Test
+  void shouldExpireEmptyResults() throws Exception {
+    NegativeResultCache cache = new NegativeResultCache(new PerpetualCache("default"));
+    cache.setNegativeTtl(30);
+    cache.putObject(0, new ArrayList<>());
+    cache.putObject(1, Collections.singletonList(1));
+    assertNotNull(cache.getObject(0));
+    Thread.sleep(40);
+    assertNull(cache.getObject(0));
+    assertEquals(Collections.singletonList(1), cache.getObject(1));
+    assertEquals(0, cache.getNegativeCount());
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEmptyResults() {
+    Cache delegate = new PerpetualCache("default");
+    NegativeResultCache cache = new NegativeResultCache(delegate);
+    cache.setNegativeSize(2);
+    cache.putObject(1, Collections.singletonList(1));
+    cache.putObject(0, new ArrayList<>());
+    cache.putObject(2, new ArrayList<>());
+    cache.getObject(0);
+    cache.putObject(3, new ArrayList<>());
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(2));
+    assertNotNull(cache.getObject(3));
+    assertEquals(1, delegate.getSize());
+  }
+
+  @Test
+  void shouldReplaceResultsOfTheSameKey() {
+    Cache delegate = new PerpetualCache("default");
+    NegativeResultCache cache = new NegativeResultCache(delegate);
+    cache.putObject(0, Collections.singletonList(1));
+    cache.putObject(0, new ArrayList<>());
+    assertEquals(0, delegate.getSize());
+    assertEquals(Collections.emptyList(), cache.getObject(0));
+    cache.putObject(0, Collections.singletonList(2));
+    assertEquals(0, cache.getNegativeCount());
+    assertEquals(Collections.singletonList(2), cache.getObject(0));
+  }
+
+  @Test
+  void shouldRemoveAndClearEmptyResults() {
+    NegativeResultCache cache = new NegativeResultCache(new PerpetualCache("default"));
+    cache.putObject(0, new ArrayList<>());
+    cache.putObject(1, new ArrayList<>());
+    cache.putObject(2, Collections.singletonList(2));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    cache.clear();
+    assertNull(cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldBuildNegativeResultCache() throws Exception {
+    CacheStatsCounter statsCounter = new CacheStatsCounter();
+    Cache cache = new CacheBuilder("default").negativeTtl(20L).readWrite(true).statsCounter(statsCounter).build();
+    cache.putObject(0, new ArrayList<>());
+    assertEquals(Collections.emptyList(), cache.getObject(0));
+    assertEquals(1, statsCounter.getHitCount());
+    Thread.sleep(30);
+    assertNull(cache.getObject(0));
+    assertEquals(1, statsCounter.getMissCount());
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldStoreValuesSpanningSeveralBlocks() {
+    OffHeapCache cache = newCache(1024);
+    byte[] value = bytes(100, (byte) 7);
+    cache.putObject("key", value);
+    assertArrayEquals(value, (byte[]) cache.getObject("key"));
+    assertNotSame(value, cache.getObject("key"));
+    assertEquals(1, cache.getSize());
+    assertEquals(100, cache.getStoredBytes());
+    assertEquals(112, cache.getUsedBytes());
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntriesWhenFull() {
+    OffHeapCache cache = newCache(64);
+    cache.putObject(0, bytes(32, (byte) 0));
+    cache.putObject(1, bytes(32, (byte) 1));
+    assertNotNull(cache.getObject(0));
+    cache.putObject(2, bytes(20, (byte) 2));
+    assertNull(cache.getObject(1));
+    assertArrayEquals(bytes(32, (byte) 0), (byte[]) cache.getObject(0));
+    assertArrayEquals(bytes(20, (byte) 2), (byte[]) cache.getObject(2));
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(0, cache.getFreeBytes());
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanCapacity() {
+    OffHeapCache cache = newCache(64);
+    cache.putObject(0, bytes(16, (byte) 0));
+    cache.putObject(1, bytes(65, (byte) 1));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(0));
+    assertEquals(1, cache.getRejectionCount());
+  }
+
+  @Test
+  void shouldReleaseBlocksOnRemoveAndClear() {
+    OffHeapCache cache = newCache(64);
+    cache.putObject(0, bytes(32, (byte) 0));
+    cache.putObject(1, bytes(32, (byte) 1));
+    assertArrayEquals(bytes(32, (byte) 0), (byte[]) cache.removeObject(0));
+    assertNull(cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertEquals(32, cache.getFreeBytes());
+    cache.clear();
+    assertEquals(0, cache.getSize());
+    assertEquals(64, cache.getFreeBytes());
+    assertEquals(0, cache.getStoredBytes());
+    cache.putObject(2, new byte[0]);
+    assertArrayEquals(new byte[0], (byte[]) cache.getObject(2));
+  }
+
+  @Test
+  void shouldRejectValuesThatAreNotSerialized() {
+    OffHeapCache cache = newCache(64);
+    assertThrows(CacheException.class, () -> cache.putObject(0, "not serialized"));
+  }
+
+  @Test
+  void shouldAlwaysSerializeValuesWhenBuiltByCacheBuilder() {
+    Cache cache = new CacheBuilder("default").implementation(OffHeapCache.class).readWrite(false).build();
+    List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+    cache.putObject(0, list);
+    assertEquals(list, cache.getObject(0));
+    assertNotSame(list, cache.getObject(0));
+    cache.putObject(1, null);
+    assertNull(cache.getObject(1));
+  }
+
+  private OffHeapCache newCache(long capacity) {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setBlockSize(16);
+    cache.setSlabSize(32);
+    cache.setCapacity(capacity);
+    cache.initialize();
+    return cache;
+  }
+
+  private byte[] bytes(int length, byte value) {
+    byte[] bytes = new byte[length];
+    Arrays.fill(bytes, value);
+    return bytes;
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class RefreshAheadCacheTest {
+
+  private final List<Runnable> tasks = new ArrayList<>();
+  private final Executor executor = tasks::add;
+
+  @Test
+  void shouldServeStaleValueUntilReloaded() throws Exception {
+    RefreshAheadCache cache = newCache();
+    AtomicInteger loads = new AtomicInteger();
+    cache.prepareRefresh(1, () -> "fresh" + loads.incrementAndGet(), executor);
+    cache.putObject(1, "stale");
+    assertEquals("stale", cache.getObject(1));
+    assertTrue(tasks.isEmpty());
+    Thread.sleep(20);
+    assertEquals("stale", cache.getObject(1));
+    assertEquals("stale", cache.getObject(1));
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertEquals("fresh1", cache.getObject(1));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void shouldNotRefreshWithoutLoader() throws Exception {
+    RefreshAheadCache cache = newCache();
+    cache.putObject(1, "value");
+    Thread.sleep(20);
+    assertEquals("value", cache.getObject(1));
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  void shouldDiscardReloadWhenClearedMeanwhile() throws Exception {
+    RefreshAheadCache cache = newCache();
+    cache.prepareRefresh(1, () -> "fresh", executor);
+    cache.putObject(1, "stale");
+    Thread.sleep(20);
+    assertEquals("stale", cache.getObject(1));
+    cache.clear();
+    runTasks();
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldKeepStaleValueWhenReloadFails() throws Exception {
+    RefreshAheadCache cache = newCache();
+    cache.prepareRefresh(1, () -> {
+      throw new SQLException("down");
+    }, executor);
+    cache.putObject(1, "stale");
+    Thread.sleep(20);
+    assertEquals("stale", cache.getObject(1));
+    runTasks();
+    assertEquals("stale", cache.getObject(1));
+    // retried only after another refresh period
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  void shouldStopRefreshingWhenLoaderGivesUp() throws Exception {
+    RefreshAheadCache cache = newCache();
+    cache.prepareRefresh(1, () -> null, executor);
+    cache.putObject(1, "stale");
+    Thread.sleep(20);
+    assertEquals("stale", cache.getObject(1));
+    runTasks();
+    Thread.sleep(20);
+    assertEquals("stale", cache.getObject(1));
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  void shouldForgetLoaderOfRemovedEntry() throws Exception {
+    RefreshAheadCache cache = newCache();
+    cache.prepareRefresh(1, () -> "fresh", executor);
+    cache.removeObject(1);
+    cache.putObject(1, "value");
+    Thread.sleep(20);
+    assertEquals("value", cache.getObject(1));
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  void shouldDropOnlyOldestLoadersWhenTooManyArePending() throws Exception {
+    RefreshAheadCache cache = newCache();
+    for (int i = 0; i <= 1024; i++) {
+      cache.prepareRefresh(i, () -> "fresh", executor);
+    }
+    cache.putObject(0, "value");
+    cache.putObject(1024, "value");
+    Thread.sleep(20);
+    assertEquals("value", cache.getObject(0));
+    assertTrue(tasks.isEmpty());
+    assertEquals("value", cache.getObject(1024));
+    assertEquals(1, tasks.size());
+  }
+
+  @Test
+  void shouldBeBuiltBelowSingleFlightCache() {
+    Cache cache = new CacheBuilder("default").refreshAfterWrite(1000L).singleFlight(true).build();
+    assertTrue(cache instanceof BlockingCache);
+    assertThrows(CacheException.class,
+        () -> new CacheBuilder("default").refreshAfterWrite(1000L).blocking(true).build());
+  }
+
+  private RefreshAheadCache newCache() {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setRefreshAfterWrite(10);
+    return cache;
+  }
+
+  private void runTasks() {
+    List<Runnable> toRun = new ArrayList<>(tasks);
+    tasks.clear();
+    toRun.forEach(Runnable::run);
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.SnapshotCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class SnapshotCacheTest {
+
+  private final JavaSerializer serializer = new JavaSerializer();
+
+  @Test
+  void shouldRestoreEntriesWhenRead() {
+    Cache delegate = new PerpetualCache("default");
+    SnapshotCache cache = new SnapshotCache(delegate);
+    cache.restore(0, ByteBuffer.wrap(serializer.serialize("zero")), System.currentTimeMillis());
+    assertEquals(0, delegate.getSize());
+    assertEquals(1, cache.getSize());
+    assertEquals("zero", cache.getObject(0));
+    assertEquals("zero", delegate.getObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldPreferNewerEntries() {
+    SnapshotCache cache = new SnapshotCache(new PerpetualCache("default"));
+    cache.restore(0, ByteBuffer.wrap(serializer.serialize("zero")), System.currentTimeMillis());
+    cache.restore(1, ByteBuffer.wrap(serializer.serialize("one")), System.currentTimeMillis());
+    cache.putObject(0, "new zero");
+    cache.removeObject(1);
+    assertEquals("new zero", cache.getObject(0));
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldDropRestoredEntriesOnClear() {
+    SnapshotCache cache = new SnapshotCache(new PerpetualCache("default"));
+    cache.restore(0, ByteBuffer.wrap(serializer.serialize("zero")), System.currentTimeMillis());
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldSnapshotCachedAndRestoredEntries() {
+    Cache delegate = new PerpetualCache("default");
+    SnapshotCache cache = new SnapshotCache(delegate);
+    cache.restore(0, ByteBuffer.wrap(serializer.serialize("zero")), System.currentTimeMillis());
+    cache.putObject(1, "one");
+    cache.putObject(2, new Object());
+    cache.putObject(3, "three");
+    delegate.removeObject(3);
+    Map<Object, Object> snapshot = new HashMap<>();
+    cache.snapshot((key, value, writtenAt) -> snapshot.put(key, serializer.deserialize(value)));
+    Map<Object, Object> expected = new HashMap<>();
+    expected.put(0, "zero");
+    expected.put(1, "one");
+    assertEquals(expected, snapshot);
+  }
+
+  @Test
+  void shouldNotRestoreExpiredEntries() {
+    SnapshotCache cache = new SnapshotCache(new PerpetualCache("default"));
+    cache.setExpireAfterWrite(60000);
+    assertFalse(cache.restore(0, ByteBuffer.wrap(serializer.serialize("zero")), System.currentTimeMillis() - 60000));
+    assertTrue(cache.restore(1, ByteBuffer.wrap(serializer.serialize("one")), System.currentTimeMillis()));
+    assertNull(cache.getObject(0));
+    assertEquals("one", cache.getObject(1));
+  }
+
+  @Test
+  void shouldExpireRestoredEntriesAtTheirOriginalTime() throws Exception {
+    Cache cache = new CacheBuilder("default").snapshot(true).expireAfterWrite(200L).build();
+    SnapshotCache snapshotCache = (SnapshotCache) cache;
+    snapshotCache.restore(0, ByteBuffer.wrap(serializer.serialize("zero")), System.currentTimeMillis() - 100);
+    assertEquals("zero", cache.getObject(0));
+    Thread.sleep(150);
+    assertNull(cache.getObject(0));
+    List<Long> writeTimes = new ArrayList<>();
+    cache.putObject(1, "one");
+    snapshotCache.snapshot((key, value, writtenAt) -> writeTimes.add(writtenAt));
+    assertEquals(1, writeTimes.size());
+  }
+
+  @Test
+  void shouldBuildSnapshotCache() {
+    Cache cache = new CacheBuilder("default").snapshot(true).build();
+    assertTrue(cache instanceof SnapshotCache);
+    cache.putObject(0, "zero");
+    assertEquals("zero", cache.getObject(0));
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class VersionedTransactionalCacheTest {
+
+  @Test
+  void shouldReadOwnPendingEntriesAfterClear() {
+    Cache delegate = new PerpetualCache("default");
+    delegate.putObject(1, "committed");
+    CacheVersions versions = new CacheVersions();
+    TransactionalCache cache = new TransactionalCache(delegate, versions);
+    TransactionalCache other = new TransactionalCache(delegate, versions);
+    assertEquals("committed", cache.getObject(1));
+    cache.clear();
+    assertNull(cache.getObject(1));
+    cache.putObject(1, "pending");
+    assertEquals("pending", cache.getObject(1));
+    assertEquals("committed", other.getObject(1));
+    cache.commit();
+    assertEquals("pending", delegate.getObject(1));
+    assertEquals(1, versions.of(delegate).get());
+  }
+
+  @Test
+  void shouldReadOwnPendingEntriesInBulk() {
+    Cache delegate = new PerpetualCache("default");
+    delegate.putObject(2, "committed");
+    TransactionalCache cache = new TransactionalCache(delegate, new CacheVersions());
+    cache.putObject(1, "pending");
+    Map<Object, Object> expected = new HashMap<>();
+    expected.put(1, "pending");
+    expected.put(2, "committed");
+    assertEquals(expected, cache.getObjects(Arrays.asList(1, 2, 3)));
+    cache.clear();
+    cache.putObject(3, "pending");
+    assertEquals(Collections.singletonMap(3, "pending"), cache.getObjects(Arrays.asList(2, 3)));
+  }
+
+  @Test
+  void shouldDropEntriesReadBeforeAnotherTransactionCleared() {
+    Cache delegate = new PerpetualCache("default");
+    CacheVersions versions = new CacheVersions();
+    TransactionalCache cache = new TransactionalCache(delegate, versions);
+    TransactionalCache writer = new TransactionalCache(delegate, versions);
+    assertNull(cache.getObject(1));
+    writer.clear();
+    writer.commit();
+    cache.putObject(1, "stale");
+    cache.commit();
+    assertNull(delegate.getObject(1));
+    assertNull(cache.getObject(1));
+    cache.putObject(1, "fresh");
+    cache.commit();
+    assertEquals("fresh", delegate.getObject(1));
+  }
+
+  @Test
+  void shouldDropEntriesReadBeforeAnotherNodeCleared() {
+    Cache delegate = new PerpetualCache("default");
+    CacheVersions versions = new CacheVersions();
+    TransactionalCache cache = new TransactionalCache(delegate, versions);
+    assertNull(cache.getObject(1));
+    versions.clear(delegate);
+    cache.putObject(1, "stale");
+    cache.commit();
+    assertNull(delegate.getObject(1));
+  }
+
+  @Test
+  void shouldBypassCacheAfterClearWhenNotVersioned() {
+    Cache delegate = new PerpetualCache("default");
+    TransactionalCache cache = new TransactionalCache(delegate);
+    cache.clear();
+    cache.putObject(1, "pending");
+    assertNull(cache.getObject(1));
+    cache.commit();
+    assertEquals("pending", delegate.getObject(1));
+  }
+
+}
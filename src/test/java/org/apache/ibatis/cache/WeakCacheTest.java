@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -44,6 +45,19 @@ class WeakCacheTest {
     assertTrue(cache.getSize() < N);
   }
 
+  @Test
+  void shouldRemoveCollectedEntriesInBackground() throws Exception {
+    WeakCache cache = new WeakCache(new PerpetualCache("default"));
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, new Object());
+    }
+    for (int i = 0; i < 50 && cache.getSize() > 0; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    assertEquals(0, cache.getSize());
+  }
+
   @Test
   void shouldDemonstrateCopiesAreEqual() {
     Cache cache = new WeakCache(new PerpetualCache("default"));
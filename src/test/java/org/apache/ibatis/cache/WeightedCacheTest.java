@@ -0,0 +1,161 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldRemoveLeastRecentlyUsedItemsBeyondMaxWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.setMaxWeightBytes(300);
+    cache.putObject(0, new byte[100]);
+    cache.putObject(1, new byte[100]);
+    cache.putObject(2, new byte[100]);
+    assertNotNull(cache.getObject(0));
+    cache.putObject(3, new byte[150]);
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertNotNull(cache.getObject(3));
+    assertEquals(250, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldNotCacheItemHeavierThanMaxWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.setMaxWeightBytes(100);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(0, new byte[200]);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldKeepWeightInSyncOnRemoveAndClear() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(1, new byte[20]);
+    cache.removeObject(0);
+    assertEquals(20, cache.getTotalWeight());
+    cache.clear();
+    assertEquals(0, cache.getTotalWeight());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldWeighListsByTheirRows() {
+    Weigher weigher = new DefaultWeigher();
+    long single = weigher.weigh(1, newAuthors(1));
+    long many = weigher.weigh(1, newAuthors(1000));
+    assertTrue(many > single * 500);
+    assertEquals(weigher.weigh(1, new byte[1000]) + 1000, weigher.weigh(1, new byte[2000]));
+  }
+
+  @Test
+  void shouldBoundConcurrentLruCacheByWeight() {
+    ConcurrentLruCache cache = new ConcurrentLruCache("default");
+    cache.setConcurrencyLevel(4);
+    cache.setSize(1000);
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.setMaxWeightBytes(1000);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, new byte[100]);
+      assertTrue(cache.getTotalWeight() <= 1000);
+    }
+    assertEquals(10, cache.getSize());
+    assertNotNull(cache.getObject(99));
+    cache.putObject(99, new byte[2000]);
+    assertNull(cache.getObject(99));
+    cache.clear();
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldBuildWeightedReadWriteCache() {
+    Cache cache = new CacheBuilder("default").maxWeightBytes(10000L).readWrite(true).build();
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, newAuthors(10));
+    }
+    assertTrue(cache.getSize() < 100);
+    assertEquals(newAuthors(10), cache.getObject(99));
+  }
+
+  @Test
+  void shouldNotLetRejectedItemsTakeRoomOfLruCache() {
+    Cache cache = new CacheBuilder("default").size(3).maxWeightBytes(100000L).build();
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    for (int i = 0; i < 3; i++) {
+      cache.putObject("big" + i, new byte[200000]);
+    }
+    assertEquals("a", cache.getObject("a"));
+    assertEquals("b", cache.getObject("b"));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void shouldForgetWeightOfItemsEvictedByLruCache() {
+    LruCache lru = new LruCache(new PerpetualCache("default"));
+    lru.setSize(2);
+    WeightedCache cache = new WeightedCache(lru);
+    lru.setEvictionListener(cache::evicted);
+    cache.setWeigher((key, value) -> 10);
+    cache.setMaxWeightBytes(100000L);
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    cache.putObject("c", "c");
+    assertNull(cache.getObject("a"));
+    assertEquals(2, cache.getSize());
+    assertEquals(20, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldConfigureConcurrentLruCacheNatively() {
+    Cache cache = new CacheBuilder("default").implementation(ConcurrentLruCache.class).maxWeightBytes(10000L).build();
+    assertTrue(cache instanceof LoggingCache);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, newAuthors(10));
+    }
+    assertTrue(cache.getSize() < 100);
+  }
+
+  private static List<Author> newAuthors(int count) {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      authors.add(new Author(i, "user" + i, "pass", "user" + i + "@example.com", "bio", Section.NEWS));
+    }
+    return authors;
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConnectionBagTest {
+
+  @Test
+  void shouldBorrowEachIdleEntryOnce() {
+    ConnectionBag bag = new ConnectionBag();
+    PoolEntry entry = new PoolEntry(null, PoolEntry.STATE_NOT_IN_USE);
+    bag.add(entry);
+
+    assertSame(entry, bag.borrow());
+    assertNull(bag.borrow());
+    assertEquals(1, bag.getCount(PoolEntry.STATE_IN_USE));
+    assertEquals(0, bag.getCount(PoolEntry.STATE_NOT_IN_USE));
+  }
+
+  @Test
+  void shouldPreferTheEntryLastReturnedByTheSameThread() {
+    ConnectionBag bag = new ConnectionBag();
+    PoolEntry first = new PoolEntry(null, PoolEntry.STATE_IN_USE);
+    PoolEntry second = new PoolEntry(null, PoolEntry.STATE_IN_USE);
+    bag.add(first);
+    bag.add(second);
+
+    bag.requite(second);
+    bag.requite(first);
+
+    assertSame(first, bag.borrow());
+    assertSame(second, bag.borrow());
+  }
+
+  @Test
+  void shouldHandReturnedEntryToWaitingThread() throws Exception {
+    ConnectionBag bag = new ConnectionBag();
+    PoolEntry entry = new PoolEntry(null, PoolEntry.STATE_IN_USE);
+    bag.add(entry);
+
+    CompletableFuture<PoolEntry> waiter = CompletableFuture.supplyAsync(() -> {
+      try {
+        return bag.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    while (!bag.hasWaiters()) {
+      Thread.yield();
+    }
+    bag.requite(entry);
+
+    assertSame(entry, waiter.get(5, TimeUnit.SECONDS));
+    assertEquals(PoolEntry.STATE_IN_USE, entry.getState());
+    assertFalse(bag.hasWaiters());
+  }
+
+  @Test
+  void shouldStopWaitingAfterTimeout() throws Exception {
+    ConnectionBag bag = new ConnectionBag();
+    bag.add(new PoolEntry(null, PoolEntry.STATE_IN_USE));
+
+    assertNull(bag.await(20, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldNotLendRemovedEntries() {
+    ConnectionBag bag = new ConnectionBag();
+    PoolEntry entry = new PoolEntry(null, PoolEntry.STATE_IN_USE);
+    bag.add(entry);
+    bag.requite(entry);
+
+    assertTrue(bag.remove(entry));
+    assertNull(bag.borrow());
+    assertEquals(0, bag.size());
+  }
+
+  @Test
+  void shouldCountReservedSlotsTowardTheLimit() {
+    ConnectionBag bag = new ConnectionBag();
+    bag.add(new PoolEntry(null, PoolEntry.STATE_IN_USE));
+
+    assertTrue(bag.reserve(2));
+    assertFalse(bag.reserve(2));
+    assertEquals(1, bag.getPendingCount());
+
+    bag.fill(new PoolEntry(null, PoolEntry.STATE_IN_USE));
+    assertFalse(bag.reserve(2));
+    assertEquals(0, bag.getPendingCount());
+    assertEquals(2, bag.size());
+  }
+
+  @Test
+  void shouldWakeUpWaitingThreadWhenReservationIsCancelled() throws Exception {
+    ConnectionBag bag = new ConnectionBag();
+    assertTrue(bag.reserve(1));
+
+    CompletableFuture<PoolEntry> waiter = CompletableFuture.supplyAsync(() -> {
+      try {
+        return bag.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    while (!bag.hasWaiters()) {
+      Thread.yield();
+    }
+    bag.cancel();
+
+    assertNull(waiter.get(5, TimeUnit.SECONDS));
+    assertTrue(bag.reserve(1));
+  }
+
+  @Test
+  void shouldCountHeldEntriesAsIdle() {
+    ConnectionBag bag = new ConnectionBag();
+    PoolEntry entry = new PoolEntry(null, PoolEntry.STATE_NOT_IN_USE);
+    bag.add(entry);
+
+    assertTrue(bag.hold(entry));
+    assertNull(bag.borrow());
+    assertEquals(1, bag.getIdleCount());
+    bag.restore(entry);
+    assertEquals(1, bag.getIdleCount());
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldKeepBucketsWithinAnEighthOfTheValue() {
+    for (long micros = 0; micros < 1_000_000; micros = micros * 9 / 8 + 1) {
+      int index = LatencyHistogram.indexOf(micros);
+      long upperBound = LatencyHistogram.upperBoundOf(index);
+      assertTrue(upperBound >= micros);
+      assertTrue(upperBound - micros <= micros / 8);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.upperBoundOf(index - 1) < micros);
+      }
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+  }
+
+  @Test
+  void shouldReportPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i, TimeUnit.MILLISECONDS);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(50.5, histogram.getMean(), 0.001);
+    assertEquals(100, histogram.getMax(), 0.001);
+    assertEquals(50, histogram.getP50(), 50 / 8.0);
+    assertEquals(95, histogram.getP95(), 95 / 8.0);
+    assertEquals(99, histogram.getP99(), 99 / 8.0);
+    assertEquals(100, histogram.getP999(), 0.001);
+  }
+
+  @Test
+  void shouldReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(5, TimeUnit.MILLISECONDS);
+    histogram.reset();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getP99(), 0);
+    assertEquals(0, histogram.getMax(), 0);
+  }
+
+  @Test
+  void shouldCountConcurrentRecords() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int t = 0; t < 4; t++) {
+        executor.execute(() -> {
+          for (int i = 0; i < 10000; i++) {
+            histogram.record(i, TimeUnit.MICROSECONDS);
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    assertEquals(40000, histogram.getCount());
+    assertEquals(9.999, histogram.getMax(), 0.001);
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.Test;
+
+class BoundedLocalCacheExecutorTest extends BaseExecutorTest {
+
+  BoundedLocalCacheExecutorTest() {
+    // every test of the base class runs with a single cached result, so nested queries must not lose theirs
+    config.setLocalCacheMaxSize(1);
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedResultsOnceTheQueryCompleted() throws Exception {
+    DataSource ds = createBlogDataSource();
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectAuthor = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      CacheKey key1 = executor.createCacheKey(selectAuthor, 101, RowBounds.DEFAULT, selectAuthor.getBoundSql(101));
+      CacheKey key2 = executor.createCacheKey(selectAuthor, 102, RowBounds.DEFAULT, selectAuthor.getBoundSql(102));
+      executor.query(selectAuthor, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertTrue(executor.isCached(selectAuthor, key1));
+      executor.query(selectAuthor, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertFalse(executor.isCached(selectAuthor, key1));
+      assertTrue(executor.isCached(selectAuthor, key2));
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldNotEvictPlaceholders() {
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache", 1, 0, (key, value) -> 0);
+    List<Object> evicted = new ArrayList<>();
+    cache.putObject("running", EXECUTION_PLACEHOLDER);
+    cache.putObject("a", Collections.emptyList());
+    cache.putObject("b", Collections.emptyList());
+    cache.getObject("a");
+    cache.putObject("c", Collections.emptyList());
+    // nothing is evicted until the executor trims the cache
+    assertEquals(4, cache.getSize());
+    cache.trim(evicted::add);
+    assertEquals(2, evicted.size());
+    assertTrue(evicted.contains("a") && evicted.contains("b"));
+    assertSame(EXECUTION_PLACEHOLDER, cache.getObject("running"));
+    assertEquals(Collections.emptyList(), cache.getObject("c"));
+  }
+
+  @Test
+  void shouldEvictByWeight() {
+    BoundedLocalCache cache = new BoundedLocalCache("LocalCache", 0, 100, (key, value) -> 40);
+    List<Object> evicted = new ArrayList<>();
+    cache.putObject("a", Collections.emptyList());
+    cache.putObject("b", Collections.emptyList());
+    cache.putObject("c", Collections.emptyList());
+    cache.getObject("a");
+    assertEquals(120, cache.getTotalWeight());
+    cache.trim(evicted::add);
+    assertEquals(Collections.singletonList("b"), evicted);
+    assertNull(cache.getObject("b"));
+    assertEquals(80, cache.getTotalWeight());
+    cache.removeObject("a");
+    assertEquals(40, cache.getTotalWeight());
+    cache.clear();
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+}
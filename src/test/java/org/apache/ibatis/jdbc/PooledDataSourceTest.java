@@ -17,13 +17,29 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.io.Resources;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Test;
 
@@ -85,4 +101,292 @@ class PooledDataSourceTest extends BaseDataTest {
     JDBCConnection realConnection = (JDBCConnection) PooledDataSource.unwrapConnection(c);
     c.close();
   }
+
+  @Test
+  void shouldHandReturnedConnectionToWaitingThread() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(10000);
+      Connection c = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c);
+      CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+        try {
+          return ds.getConnection();
+        } catch (SQLException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      while (ds.getPoolState().getHadToWaitCount() == 0) {
+        Thread.sleep(1);
+      }
+      c.close();
+      Connection handedOver = waiter.get(5, TimeUnit.SECONDS);
+      assertSame(real, PooledDataSource.unwrapConnection(handedOver));
+      assertThrows(SQLException.class, c::getAutoCommit);
+      handedOver.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldWakeUpWaitingThreadWhenConnectingFails() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(20000);
+      Connection c = ds.getConnection();
+      CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+        try {
+          return ds.getConnection();
+        } catch (SQLException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      while (ds.getPoolState().getHadToWaitCount() == 0) {
+        Thread.sleep(1);
+      }
+      // closes the connection in use, the waiting thread then fails to open a new one
+      ds.setUrl("jdbc:unknown:database");
+      ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause().getCause() instanceof SQLException);
+      assertThrows(SQLException.class, c::getAutoCommit);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldClaimOverdueConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(10);
+      Connection overdue = ds.getConnection();
+      Thread.sleep(50);
+      Connection c = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertThrows(SQLException.class, overdue::getAutoCommit);
+      overdue.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNeverExceedMaximumActiveConnectionsUnderContention() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(3);
+      AtomicInteger inUse = new AtomicInteger();
+      AtomicInteger maxInUse = new AtomicInteger();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 200; j++) {
+            try (Connection c = ds.getConnection()) {
+              maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+              c.getAutoCommit();
+              inUse.decrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertTrue(maxInUse.get() <= 3);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 3);
+      assertEquals(1600, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldValidateWithIsValidWhenNoPingQueryIsSet() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection c = ds.getConnection();
+      c.close();
+      Thread.sleep(5);
+      c = ds.getConnection();
+      c.close();
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldValidateIdleConnectionsInBackgroundInsteadOfOnCheckout() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM NO_SUCH_TABLE");
+      ds.setPoolHousekeepingInterval(20);
+      Connection c = ds.getConnection();
+      c.close();
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      waitUntil(() -> ds.getPoolState().getBadConnectionCount() == 1);
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+    }
+  }
+
+  @Test
+  void shouldEvictConnectionsIdleForTooLong() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolHousekeepingInterval(20);
+      ds.setPoolMaximumIdleTime(50);
+      Connection c = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      waitUntil(real::isClosed);
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 0);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+    }
+  }
+
+  @Test
+  void shouldRetireConnectionsPastMaximumLifetime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumLifetime(20);
+      Connection c = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c);
+      Thread.sleep(50);
+      c.close();
+      assertTrue(real.isClosed());
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldPrefillAndKeepMinimumIdleConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdle(3);
+      ds.prefill();
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+
+      Connection c = ds.getConnection();
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 3);
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      c.close();
+
+      ds.forceCloseAll();
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 3);
+    } finally {
+      ds.setPoolMinimumIdle(0);
+    }
+  }
+
+  @Test
+  void shouldRefillUsedPoolAfterForceCloseAll() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdle(2);
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      ds.getConnection().close();
+      ds.forceCloseAll();
+      waitUntil(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+    } finally {
+      ds.setPoolMinimumIdle(0);
+    }
+  }
+
+  @Test
+  void shouldFillPoolWhenConfiguredWithEagerInitialization() throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    props.setProperty("poolMinimumIdle", "2");
+    props.setProperty("poolEagerInitialization", "true");
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    factory.setProperties(props);
+    PooledDataSource ds = (PooledDataSource) factory.getDataSource();
+    try {
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getRequestCount());
+    } finally {
+      ds.setPoolMinimumIdle(0);
+    }
+  }
+
+  @Test
+  void shouldPublishStatisticsAsMBean() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=\"jpetstore\"");
+    try {
+      ds.setPoolName("jpetstore");
+      ds.setPoolRegisterMbeans(true);
+      Connection c = ds.getConnection();
+      assertEquals(1, server.getAttribute(name, "ActiveConnectionCount"));
+      assertEquals(0, server.getAttribute(name, "PendingConnectionCount"));
+      c.close();
+      assertEquals(1, server.getAttribute(name, "IdleConnectionCount"));
+
+      CompositeData waitTime = (CompositeData) server.getAttribute(name, "WaitTimeHistogram");
+      assertEquals(1L, waitTime.get("count"));
+      assertTrue((Double) waitTime.get("p99") >= 0);
+      assertEquals(1L, ((CompositeData) server.getAttribute(name, "CheckoutTimeHistogram")).get("count"));
+      assertEquals(1L, ((CompositeData) server.getAttribute(name, "ConnectTimeHistogram")).get("count"));
+
+      server.invoke(name, "resetHistograms", null, null);
+      assertEquals(0L, ((CompositeData) server.getAttribute(name, "WaitTimeHistogram")).get("count"));
+    } finally {
+      ds.setPoolRegisterMbeans(false);
+      ds.forceCloseAll();
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  void shouldUnregisterMBeanAndCloseConnectionsWhenClosed() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=\"closed\"");
+    ds.setPoolName("closed");
+    ds.setPoolRegisterMbeans(true);
+    ds.setPoolMinimumIdle(1);
+    ds.getConnection().close();
+    assertTrue(server.isRegistered(name));
+    ds.close();
+    assertFalse(server.isRegistered(name));
+    waitUntil(() -> ds.getPoolState().getPendingConnectionCount() == 0
+        && ds.getPoolState().getIdleConnectionCount() == 0);
+  }
+
+  private static void waitUntil(Callable<Boolean> condition) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.call()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+      Thread.sleep(10);
+    }
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.junit.jupiter.api.Test;
+
+class TableNameParserTest {
+
+  @Test
+  void shouldFindReadTables() {
+    assertEquals(new LinkedHashSet<>(Arrays.asList("author", "blog", "post")), TableNameParser.parseReadTables(
+        "SELECT * FROM Author a, blog AS b LEFT JOIN \"Post\" p ON p.blog_id = b.id WHERE a.id = b.author_id"));
+    assertEquals(new LinkedHashSet<>(Arrays.asList("blog", "author")), TableNameParser
+        .parseReadTables("select * from schema1.blog where author_id in (select id from `author` where name = ?)"));
+    assertEquals(Collections.singleton("blog"),
+        TableNameParser.parseReadTables("select * from blog -- from comment\n where title = 'from news'"));
+  }
+
+  @Test
+  void shouldNotFindReadTablesWithoutFromClause() {
+    assertNull(TableNameParser.parseReadTables("select 1"));
+    assertNull(TableNameParser.parseReadTables("{call get_blogs(?)}"));
+  }
+
+  @Test
+  void shouldFindWriteTables() {
+    assertEquals(Collections.singleton("author"),
+        TableNameParser.parseWriteTables("insert into Author (id, username) values (?, ?)"));
+    assertEquals(Collections.singleton("author"),
+        TableNameParser.parseWriteTables("update dbo.[Author] set username = ? where id = ?"));
+    assertEquals(Collections.singleton("author"), TableNameParser.parseWriteTables("DELETE FROM author WHERE id = ?"));
+    assertEquals(Collections.singleton("blog"), TableNameParser.parseWriteTables("truncate table blog"));
+    assertEquals(Collections.singleton("blog"),
+        TableNameParser.parseWriteTables("update blog b set title = ?, author_id = ? where b.id = ?"));
+    assertEquals(Collections.singleton("blog"),
+        TableNameParser.parseWriteTables("insert into blog select id, title from draft join author on 1 = 1"));
+  }
+
+  @Test
+  void shouldNotFindWriteTablesOfUnknownStatements() {
+    assertNull(TableNameParser.parseWriteTables("call purge_blogs(?)"));
+    assertNull(TableNameParser.parseWriteTables("with old as (select id from blog) delete from blog where id in old"));
+    assertNull(TableNameParser.parseWriteTables("select * from blog"));
+    assertNull(TableNameParser.parseWriteTables("/* purge */ delete b from blog b join author a on a.id = b.author_id"));
+    assertNull(TableNameParser.parseWriteTables("update blog, author set author.username = ? where blog.id = ?"));
+    assertNull(TableNameParser.parseWriteTables("update blog b , author a set a.username = ? where b.id = ?"));
+    assertNull(TableNameParser.parseWriteTables("update blog b join author a on a.id = b.author_id set a.username = ?"));
+    assertNull(TableNameParser.parseWriteTables("UPDATE blog INNER JOIN author ON author.id = blog.author_id SET x = ?"));
+    assertNull(TableNameParser.parseWriteTables("delete from blog, author using blog join author"));
+  }
+
+  @Test
+  void shouldNormalizeDeclaredTables() {
+    assertEquals(new LinkedHashSet<>(Arrays.asList("author", "blog")),
+        TableNameParser.parseDeclaredTables(" Author, public.blog ,"));
+    assertNull(TableNameParser.parseDeclaredTables(" "));
+  }
+
+}
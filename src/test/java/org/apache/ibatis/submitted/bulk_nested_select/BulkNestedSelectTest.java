@@ -0,0 +1,83 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bulk_nested_select;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkNestedSelectTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/bulk_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bulk_nested_select/CreateDB.sql");
+    CountingCache.reset();
+  }
+
+  @Test
+  void shouldReadCachedNestedSelectsInOneCall() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PetMapper mapper = sqlSession.getMapper(PetMapper.class);
+      mapper.findPerson(1);
+      mapper.findPerson(2);
+    }
+    CountingCache.reset();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Pet> pets = sqlSession.getMapper(PetMapper.class).findPets();
+      assertEquals(4, pets.size());
+      assertEquals("Jane", pets.get(0).getOwner().getName());
+      assertEquals("John", pets.get(1).getOwner().getName());
+      assertEquals("Jane", pets.get(2).getOwner().getName());
+      assertEquals("Ann", pets.get(3).getOwner().getName());
+    }
+    assertEquals(1, CountingCache.bulkReads.get());
+    // only the pets query itself, the missed owner is not looked up again
+    assertEquals(1, CountingCache.singleReads.get());
+  }
+
+  @Test
+  void shouldWriteCommittedEntriesInOneCall() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(4, sqlSession.getMapper(PetMapper.class).findPets().size());
+    }
+    assertEquals(1, CountingCache.bulkWrites.get());
+    CountingCache.reset();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Pet> pets = sqlSession.getMapper(PetMapper.class).findPets();
+      assertEquals("Ann", pets.get(3).getOwner().getName());
+    }
+    assertEquals(0, CountingCache.bulkReads.get());
+    assertEquals(0, CountingCache.bulkWrites.get());
+  }
+
+}
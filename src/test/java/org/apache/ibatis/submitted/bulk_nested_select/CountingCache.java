@@ -0,0 +1,66 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bulk_nested_select;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+public class CountingCache extends PerpetualCache {
+
+  static final AtomicInteger singleReads = new AtomicInteger();
+  static final AtomicInteger bulkReads = new AtomicInteger();
+  static final AtomicInteger bulkWrites = new AtomicInteger();
+
+  public CountingCache(String id) {
+    super(id);
+  }
+
+  static void reset() {
+    singleReads.set(0);
+    bulkReads.set(0);
+    bulkWrites.set(0);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    singleReads.incrementAndGet();
+    return super.getObject(key);
+  }
+
+  @Override
+  public Map<Object, Object> getObjects(Collection<?> keys) {
+    bulkReads.incrementAndGet();
+    Map<Object, Object> values = new HashMap<>();
+    for (Object key : keys) {
+      Object value = super.getObject(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void putObjects(Map<?, ?> objects) {
+    bulkWrites.incrementAndGet();
+    super.putObjects(objects);
+  }
+
+}
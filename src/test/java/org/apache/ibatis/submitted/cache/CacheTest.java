@@ -28,6 +28,7 @@ import org.apache.ibatis.annotations.Property;
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStats;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -289,6 +290,26 @@ class CacheTest {
     Assertions.assertTrue(customCache.isBooleanValue());
   }
 
+  @Test
+  void shouldCountHitsMissesAndLoads() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Assertions.assertEquals(2, sqlSession.getMapper(PersonMapper.class).findAll().size());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Assertions.assertEquals(2, sqlSession.getMapper(PersonMapper.class).findAll().size());
+    }
+    CacheStats stats = sqlSessionFactory.getConfiguration().getCacheStats(PersonMapper.class.getName());
+    Assertions.assertEquals(1, stats.getHitCount());
+    Assertions.assertEquals(1, stats.getMissCount());
+    Assertions.assertEquals(1, stats.getPutCount());
+    Assertions.assertEquals(1, stats.getLoadSuccessCount());
+    Assertions.assertTrue(stats.getTotalLoadTime() > 0);
+    Assertions.assertEquals(1, stats.getSize());
+    Assertions.assertEquals(-1, stats.getWeight());
+    Assertions.assertTrue(
+        sqlSessionFactory.getConfiguration().getCacheStats().containsKey(PersonMapper.class.getName()));
+  }
+
   @Test
   void shouldErrorUnsupportedProperties() {
     when(() -> sqlSessionFactory.getConfiguration().addMapper(CustomCacheUnsupportedPropertyMapper.class));
@@ -0,0 +1,107 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_invalidation_bus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.invalidation.LocalCacheInvalidationBus;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClusterCacheInvalidationTest {
+
+  private SqlSessionFactory node1;
+  private SqlSessionFactory node2;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // two configurations on the same database stand for two nodes of a cluster
+    node1 = build();
+    node2 = build();
+    BaseDataTest.runScript(node1.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cache_invalidation_bus/CreateDB.sql");
+  }
+
+  @AfterEach
+  void tearDown() {
+    node1.getConfiguration().getCacheInvalidationBus().close();
+    node2.getConfiguration().getCacheInvalidationBus().close();
+  }
+
+  private static SqlSessionFactory build() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/cache_invalidation_bus/mybatis-config.xml")) {
+      return new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @Test
+  void shouldConfigureBus() {
+    LocalCacheInvalidationBus bus = (LocalCacheInvalidationBus) node1.getConfiguration().getCacheInvalidationBus();
+    assertEquals("cache_invalidation_bus", bus.getChannel());
+  }
+
+  @Test
+  void shouldClearCachesOfOtherNodesOnCommit() {
+    assertEquals(Arrays.asList("Jane", "John"), findNames(node1));
+    assertEquals(Arrays.asList("Jane", "John"), findNames(node2));
+    assertEquals(Collections.singletonList("Jane"), findOwnerNames(node1));
+    try (SqlSession sqlSession = node2.openSession()) {
+      sqlSession.getMapper(PersonMapper.class).rename(1, "Ann");
+      // nothing is published before the commit
+      assertEquals(1, node1.getConfiguration().getCache(PersonMapper.class.getName()).getSize());
+      sqlSession.commit();
+    }
+    assertEquals(0, node1.getConfiguration().getCache(PersonMapper.class.getName()).getSize());
+    // the pet cache of the first node depends on the person table written by the second node
+    assertEquals(0, node1.getConfiguration().getCache(PetMapper.class.getName()).getSize());
+    assertEquals(Arrays.asList("Ann", "John"), findNames(node1));
+    assertEquals(Collections.singletonList("Ann"), findOwnerNames(node1));
+  }
+
+  @Test
+  void shouldNotPublishRolledBackWrites() {
+    assertEquals(Arrays.asList("Jane", "John"), findNames(node1));
+    try (SqlSession sqlSession = node2.openSession()) {
+      sqlSession.getMapper(PersonMapper.class).rename(1, "Ann");
+      sqlSession.rollback();
+    }
+    assertEquals(1, node1.getConfiguration().getCache(PersonMapper.class.getName()).getSize());
+  }
+
+  private static Object findNames(SqlSessionFactory node) {
+    try (SqlSession sqlSession = node.openSession()) {
+      return sqlSession.getMapper(PersonMapper.class).findNames();
+    }
+  }
+
+  private static Object findOwnerNames(SqlSessionFactory node) {
+    try (SqlSession sqlSession = node.openSession()) {
+      return sqlSession.getMapper(PetMapper.class).findOwnerNames();
+    }
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_snapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CacheSnapshotTest {
+
+  private Path directory;
+  private Path snapshotFile;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    directory = Files.createTempDirectory("cache_snapshot");
+    snapshotFile = directory.resolve("caches.snapshot");
+    SqlSessionFactory sqlSessionFactory = build("PersonMapper.xml");
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cache_snapshot/CreateDB.sql");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersonMapper personMapper = sqlSession.getMapper(PersonMapper.class);
+      assertEquals(Arrays.asList("Jane", "John"), personMapper.findNames());
+      assertEquals("Jane", personMapper.findName(1));
+    }
+    assertEquals(2, sqlSessionFactory.getConfiguration().saveCacheSnapshot());
+    renameBehindTheCache(sqlSessionFactory);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    Files.deleteIfExists(snapshotFile);
+    Files.deleteIfExists(directory);
+  }
+
+  @Test
+  void shouldRestoreSavedEntries() throws Exception {
+    SqlSessionFactory sqlSessionFactory = build("PersonMapper.xml");
+    String cacheId = PersonMapper.class.getName();
+    assertEquals(2, sqlSessionFactory.getConfiguration().getCacheStats(cacheId).getSize());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersonMapper personMapper = sqlSession.getMapper(PersonMapper.class);
+      assertEquals(Arrays.asList("Jane", "John"), personMapper.findNames());
+      assertEquals("Jane", personMapper.findName(1));
+      assertEquals("John", personMapper.findName(2));
+    }
+    // only the entry that was not saved is loaded from the database
+    assertEquals(1, sqlSessionFactory.getConfiguration().getCacheStats(cacheId).getLoadSuccessCount());
+  }
+
+  @Test
+  void shouldSaveRestoredEntriesNotReadYet() throws Exception {
+    SqlSessionFactory sqlSessionFactory = build("PersonMapper.xml");
+    assertEquals(2, sqlSessionFactory.getConfiguration().saveCacheSnapshot());
+    sqlSessionFactory = build("PersonMapper.xml");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Jane", sqlSession.getMapper(PersonMapper.class).findName(1));
+    }
+  }
+
+  @Test
+  void shouldDropRestoredEntriesWhenFlushed() throws Exception {
+    SqlSessionFactory sqlSessionFactory = build("PersonMapper.xml");
+    sqlSessionFactory.getConfiguration().getCache(PersonMapper.class.getName()).clear();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Ann", sqlSession.getMapper(PersonMapper.class).findName(1));
+    }
+  }
+
+  @Test
+  void shouldDiscardSnapshotOfChangedStatements() throws Exception {
+    SqlSessionFactory sqlSessionFactory = build("ChangedPersonMapper.xml");
+    assertEquals(0, sqlSessionFactory.getConfiguration().getCacheStats(PersonMapper.class.getName()).getSize());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersonMapper personMapper = sqlSession.getMapper(PersonMapper.class);
+      assertEquals(Arrays.asList("Ann", "John"), personMapper.findNames());
+      assertEquals("Ann", personMapper.findName(1));
+    }
+  }
+
+  @Test
+  void shouldTrackTablesOfRestoredCaches() throws Exception {
+    SqlSessionFactory sqlSessionFactory = build("PersonMapper.xml", true);
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(PersonMapper.class.getName());
+    assertTrue(sqlSessionFactory.getConfiguration().getCacheDependencyRegistry()
+        .getDependentCaches(Collections.singleton("person")).contains(cache));
+    assertFalse(sqlSessionFactory.getConfiguration().getCacheDependencyRegistry().isUntracked(cache));
+  }
+
+  @Test
+  void shouldSaveFactoriesSharingTheFileInTurn() throws Exception {
+    SqlSessionFactory first = build("PersonMapper.xml");
+    SqlSessionFactory second = build("PersonMapper.xml");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Integer>> saves = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        SqlSessionFactory sqlSessionFactory = i % 2 == 0 ? first : second;
+        saves.add(executor.submit(() -> sqlSessionFactory.getConfiguration().saveCacheSnapshot()));
+      }
+      for (Future<Integer> save : saves) {
+        assertEquals(2, save.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(Collections.singletonList(snapshotFile), files.collect(Collectors.toList()));
+    }
+    assertEquals(2, build("PersonMapper.xml").getConfiguration().getCacheStats(PersonMapper.class.getName()).getSize());
+  }
+
+  private SqlSessionFactory build(String mapperResource) throws Exception {
+    return build(mapperResource, false);
+  }
+
+  private SqlSessionFactory build(String mapperResource, boolean tableBasedCacheInvalidation) throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("tableBasedCacheInvalidation", String.valueOf(tableBasedCacheInvalidation));
+    properties.setProperty("snapshotFile", snapshotFile.toString());
+    properties.setProperty("mapperResource", "org/apache/ibatis/submitted/cache_snapshot/" + mapperResource);
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_snapshot/mybatis-config.xml")) {
+      return new SqlSessionFactoryBuilder().build(reader, properties);
+    }
+  }
+
+  private void renameBehindTheCache(SqlSessionFactory sqlSessionFactory) throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate("update person set firstname = 'Ann' where id = 1");
+    }
+  }
+
+}
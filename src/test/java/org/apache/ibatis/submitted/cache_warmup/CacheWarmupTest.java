@@ -0,0 +1,100 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_warmup;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.CacheWarmupReport;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CacheWarmupTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    Configuration configuration;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_warmup/mybatis-config.xml")) {
+      configuration = new XMLConfigBuilder(reader).parse();
+    }
+    // the warm-up runs as the factory is built, so the database must be ready before
+    BaseDataTest.runScript(configuration.getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cache_warmup/CreateDB.sql");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @Test
+  void shouldDeclareWarmups() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertEquals(6, configuration.getCacheWarmups().size());
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ownerId", 1);
+    parameter.put("name", "Rex");
+    assertTrue(configuration.getCacheWarmups().stream()
+        .anyMatch(warmup -> warmup.getStatementId().equals(PetMapper.class.getName() + ".findIds")
+            && parameter.equals(warmup.getParameter())));
+  }
+
+  @Test
+  void shouldReportLoadedEntries() {
+    CacheWarmupReport report = sqlSessionFactory.getConfiguration().getCacheWarmupReport();
+    Map<String, Integer> loadedEntries = new HashMap<>();
+    loadedEntries.put(PersonMapper.class.getName(), 3);
+    loadedEntries.put(PetMapper.class.getName(), 2);
+    assertEquals(loadedEntries, report.getLoadedEntries());
+    assertEquals(5, report.getTotalLoadedEntries());
+    assertEquals(1, report.getFailures().size());
+    assertTrue(report.getFailures().get(0).contains(PersonMapper.class.getName() + ".missing"));
+    assertTrue(report.getDurationMillis() >= 0);
+  }
+
+  @Test
+  void shouldHitWarmedUpEntries() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    CacheStats personStats = configuration.getCacheStats(PersonMapper.class.getName());
+    CacheStats petStats = configuration.getCacheStats(PetMapper.class.getName());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersonMapper personMapper = sqlSession.getMapper(PersonMapper.class);
+      assertEquals(Arrays.asList("Jane", "John"), personMapper.findNames());
+      assertEquals("Jane", personMapper.findName(1));
+      assertEquals("John", personMapper.findName(2));
+      PetMapper petMapper = sqlSession.getMapper(PetMapper.class);
+      assertEquals(Collections.singletonList("Rex"), petMapper.findNames());
+      assertEquals(Collections.singletonList(1), petMapper.findIds(1, "Rex"));
+    }
+    assertEquals(personStats.getMissCount(), configuration.getCacheStats(PersonMapper.class.getName()).getMissCount());
+    assertEquals(personStats.getHitCount() + 3,
+        configuration.getCacheStats(PersonMapper.class.getName()).getHitCount());
+    assertEquals(petStats.getMissCount(), configuration.getCacheStats(PetMapper.class.getName()).getMissCount());
+    assertEquals(petStats.getHitCount() + 2, configuration.getCacheStats(PetMapper.class.getName()).getHitCount());
+  }
+
+}
@@ -0,0 +1,36 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_warmup;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Warmup;
+
+@CacheNamespace
+public interface PetMapper {
+
+  @Warmup
+  @Select("select name from pet order by id")
+  List<String> findNames();
+
+  @Warmup({ "#{'ownerId' : 1, 'name' : 'Rex'}" })
+  @Select("select id from pet where owner_id = #{ownerId} and name = #{name}")
+  List<Integer> findIds(@Param("ownerId") int ownerId, @Param("name") String name);
+
+}
@@ -0,0 +1,72 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.fused_cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.impl.FusedCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class FusedCachingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/fused_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/fused_cache/CreateDB.sql");
+  }
+
+  @Test
+  void shouldCacheWithFusedCache() {
+    assertTrue(sqlSessionFactory.getConfiguration().getCache(PersonMapper.class.getName()) instanceof FusedCache);
+    List<String> names;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      names = sqlSession.getMapper(PersonMapper.class).findNames();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<String> cached = sqlSession.getMapper(PersonMapper.class).findNames();
+      assertEquals(names, cached);
+      assertNotSame(names, cached);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PersonMapper.class).insert(3, "Ann");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Jane", "John", "Ann"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+    CacheStats stats = sqlSessionFactory.getConfiguration().getCacheStats(PersonMapper.class.getName());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+  }
+
+}
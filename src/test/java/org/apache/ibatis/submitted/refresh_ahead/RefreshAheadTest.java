@@ -0,0 +1,93 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.refresh_ahead;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RefreshAheadTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/refresh_ahead/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    // reload on the reading thread so the refreshed value can be checked right away
+    sqlSessionFactory.getConfiguration().setCacheRefreshExecutor(Runnable::run);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/refresh_ahead/CreateDB.sql");
+  }
+
+  @Test
+  void shouldServeStaleValueAndRefreshInBackground() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Jane", "John"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+    renameBehindTheCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // not old enough to be refreshed yet
+      assertEquals(Arrays.asList("Jane", "John"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+    Thread.sleep(100);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // the stale value is served once more while it is reloaded
+      assertEquals(Arrays.asList("Jane", "John"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Ann", "John"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+  }
+
+  @Test
+  void shouldRefreshWithParameters() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Jane", sqlSession.getMapper(PersonMapper.class).findName(1));
+      assertEquals("John", sqlSession.getMapper(PersonMapper.class).findName(2));
+    }
+    renameBehindTheCache();
+    Thread.sleep(100);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Jane", sqlSession.getMapper(PersonMapper.class).findName(1));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("Ann", sqlSession.getMapper(PersonMapper.class).findName(1));
+      assertEquals("John", sqlSession.getMapper(PersonMapper.class).findName(2));
+    }
+  }
+
+  private void renameBehindTheCache() throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate("update person set firstname = 'Ann' where id = 1");
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache_invalidation;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+@CacheNamespace
+public interface PetMapper {
+
+  @Select("select name from pet order by id")
+  List<String> findNames();
+
+  @Insert("insert into pet (id, name, owner_id) values (#{id}, #{name}, #{ownerId})")
+  void create(@Param("id") int id, @Param("name") String name, @Param("ownerId") int ownerId);
+
+  @Update("update person set firstname = #{firstname} where id = #{id}")
+  void renamePerson(@Param("id") int id, @Param("firstname") String firstname);
+
+  @Update("update person set firstname = #{firstname} where id = #{id}")
+  @Options(tables = "PUBLIC.Person")
+  void renamePersonWithDeclaredTables(@Param("id") int id, @Param("firstname") String firstname);
+
+}
@@ -0,0 +1,138 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache_invalidation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TableCacheInvalidationTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/table_cache_invalidation/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/table_cache_invalidation/CreateDB.sql");
+  }
+
+  @Test
+  void shouldKeepCacheWhenOtherTableIsWritten() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Jane", "John"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PetMapper.class).create(2, "Tom", 2);
+      sqlSession.getMapper(PersonMapper.class).create(3, "Jim");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // the insert into pet did not clear the cache, the insert into person did
+      assertEquals(Arrays.asList("Jane", "John", "Jim"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PetMapper.class).create(3, "Max", 1);
+      sqlSession.commit();
+    }
+    assertEquals(1, sqlSessionFactory.getConfiguration().getCache(PersonMapper.class.getName()).getSize());
+  }
+
+  @Test
+  void shouldClearCacheOfOtherNamespaceReadingWrittenTable() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Jane", "John"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PetMapper.class).renamePerson(1, "Ann");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Ann", "John"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+  }
+
+  @Test
+  void shouldFindTablesOfDynamicStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Collections.singletonList("Rex"), sqlSession.getMapper(PetMapper.class).findNames());
+      assertEquals(Collections.singletonList("Jane"), sqlSession.getMapper(PersonMapper.class).findOwnerNames());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PersonMapper.class).renamePet(1, "Rocky");
+      sqlSession.commit();
+    }
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertEquals(0, configuration.getCache(PetMapper.class.getName()).getSize());
+    assertEquals(0, configuration.getCache(PersonMapper.class.getName()).getSize());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Collections.singletonList("Rocky"), sqlSession.getMapper(PetMapper.class).findNames());
+    }
+  }
+
+  @Test
+  void shouldKeepLocalCacheEntriesOfOtherTables() {
+    sqlSessionFactory.getConfiguration().setTableBasedLocalCacheInvalidation(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersonMapper personMapper = sqlSession.getMapper(PersonMapper.class);
+      PetMapper petMapper = sqlSession.getMapper(PetMapper.class);
+      List<String> personNames = personMapper.findNames();
+      List<String> petNames = petMapper.findNames();
+      List<String> ownerNames = personMapper.findOwnerNames();
+      personMapper.create(3, "Jim");
+      // only the entries read from person were removed from the local cache
+      assertSame(petNames, petMapper.findNames());
+      assertNotSame(personNames, personMapper.findNames());
+      assertNotSame(ownerNames, personMapper.findOwnerNames());
+      assertEquals(Arrays.asList("Jane", "John", "Jim"), personMapper.findNames());
+      personMapper.renamePet(1, "Rocky");
+      assertEquals(Collections.singletonList("Rocky"), petMapper.findNames());
+    }
+  }
+
+  @Test
+  void shouldRecordTablesOfStatements() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    MappedStatement findOwnerNames = configuration.getMappedStatement(PersonMapper.class.getName() + ".findOwnerNames");
+    assertEquals(Arrays.asList("person", "pet"), Arrays.asList(findOwnerNames.getReadTables().toArray()));
+    assertNull(findOwnerNames.getWriteTables());
+    MappedStatement renamePerson = configuration.getMappedStatement(PetMapper.class.getName() + ".renamePerson");
+    assertEquals(Collections.singleton("person"), renamePerson.getWriteTables());
+    MappedStatement declared = configuration
+        .getMappedStatement(PetMapper.class.getName() + ".renamePersonWithDeclaredTables");
+    assertEquals(Collections.singleton("person"), declared.getWriteTables());
+    MappedStatement renamePet = configuration.getMappedStatement(PersonMapper.class.getName() + ".renamePet");
+    assertNull(renamePet.getWriteTables());
+  }
+
+}
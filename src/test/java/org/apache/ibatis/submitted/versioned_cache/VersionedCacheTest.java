@@ -0,0 +1,77 @@
+/*
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.versioned_cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class VersionedCacheTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/versioned_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/versioned_cache/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReadOwnEntriesAfterWrite() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersonMapper mapper = sqlSession.getMapper(PersonMapper.class);
+      mapper.insert(3, "Ann");
+      List<String> names = mapper.findNames();
+      assertEquals(Arrays.asList("Jane", "John", "Ann"), names);
+      // the local cache is statement scoped, so only the second level cache can return the same list
+      assertSame(names, mapper.findNames());
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Jane", "John", "Ann"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+  }
+
+  @Test
+  void shouldNotCommitEntriesReadBeforeAnotherWrite() {
+    try (SqlSession reader = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Jane", "John"), reader.getMapper(PersonMapper.class).findNames());
+      try (SqlSession writer = sqlSessionFactory.openSession()) {
+        writer.getMapper(PersonMapper.class).insert(3, "Ann");
+        writer.commit();
+      }
+      reader.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(Arrays.asList("Jane", "John", "Ann"), sqlSession.getMapper(PersonMapper.class).findNames());
+    }
+  }
+
+}
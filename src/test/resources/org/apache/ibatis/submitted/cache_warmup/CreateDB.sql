@@ -0,0 +1,33 @@
+--
+--    Copyright 2009-2026 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       https://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table person if exists;
+drop table pet if exists;
+
+create table person(
+    id int,
+    firstname varchar(20)
+);
+
+create table pet(
+    id int,
+    name varchar(20),
+    owner_id int
+);
+
+insert into person(id, firstname) values (1, 'Jane');
+insert into person(id, firstname) values (2, 'John');
+insert into pet(id, name, owner_id) values (1, 'Rex', 1);